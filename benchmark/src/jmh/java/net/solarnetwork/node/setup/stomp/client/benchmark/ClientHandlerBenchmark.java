@@ -0,0 +1,125 @@
+/* ==================================================================
+ * ClientHandlerBenchmark.java - 18/10/2026 11:30:48 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.stomp.StompSubframeAggregator;
+import io.netty.handler.codec.stomp.StompSubframeDecoder;
+import net.solarnetwork.node.setup.stomp.client.domain.StompMessage;
+import net.solarnetwork.node.setup.stomp.client.impl.NettyStompClient;
+import net.solarnetwork.node.setup.stomp.client.impl.StompSetupClientHandler;
+import net.solarnetwork.node.setup.stomp.client.impl.StompSetupClientService;
+import net.solarnetwork.node.setup.stomp.client.util.DestinationPatternIndex;
+
+/**
+ * Benchmark inbound frame dispatch by {@link StompSetupClientHandler}, through the same decoder
+ * and aggregator as the {@link NettyStompClient} pipeline.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+@State(Scope.Thread)
+public class ClientHandlerBenchmark {
+
+  /** The message body length, in bytes. */
+  @Param({ "64", "4096" })
+  public int bodyLength;
+
+  /**
+   * {@literal true} to dispatch to a destination pattern consumer, rather than to all.
+   */
+  @Param({ "false", "true" })
+  public boolean routed;
+
+  private EmbeddedChannel channel;
+  private ByteBuf frame;
+
+  /**
+   * Setup for benchmark.
+   * 
+   * @param bh
+   *          the black hole
+   */
+  @Setup
+  public void setup(Blackhole bh) {
+    final Consumer<StompMessage<String>> consumer = m -> bh
+        .consume(m.getHeaders().getFirst(StompSetupClientService.REQUEST_ID_HEADER));
+    Set<Consumer<StompMessage<String>>> consumers = new CopyOnWriteArraySet<>();
+    DestinationPatternIndex<Consumer<StompMessage<String>>> destinationConsumers
+        = new DestinationPatternIndex<>();
+    if (routed) {
+      destinationConsumers.add("/setup/datum/**", consumer);
+      destinationConsumers.add("/setup/instruction/**", m -> bh.consume(m));
+    } else {
+      consumers.add(consumer);
+    }
+    channel = new EmbeddedChannel(new StompSubframeDecoder(),
+        new StompSubframeAggregator(NettyStompClient.DEFAULT_MAX_FRAME_LENGTH),
+        new StompSetupClientHandler(consumers, destinationConsumers, Collections.emptySet(),
+            NettyStompClient.DEFAULT_MAX_FRAME_LENGTH));
+
+    char[] body = new char[bodyLength];
+    Arrays.fill(body, 'x');
+    String s = "MESSAGE\ndestination:/setup/datum/latest\nsubscription:0\nmessage-id:123456\n"
+        + StompSetupClientService.REQUEST_ID_HEADER + ":654321\ncontent-type:"
+        + StompSetupClientService.JSON_UTF8_CONTENT_TYPE + "\ncontent-length:" + bodyLength
+        + "\n\n" + new String(body) + "\0";
+    byte[] data = s.getBytes(StandardCharsets.UTF_8);
+    frame = Unpooled.directBuffer(data.length).writeBytes(data);
+  }
+
+  /**
+   * Tear down after benchmark.
+   */
+  @TearDown
+  public void teardown() {
+    channel.finishAndReleaseAll();
+    frame.release();
+  }
+
+  /**
+   * Decode and dispatch a frame.
+   */
+  @Benchmark
+  public void dispatch() {
+    channel.writeInbound(frame.retainedDuplicate());
+  }
+
+}
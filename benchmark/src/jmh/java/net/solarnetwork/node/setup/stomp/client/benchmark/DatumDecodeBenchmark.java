@@ -0,0 +1,140 @@
+/* ==================================================================
+ * DatumDecodeBenchmark.java - 18/10/2026 11:41:19 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.benchmark;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import net.solarnetwork.codec.JsonUtils;
+import net.solarnetwork.domain.datum.Datum;
+import net.solarnetwork.domain.datum.DatumSamples;
+import net.solarnetwork.domain.datum.GeneralDatum;
+import net.solarnetwork.node.setup.stomp.client.util.JsonArrayStreamDecoder;
+
+/**
+ * Benchmark decoding {@literal /setup/datum/latest} response content, as performed by the setup
+ * client service.
+ * 
+ * <p>
+ * The {@code decode} benchmark decodes aggregated frame content. The {@code decodeStreaming}
+ * benchmark feeds the same content to the decoder in chunks, as in streaming mode.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.0
+ */
+@State(Scope.Thread)
+public class DatumDecodeBenchmark {
+
+  /** The chunk size used when streaming. */
+  public static final int STREAM_CHUNK_SIZE = 8192;
+
+  /** The number of datum in the response. */
+  @Param({ "10", "100", "1000", "10000" })
+  public int datumCount;
+
+  private JsonArrayStreamDecoder<Datum> decoder;
+  private ByteBuf content;
+
+  /**
+   * Setup for benchmark.
+   * 
+   * @throws IOException
+   *           if an IO error occurs
+   */
+  @Setup
+  public void setup() throws IOException {
+    ObjectMapper mapper = JsonUtils.newDatumObjectMapper();
+    decoder = new JsonArrayStreamDecoder<>(mapper, Datum.class);
+    final Instant now = Instant.now();
+    List<GeneralDatum> datum = new ArrayList<>(datumCount);
+    for (int i = 0; i < datumCount; i++) {
+      DatumSamples s = new DatumSamples();
+      s.putInstantaneousSampleValue("watts", 1000 + i);
+      s.putInstantaneousSampleValue("voltage", 240.1f);
+      s.putAccumulatingSampleValue("wattHours", 123456789L + i);
+      s.putStatusSampleValue("phase", "PhaseA");
+      datum.add(new GeneralDatum("/power/meter/" + i, now, s));
+    }
+    byte[] data = mapper.writeValueAsBytes(datum);
+    content = Unpooled.directBuffer(data.length).writeBytes(data);
+  }
+
+  /**
+   * Tear down after benchmark.
+   */
+  @TearDown
+  public void teardown() {
+    content.release();
+  }
+
+  /**
+   * Decode the aggregated response content.
+   * 
+   * @param bh
+   *          the black hole
+   * @return the number of datum decoded
+   * @throws IOException
+   *           if an IO error occurs
+   */
+  @Benchmark
+  public int decode(Blackhole bh) throws IOException {
+    return decoder.decode(new ByteBufInputStream(content.duplicate()), bh::consume);
+  }
+
+  /**
+   * Decode the response content in chunks.
+   * 
+   * @param bh
+   *          the black hole
+   * @return the number of datum decoded
+   * @throws IOException
+   *           if an IO error occurs
+   */
+  @Benchmark
+  public int decodeStreaming(Blackhole bh) throws IOException {
+    try (JsonArrayStreamDecoder<Datum>.Feeder feeder = decoder.newFeeder(bh::consume)) {
+      final int len = content.readableBytes();
+      for (int i = 0; i < len; i += STREAM_CHUNK_SIZE) {
+        feeder.feed(content.nioBuffer(i, Math.min(STREAM_CHUNK_SIZE, len - i)));
+      }
+      return feeder.end();
+    }
+  }
+
+}
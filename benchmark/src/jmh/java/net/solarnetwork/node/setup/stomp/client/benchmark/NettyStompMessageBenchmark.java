@@ -0,0 +1,131 @@
+/* ==================================================================
+ * NettyStompMessageBenchmark.java - 18/10/2026 11:21:05 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.benchmark;
+
+import java.util.Arrays;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.stomp.DefaultStompFrame;
+import io.netty.handler.codec.stomp.DefaultStompHeaders;
+import io.netty.handler.codec.stomp.StompCommand;
+import io.netty.handler.codec.stomp.StompHeaders;
+import net.solarnetwork.node.setup.stomp.client.impl.NettyStompMessage;
+import net.solarnetwork.node.setup.stomp.client.impl.StompSetupClientService;
+
+/**
+ * Benchmark inbound {@link NettyStompMessage} creation and access.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+@State(Scope.Thread)
+public class NettyStompMessageBenchmark {
+
+  /** The message body length, in bytes. */
+  @Param({ "64", "4096" })
+  public int bodyLength;
+
+  private StompHeaders headers;
+  private ByteBuf content;
+
+  /**
+   * Setup for benchmark.
+   */
+  @Setup
+  public void setup() {
+    headers = new DefaultStompHeaders();
+    headers.set(StompHeaders.DESTINATION, "/setup/datum/latest");
+    headers.set(StompHeaders.SUBSCRIPTION, "0");
+    headers.set(StompHeaders.MESSAGE_ID, "123456");
+    headers.set(StompSetupClientService.REQUEST_ID_HEADER, "654321");
+    headers.set(StompHeaders.CONTENT_TYPE, StompSetupClientService.JSON_UTF8_CONTENT_TYPE);
+    headers.set(StompHeaders.CONTENT_LENGTH, String.valueOf(bodyLength));
+    byte[] body = new byte[bodyLength];
+    Arrays.fill(body, (byte) 'x');
+    content = Unpooled.directBuffer(bodyLength).writeBytes(body);
+  }
+
+  /**
+   * Tear down after benchmark.
+   */
+  @TearDown
+  public void teardown() {
+    content.release();
+  }
+
+  private NettyStompMessage<String> message() {
+    DefaultStompFrame frame = new DefaultStompFrame(StompCommand.MESSAGE,
+        content.retainedDuplicate());
+    frame.headers().set(headers);
+    return NettyStompMessage.stringMessage(frame);
+  }
+
+  /**
+   * Create a message.
+   * 
+   * @param bh
+   *          the black hole
+   */
+  @Benchmark
+  public void create(Blackhole bh) {
+    NettyStompMessage<String> msg = message();
+    bh.consume(msg);
+    msg.release();
+  }
+
+  /**
+   * Create a message and look up a header value.
+   * 
+   * @param bh
+   *          the black hole
+   */
+  @Benchmark
+  public void getHeaders(Blackhole bh) {
+    NettyStompMessage<String> msg = message();
+    bh.consume(msg.getHeaders().getFirst(StompSetupClientService.REQUEST_ID_HEADER));
+    msg.release();
+  }
+
+  /**
+   * Create a message and decode its body.
+   * 
+   * @param bh
+   *          the black hole
+   */
+  @Benchmark
+  public void getBody(Blackhole bh) {
+    NettyStompMessage<String> msg = message();
+    bh.consume(msg.getBody());
+    msg.release();
+  }
+
+}
@@ -0,0 +1,136 @@
+/* ==================================================================
+ * PostFrameBenchmark.java - 18/10/2026 11:12:40 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.benchmark;
+
+import static net.solarnetwork.node.setup.stomp.client.domain.BasicStompMessage.stringMessage;
+
+import java.util.Arrays;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.stomp.StompFrame;
+import io.netty.handler.codec.stomp.StompSubframeEncoder;
+import net.solarnetwork.node.setup.stomp.StompCommand;
+import net.solarnetwork.node.setup.stomp.StompHeader;
+import net.solarnetwork.node.setup.stomp.client.domain.StompMessage;
+import net.solarnetwork.node.setup.stomp.client.impl.NettyStompClient;
+import net.solarnetwork.node.setup.stomp.client.impl.StompSetupClientService;
+
+/**
+ * Benchmark outbound frame construction, as performed by {@link NettyStompClient#post}.
+ * 
+ * <p>
+ * The {@code createFrame} benchmark measures building the frame, including encoding the body and
+ * escaping header values. The {@code encodeFrame} benchmark also writes the frame through a
+ * {@link StompSubframeEncoder}, as the client pipeline does.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.0
+ */
+@State(Scope.Thread)
+public class PostFrameBenchmark {
+
+  /** The message body length, in characters. */
+  @Param({ "0", "256", "4096" })
+  public int bodyLength;
+
+  /**
+   * {@literal true} to include header values that must be escaped.
+   */
+  @Param({ "false", "true" })
+  public boolean escapedHeaders;
+
+  private NettyStompClient client;
+  private EmbeddedChannel channel;
+  private StompMessage<String> message;
+
+  /**
+   * Setup for benchmark.
+   */
+  @Setup
+  public void setup() {
+    client = new NettyStompClient("localhost", 0);
+    channel = new EmbeddedChannel(new StompSubframeEncoder());
+    MultiValueMap<String, String> headers = new LinkedMultiValueMap<>(4);
+    headers.set(StompHeader.Destination.getValue(), "/setup/datum/latest");
+    headers.set(StompSetupClientService.REQUEST_ID_HEADER, "123456");
+    headers.set(StompHeader.ContentType.getValue(), StompSetupClientService.JSON_UTF8_CONTENT_TYPE);
+    headers.set("source-ids", escapedHeaders ? "/power/meter:1\n/power/meter:2" : "/power/meter/1");
+    String body = null;
+    if (bodyLength > 0) {
+      char[] chars = new char[bodyLength];
+      Arrays.fill(chars, 'x');
+      body = new String(chars);
+    }
+    message = stringMessage(StompCommand.SEND, headers, body);
+  }
+
+  /**
+   * Tear down after benchmark.
+   */
+  @TearDown
+  public void teardown() {
+    channel.finishAndReleaseAll();
+  }
+
+  /**
+   * Create a frame.
+   * 
+   * @param bh
+   *          the black hole
+   */
+  @Benchmark
+  public void createFrame(Blackhole bh) {
+    StompFrame frame = client.createFrame(channel.alloc(), message);
+    bh.consume(frame);
+    frame.release();
+  }
+
+  /**
+   * Create and encode a frame.
+   * 
+   * @param bh
+   *          the black hole
+   */
+  @Benchmark
+  public void encodeFrame(Blackhole bh) {
+    channel.writeOutbound(client.createFrame(channel.alloc(), message));
+    ByteBuf buf;
+    while ((buf = channel.readOutbound()) != null) {
+      bh.consume(buf.readableBytes());
+      buf.release();
+    }
+  }
+
+}
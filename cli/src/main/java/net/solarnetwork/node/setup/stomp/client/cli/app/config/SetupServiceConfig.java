@@ -22,13 +22,19 @@
 
 package net.solarnetwork.node.setup.stomp.client.cli.app.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import net.solarnetwork.codec.JsonUtils;
+import net.solarnetwork.node.setup.stomp.client.impl.NettyStompClient;
 import net.solarnetwork.node.setup.stomp.client.impl.NettyStompSetupClientFactory;
+import net.solarnetwork.node.setup.stomp.client.impl.NettyWireLogger;
+import net.solarnetwork.node.setup.stomp.client.impl.PooledSetupClientService;
+import net.solarnetwork.node.setup.stomp.client.impl.SetupClientSessionPool;
+import net.solarnetwork.node.setup.stomp.client.impl.StompClientMetrics;
 import net.solarnetwork.node.setup.stomp.client.impl.StompSetupClientService;
 import net.solarnetwork.node.setup.stomp.client.service.SetupClientService;
 
@@ -36,25 +42,151 @@ import net.solarnetwork.node.setup.stomp.client.service.SetupClientService;
  * Configuration for the STOMP setup client.
  * 
  * @author matt
- * @version 1.0
+ * @version 1.4
  */
 @Configuration
 public class SetupServiceConfig {
 
+  @Value("${app.setup.io-threads:0}")
+  private int ioThreads = NettyStompSetupClientFactory.DEFAULT_IO_THREADS;
+
+  @Value("${app.setup.wire-log.mode:Off}")
+  private NettyWireLogger.Mode wireLogMode = NettyWireLogger.Mode.Off;
+
+  @Value("${app.setup.wire-log.capture-size:100}")
+  private int wireCaptureSize = NettyWireLogger.DEFAULT_CAPTURE_SIZE;
+
+  @Value("${app.setup.wire-log.sample-rate:1}")
+  private int wireSampleRate = NettyWireLogger.DEFAULT_SAMPLE_RATE;
+
+  @Value("${app.setup.heart-beat.send-ms:10000}")
+  private long heartBeatSendMillis = NettyStompClient.DEFAULT_HEART_BEAT_MILLIS;
+
+  @Value("${app.setup.heart-beat.receive-ms:10000}")
+  private long heartBeatReceiveMillis = NettyStompClient.DEFAULT_HEART_BEAT_MILLIS;
+
+  @Value("${app.setup.write-buffer.low-water-mark:32768}")
+  private int writeBufferLowWaterMark = NettyStompClient.DEFAULT_WRITE_BUFFER_LOW_WATER_MARK;
+
+  @Value("${app.setup.write-buffer.high-water-mark:65536}")
+  private int writeBufferHighWaterMark = NettyStompClient.DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK;
+
+  @Value("${app.setup.flush-consolidation-limit:256}")
+  private int flushConsolidationLimit = NettyStompClient.DEFAULT_FLUSH_CONSOLIDATION_LIMIT;
+
+  @Value("${app.setup.reconnect.enabled:false}")
+  private boolean autoReconnect = false;
+
+  @Value("${app.setup.reconnect.initial-delay-ms:1000}")
+  private long reconnectInitialDelayMillis = StompSetupClientService
+      .DEFAULT_RECONNECT_INITIAL_DELAY_MILLIS;
+
+  @Value("${app.setup.reconnect.max-delay-ms:60000}")
+  private long reconnectMaxDelayMillis = StompSetupClientService.DEFAULT_RECONNECT_MAX_DELAY_MILLIS;
+
+  @Value("${app.setup.reconnect.in-flight-policy:Fail}")
+  private StompSetupClientService.InFlightPolicy inFlightPolicy = StompSetupClientService
+      .InFlightPolicy.Fail;
+
+  @Value("${app.setup.pool.enabled:false}")
+  private boolean poolEnabled = false;
+
+  @Value("${app.setup.pool.max-per-key:4}")
+  private int poolMaxPerKey = SetupClientSessionPool.DEFAULT_MAX_PER_KEY;
+
+  @Value("${app.setup.pool.idle-timeout-ms:300000}")
+  private long poolIdleTimeoutMillis = SetupClientSessionPool.DEFAULT_IDLE_TIMEOUT_MILLIS;
+
+  @Value("${app.setup.metrics.object-name:" + StompClientMetrics.DEFAULT_OBJECT_NAME + "}")
+  private String metricsObjectName = StompClientMetrics.DEFAULT_OBJECT_NAME;
+
   private ObjectMapper objectMapper() {
     return JsonUtils.newDatumObjectMapper();
   }
 
+  /**
+   * Create the wire logger.
+   * 
+   * @return the wire logger
+   */
+  @Bean
+  public NettyWireLogger wireLogger() {
+    NettyWireLogger wl = new NettyWireLogger();
+    wl.setCaptureSize(wireCaptureSize);
+    wl.setSampleRate(wireSampleRate);
+    wl.setMode(wireLogMode);
+    return wl;
+  }
+
+  /**
+   * Create the client metrics, published via JMX.
+   * 
+   * @return the metrics
+   */
+  @Bean(initMethod = "registerMBean", destroyMethod = "unregisterMBean")
+  public StompClientMetrics stompClientMetrics() {
+    StompClientMetrics m = new StompClientMetrics();
+    m.setObjectName(metricsObjectName);
+    return m;
+  }
+
+  /**
+   * Create the STOMP setup client factory.
+   * 
+   * @return the factory
+   */
+  @Bean(destroyMethod = "shutdown")
+  public NettyStompSetupClientFactory stompSetupClientFactory() {
+    NettyStompSetupClientFactory f = new NettyStompSetupClientFactory(ioThreads);
+    f.setWireLogger(wireLogger());
+    f.setMetrics(stompClientMetrics());
+    f.setHeartBeatSendMillis(heartBeatSendMillis);
+    f.setHeartBeatReceiveMillis(heartBeatReceiveMillis);
+    f.setWriteBufferWaterMark(writeBufferLowWaterMark, writeBufferHighWaterMark);
+    f.setFlushConsolidationLimit(flushConsolidationLimit);
+    return f;
+  }
+
+  private StompSetupClientService newSetupClientService() {
+    StompSetupClientService s = new StompSetupClientService(stompSetupClientFactory());
+    s.setObjectMapper(objectMapper());
+    s.setMetrics(stompClientMetrics());
+    s.setAutoReconnect(autoReconnect);
+    s.setReconnectInitialDelayMillis(reconnectInitialDelayMillis);
+    s.setReconnectMaxDelayMillis(reconnectMaxDelayMillis);
+    s.setInFlightPolicy(inFlightPolicy);
+    return s;
+  }
+
+  /**
+   * Create the setup client session pool.
+   * 
+   * @return the pool
+   */
+  @Bean(destroyMethod = "close")
+  public SetupClientSessionPool setupClientSessionPool() {
+    SetupClientSessionPool pool = new SetupClientSessionPool(this::newSetupClientService);
+    pool.setMaxPerKey(poolMaxPerKey);
+    pool.setIdleTimeoutMillis(poolIdleTimeoutMillis);
+    return pool;
+  }
+
   /**
    * Create the setup client service.
    * 
+   * <p>
+   * If pooling is enabled, the service borrows its sessions from the
+   * {@link #setupClientSessionPool()} pool.
+   * </p>
+   * 
    * @return the service
    */
   @Bean
   public SetupClientService setupClientService() {
-    StompSetupClientService s = new StompSetupClientService(new NettyStompSetupClientFactory());
-    s.setObjectMapper(objectMapper());
-    return s;
+    if (poolEnabled) {
+      return new PooledSetupClientService(setupClientSessionPool());
+    }
+    return newSetupClientService();
   }
 
 }
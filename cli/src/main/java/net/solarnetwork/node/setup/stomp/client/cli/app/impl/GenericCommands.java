@@ -22,6 +22,13 @@
 
 package net.solarnetwork.node.setup.stomp.client.cli.app.impl;
 
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.shell.Availability;
 import org.springframework.shell.standard.ShellCommandGroup;
@@ -30,6 +37,8 @@ import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellMethodAvailability;
 import org.springframework.shell.standard.ShellOption;
 
+import net.solarnetwork.node.setup.stomp.SetupHeader;
+import net.solarnetwork.node.setup.stomp.SetupStatus;
 import net.solarnetwork.node.setup.stomp.client.domain.Message;
 import net.solarnetwork.node.setup.stomp.client.service.SetupClientService;
 
@@ -37,12 +46,16 @@ import net.solarnetwork.node.setup.stomp.client.service.SetupClientService;
  * Tea setup tasks.
  * 
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
 @ShellComponent
 @ShellCommandGroup("Other")
 public class GenericCommands {
 
+  private static final String LATENCY_FORMAT = "  %-16s %9s %9s %9s %9s %9s%n";
+
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
   private final SetupClientService setupService;
 
   /**
@@ -80,4 +93,125 @@ public class GenericCommands {
     return ShellUtils.renderResponseMessage(response);
   }
 
+  /**
+   * Benchmark a service by executing it repeatedly.
+   * 
+   * <p>
+   * Requests are sent with up to {@code concurrency} outstanding at once. When a {@code rate} is
+   * given, requests are scheduled at fixed intervals and the response time of each is measured from
+   * when it was scheduled to be sent, rather than when it was actually sent. This corrects for
+   * coordinated omission: if the server stalls, or the concurrency limit delays sending, the
+   * requests that should have been sent during the stall are charged for the time they waited.
+   * The uncorrected service time, measured from when each request was actually sent, is reported
+   * as well.
+   * </p>
+   * 
+   * @param service
+   *          the name of the service to execute
+   * @param count
+   *          the maximum number of requests to send, or {@literal 0} for no limit
+   * @param concurrency
+   *          the maximum number of outstanding requests
+   * @param rate
+   *          the target number of requests to send per second, or {@literal 0} to send as fast as
+   *          the concurrency limit allows
+   * @param duration
+   *          the maximum number of seconds to send requests for, or {@literal 0} for no limit
+   * @return the benchmark results
+   * @throws InterruptedException
+   *           if interrupted while waiting for requests to complete
+   */
+  @ShellMethod(key = "bench", value = "Benchmark the response time of an arbitrary command.")
+  public String bench(
+      @ShellOption(value = "service", help = "The name of the service to execute.") String service,
+      @ShellOption(value = "count", defaultValue = "1000",
+          help = "The maximum number of requests to send, or 0 for no limit.") int count,
+      @ShellOption(value = "concurrency", defaultValue = "1",
+          help = "The maximum number of outstanding requests.") int concurrency,
+      @ShellOption(value = "rate", defaultValue = "0",
+          help = "The number of requests to send per second, or 0 for as fast as possible.")
+      double rate,
+      @ShellOption(value = "duration", defaultValue = "0",
+          help = "The maximum number of seconds to send requests for, or 0 for no limit.")
+      int duration) throws InterruptedException {
+    if (count < 1 && duration < 1) {
+      return "A count or duration must be provided.";
+    }
+    final int maxOutstanding = Math.max(1, concurrency);
+    final Histogram serviceTimes = new ConcurrentHistogram(3);
+    final Histogram responseTimes = new ConcurrentHistogram(3);
+    final LongAdder errors = new LongAdder();
+    final Semaphore permits = new Semaphore(maxOutstanding);
+    final long intervalNanos = (rate > 0 ? (long) (NANOS_PER_SECOND / rate) : 0L);
+    final long start = System.nanoTime();
+    final long end = (duration > 0 ? start + TimeUnit.SECONDS.toNanos(duration) : Long.MAX_VALUE);
+    long sent = 0;
+    while (count < 1 || sent < count) {
+      final long intended = (intervalNanos > 0 ? start + sent * intervalNanos : System.nanoTime());
+      if (intended - end >= 0) {
+        break;
+      }
+      long wait;
+      while ((wait = intended - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      permits.acquire();
+      final long sendTime = System.nanoTime();
+      if (sendTime - end >= 0) {
+        permits.release();
+        break;
+      }
+      sent++;
+      setupService.executeCommandAsync(service, null, null).whenComplete((m, t) -> {
+        final long now = System.nanoTime();
+        if (t == null && isOk(m)) {
+          serviceTimes.recordValue(TimeUnit.NANOSECONDS.toMicros(now - sendTime));
+          responseTimes.recordValue(TimeUnit.NANOSECONDS.toMicros(now - intended));
+        } else {
+          errors.increment();
+        }
+        permits.release();
+      });
+    }
+    if (!permits.tryAcquire(maxOutstanding, 1, TimeUnit.MINUTES)) {
+      return "Timeout waiting for outstanding requests to complete.";
+    }
+    final double secs = (double) (System.nanoTime() - start) / NANOS_PER_SECOND;
+
+    final StringBuilder buf = new StringBuilder();
+    buf.append(String.format("Requests:   %d sent, %d failed, in %.3fs%n", sent, errors.sum(),
+        secs));
+    buf.append(String.format("Throughput: %.1f successful requests/s%n",
+        serviceTimes.getTotalCount() / secs));
+    buf.append(System.lineSeparator());
+    if (serviceTimes.getTotalCount() < 1) {
+      buf.append("Latency: none recorded.");
+      return buf.toString();
+    }
+    buf.append("Latency (ms):").append(System.lineSeparator());
+    buf.append(String.format(LATENCY_FORMAT, "", "mean", "p50", "p90", "p99", "max"));
+    appendLatency(buf, "service time", serviceTimes);
+    if (intervalNanos > 0) {
+      appendLatency(buf, "response time", responseTimes);
+    }
+    return buf.toString().trim();
+  }
+
+  private static boolean isOk(Message<String> response) {
+    final String status = (response != null && response.getHeaders() != null
+        ? response.getHeaders().getFirst(SetupHeader.Status.getValue())
+        : null);
+    return (status == null || String.valueOf(SetupStatus.Ok.getCode()).equals(status));
+  }
+
+  private static void appendLatency(StringBuilder buf, String title, Histogram h) {
+    buf.append(String.format(LATENCY_FORMAT, title, millis(h.getMean()),
+        millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(90)),
+        millis(h.getValueAtPercentile(99)), millis(h.getMaxValue())));
+  }
+
+  private static String millis(double micros) {
+    return String.format("%.1f", micros / 1000.0);
+  }
+
 }
@@ -0,0 +1,110 @@
+/* ==================================================================
+ * StatsCommands.java - 18/10/2026 10:38:26 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.cli.app.impl;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.shell.standard.ShellCommandGroup;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import net.solarnetwork.node.setup.stomp.client.domain.LatencySummary;
+import net.solarnetwork.node.setup.stomp.client.impl.StompClientMetrics;
+
+/**
+ * Client metrics commands.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+@ShellComponent
+@ShellCommandGroup("Diagnostics")
+public class StatsCommands {
+
+  private static final String LATENCY_FORMAT = "  %-32s %8s %9s %9s %9s %9s %9s%n";
+
+  private final StompClientMetrics metrics;
+
+  /**
+   * Constructor.
+   * 
+   * @param metrics
+   *          the metrics
+   */
+  @Autowired
+  public StatsCommands(StompClientMetrics metrics) {
+    super();
+    this.metrics = metrics;
+  }
+
+  /**
+   * Show the client metrics.
+   * 
+   * @param reset
+   *          {@literal true} to reset the metrics after showing them
+   * @return the metrics
+   */
+  @ShellMethod(key = "stats", value = "Show client request, connection, and traffic metrics.")
+  public String stats(@ShellOption(value = "reset",
+      help = "Reset the metrics after showing them.") boolean reset) {
+    final StringBuilder buf = new StringBuilder();
+    buf.append(String.format("Frames in/out:     %d / %d%n", metrics.getFramesIn(),
+        metrics.getFramesOut()));
+    buf.append(String.format("Bytes in/out:      %d / %d%n", metrics.getBytesIn(),
+        metrics.getBytesOut()));
+    buf.append(String.format("Requests:          %d completed, %d failed, %d in flight%n",
+        metrics.getRequestCount(), metrics.getRequestErrors(), metrics.getInFlightRequests()));
+    buf.append(String.format("Errors:            %d ERROR frames, %d connect failures, "
+        + "%d connections lost%n", metrics.getErrorFrames(), metrics.getConnectFailures(),
+        metrics.getConnectionsLost()));
+    appendLatencies(buf, "Connect phase", metrics.getConnectPhaseLatencies());
+    appendLatencies(buf, "Request destination", metrics.getRequestLatencies());
+    if (reset) {
+      metrics.reset();
+    }
+    return buf.toString().trim();
+  }
+
+  private static void appendLatencies(StringBuilder buf, String title,
+      Map<String, LatencySummary> latencies) {
+    buf.append(System.lineSeparator());
+    if (latencies.isEmpty()) {
+      buf.append(title).append(" latency: none recorded.").append(System.lineSeparator());
+      return;
+    }
+    buf.append(title).append(" latency (ms):").append(System.lineSeparator());
+    buf.append(String.format(LATENCY_FORMAT, "", "count", "mean", "p50", "p90", "p99", "max"));
+    for (Map.Entry<String, LatencySummary> e : latencies.entrySet()) {
+      final LatencySummary s = e.getValue();
+      buf.append(String.format(LATENCY_FORMAT, e.getKey(), s.getCount(), millis(s.getMean()),
+          millis(s.getP50()), millis(s.getP90()), millis(s.getP99()), millis(s.getMax())));
+    }
+  }
+
+  private static String millis(double micros) {
+    return String.format("%.1f", micros / 1000.0);
+  }
+
+}
@@ -0,0 +1,122 @@
+/* ==================================================================
+ * WireCommands.java - 18/10/2026 4:48:50 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.cli.app.impl;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.shell.standard.ShellCommandGroup;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import net.solarnetwork.node.setup.stomp.client.impl.NettyWireLogger;
+
+/**
+ * Wire logging commands.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+@ShellComponent
+@ShellCommandGroup("Diagnostics")
+public class WireCommands {
+
+  private final NettyWireLogger wireLogger;
+
+  /**
+   * Constructor.
+   * 
+   * @param wireLogger
+   *          the wire logger
+   */
+  @Autowired
+  public WireCommands(NettyWireLogger wireLogger) {
+    super();
+    this.wireLogger = wireLogger;
+  }
+
+  /**
+   * Change the wire logging mode.
+   * 
+   * @param mode
+   *          the mode to change to, or an empty string to keep the current mode
+   * @param size
+   *          the capture size to use, or {@literal 0} to keep the current size
+   * @param sample
+   *          the capture sample rate to use, or {@literal 0} to keep the current rate
+   * @return the wire logging settings
+   */
+  @ShellMethod(key = "wire-log", value = "Show or change the wire logging mode.")
+  public String wireLog(
+      @ShellOption(value = "mode", defaultValue = "",
+          help = "The mode to use: off, log, or capture.") String mode,
+      @ShellOption(value = "size", defaultValue = "0",
+          help = "The number of frames to retain in capture mode.") int size,
+      @ShellOption(value = "sample", defaultValue = "0",
+          help = "Capture 1 in every N frames.") int sample) {
+    if (size > 0) {
+      wireLogger.setCaptureSize(size);
+    }
+    if (sample > 0) {
+      wireLogger.setSampleRate(sample);
+    }
+    if (!mode.isEmpty()) {
+      NettyWireLogger.Mode m = null;
+      for (NettyWireLogger.Mode v : NettyWireLogger.Mode.values()) {
+        if (v.name().equalsIgnoreCase(mode)) {
+          m = v;
+          break;
+        }
+      }
+      if (m == null) {
+        return "Unsupported mode [" + mode + "]: must be one of off, log, or capture.";
+      }
+      wireLogger.setMode(m);
+    }
+    return String.format("Wire logging mode %s, capture size %d, sample rate 1 in %d.",
+        wireLogger.getMode(), wireLogger.getCaptureSize(), Math.max(1, wireLogger.getSampleRate()));
+  }
+
+  /**
+   * Show the captured frames.
+   * 
+   * @param clear
+   *          {@literal true} to clear the captured frames after showing them
+   * @return the captured frames
+   */
+  @ShellMethod(key = "wire-dump", value = "Show the frames captured in wire capture mode.")
+  public String wireDump(@ShellOption(value = "clear",
+      help = "Clear the captured frames after showing them.") boolean clear) {
+    List<String> frames = wireLogger.capturedFrames();
+    if (clear) {
+      wireLogger.clearCapturedFrames();
+    }
+    if (frames.isEmpty()) {
+      return (wireLogger.getMode() == NettyWireLogger.Mode.Capture ? "No frames captured."
+          : "No frames captured; use wire-log --mode capture to start capturing.");
+    }
+    return String.join(System.lineSeparator(), frames);
+  }
+
+}
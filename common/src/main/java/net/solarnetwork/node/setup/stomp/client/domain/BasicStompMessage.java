@@ -22,7 +22,7 @@
 
 package net.solarnetwork.node.setup.stomp.client.domain;
 
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 import org.springframework.util.MultiValueMap;
 
@@ -134,7 +134,7 @@ public abstract class BasicStompMessage<T> implements StompMessage<T> {
 
     @Override
     public byte[] getContent() {
-      return body.getBytes(Charset.forName("UTF-8"));
+      return (body != null ? body.getBytes(StandardCharsets.UTF_8) : null);
     }
 
   }
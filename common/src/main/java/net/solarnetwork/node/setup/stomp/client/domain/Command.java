@@ -0,0 +1,105 @@
+/* ==================================================================
+ * Command.java - 19/10/2026 8:14:37 AM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.domain;
+
+import org.springframework.util.MultiValueMap;
+
+/**
+ * A setup service command to execute.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public final class Command {
+
+  private final String service;
+  private final MultiValueMap<String, String> headers;
+  private final Object body;
+
+  /**
+   * Constructor.
+   * 
+   * @param service
+   *          the setup service to execute
+   * @param headers
+   *          the headers, or {@literal null}
+   * @param body
+   *          the body content, or {@literal null}
+   * @throws IllegalArgumentException
+   *           if {@code service} is {@literal null}
+   */
+  public Command(String service, MultiValueMap<String, String> headers, Object body) {
+    super();
+    if (service == null) {
+      throw new IllegalArgumentException("The service argument must not be null.");
+    }
+    this.service = service;
+    this.headers = headers;
+    this.body = body;
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param service
+   *          the setup service to execute
+   * @throws IllegalArgumentException
+   *           if {@code service} is {@literal null}
+   */
+  public Command(String service) {
+    this(service, null, null);
+  }
+
+  @Override
+  public String toString() {
+    return "Command{" + service + "}";
+  }
+
+  /**
+   * Get the setup service to execute.
+   * 
+   * @return the service, never {@literal null}
+   */
+  public String getService() {
+    return service;
+  }
+
+  /**
+   * Get the headers.
+   * 
+   * @return the headers, or {@literal null}
+   */
+  public MultiValueMap<String, String> getHeaders() {
+    return headers;
+  }
+
+  /**
+   * Get the body content.
+   * 
+   * @return the body, or {@literal null}
+   */
+  public Object getBody() {
+    return body;
+  }
+
+}
@@ -0,0 +1,144 @@
+/* ==================================================================
+ * LatencySummary.java - 18/10/2026 10:02:17 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.domain;
+
+/**
+ * A summary of a latency distribution.
+ * 
+ * <p>
+ * All values other than the count are in microseconds.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public final class LatencySummary {
+
+  private final long count;
+  private final long min;
+  private final double mean;
+  private final long p50;
+  private final long p90;
+  private final long p99;
+  private final long max;
+
+  /**
+   * Constructor.
+   * 
+   * @param count
+   *          the number of values recorded
+   * @param min
+   *          the minimum value
+   * @param mean
+   *          the mean value
+   * @param p50
+   *          the 50th percentile value
+   * @param p90
+   *          the 90th percentile value
+   * @param p99
+   *          the 99th percentile value
+   * @param max
+   *          the maximum value
+   */
+  public LatencySummary(long count, long min, double mean, long p50, long p90, long p99,
+      long max) {
+    super();
+    this.count = count;
+    this.min = min;
+    this.mean = mean;
+    this.p50 = p50;
+    this.p90 = p90;
+    this.p99 = p99;
+    this.max = max;
+  }
+
+  @Override
+  public String toString() {
+    return "LatencySummary{count=" + count + ",min=" + min + ",mean=" + mean + ",p50=" + p50
+        + ",p90=" + p90 + ",p99=" + p99 + ",max=" + max + "}";
+  }
+
+  /**
+   * Get the number of values recorded.
+   * 
+   * @return the count
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Get the minimum value.
+   * 
+   * @return the minimum, in microseconds
+   */
+  public long getMin() {
+    return min;
+  }
+
+  /**
+   * Get the mean value.
+   * 
+   * @return the mean, in microseconds
+   */
+  public double getMean() {
+    return mean;
+  }
+
+  /**
+   * Get the 50th percentile (median) value.
+   * 
+   * @return the median, in microseconds
+   */
+  public long getP50() {
+    return p50;
+  }
+
+  /**
+   * Get the 90th percentile value.
+   * 
+   * @return the 90th percentile, in microseconds
+   */
+  public long getP90() {
+    return p90;
+  }
+
+  /**
+   * Get the 99th percentile value.
+   * 
+   * @return the 99th percentile, in microseconds
+   */
+  public long getP99() {
+    return p99;
+  }
+
+  /**
+   * Get the maximum value.
+   * 
+   * @return the maximum, in microseconds
+   */
+  public long getMax() {
+    return max;
+  }
+
+}
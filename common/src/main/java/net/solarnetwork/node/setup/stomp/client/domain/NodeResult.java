@@ -0,0 +1,102 @@
+/* ==================================================================
+ * NodeResult.java - 18/10/2026 9:20:18 AM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.domain;
+
+/**
+ * The result of an operation on a single node.
+ * 
+ * @param <T>
+ *          the result type
+ * @author matt
+ * @version 1.0
+ */
+public final class NodeResult<T> {
+
+  private final SetupNodeInfo node;
+  private final T result;
+  private final Throwable error;
+
+  /**
+   * Constructor.
+   * 
+   * @param node
+   *          the node
+   * @param result
+   *          the result, or {@literal null} if an error occurred
+   * @param error
+   *          the error, or {@literal null} if the operation succeeded
+   * @throws IllegalArgumentException
+   *           if {@code node} is {@literal null}
+   */
+  public NodeResult(SetupNodeInfo node, T result, Throwable error) {
+    super();
+    if (node == null) {
+      throw new IllegalArgumentException("The node argument must not be null.");
+    }
+    this.node = node;
+    this.result = result;
+    this.error = error;
+  }
+
+  @Override
+  public String toString() {
+    return "NodeResult{" + node + (error != null ? ",error=" + error : ",result=" + result) + "}";
+  }
+
+  /**
+   * Test if the operation succeeded.
+   * 
+   * @return {@literal true} if no error occurred
+   */
+  public boolean isSuccess() {
+    return error == null;
+  }
+
+  /**
+   * Get the node.
+   * 
+   * @return the node, never {@literal null}
+   */
+  public SetupNodeInfo getNode() {
+    return node;
+  }
+
+  /**
+   * Get the result.
+   * 
+   * @return the result, or {@literal null} if an error occurred
+   */
+  public T getResult() {
+    return result;
+  }
+
+  /**
+   * Get the error.
+   * 
+   * @return the error, or {@literal null} if the operation succeeded
+   */
+  public Throwable getError() {
+    return error;
+  }
+
+}
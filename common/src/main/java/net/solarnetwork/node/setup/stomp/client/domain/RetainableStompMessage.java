@@ -0,0 +1,81 @@
+/* ==================================================================
+ * RetainableStompMessage.java - 18/10/2026 11:02:15 AM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.domain;
+
+/**
+ * API for a reference-counted STOMP message backed by a shared (possibly pooled) buffer.
+ * 
+ * <p>
+ * A message passed to a message consumer is only valid for the duration of the consumer call. A
+ * consumer that needs to use the message afterwards must either call {@link #retain()} and later
+ * {@link #release()} (or {@link #close()}, for example with try-with-resources), or call
+ * {@link #detach()} to obtain an independent copy that does not need to be released.
+ * </p>
+ * 
+ * @param <T>
+ *          the body content type
+ * @author matt
+ * @version 1.0
+ */
+public interface RetainableStompMessage<T> extends StompMessage<T>, AutoCloseable {
+
+  /**
+   * Increase the reference count of the message by one.
+   * 
+   * @return this instance
+   */
+  RetainableStompMessage<T> retain();
+
+  /**
+   * Decrease the reference count of the message by one.
+   * 
+   * @return {@literal true} if the reference count reached {@literal 0} and the message has been
+   *         deallocated
+   */
+  boolean release();
+
+  /**
+   * Create an independent copy of this message.
+   * 
+   * <p>
+   * The returned message does not share any buffers with this message, and does not need to be
+   * released.
+   * </p>
+   * 
+   * @return the copy
+   */
+  StompMessage<T> detach();
+
+  /**
+   * Release the message.
+   * 
+   * <p>
+   * This is equivalent to calling {@link #release()}.
+   * </p>
+   */
+  @Override
+  default void close() {
+    release();
+  }
+
+}
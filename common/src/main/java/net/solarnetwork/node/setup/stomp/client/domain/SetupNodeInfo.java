@@ -0,0 +1,130 @@
+/* ==================================================================
+ * SetupNodeInfo.java - 18/10/2026 9:12:40 AM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.domain;
+
+import java.util.Objects;
+
+/**
+ * Connection information for a SolarNode Setup server.
+ * 
+ * <p>
+ * Equality is based on the host, port, and username only.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public final class SetupNodeInfo {
+
+  private final String host;
+  private final int port;
+  private final String username;
+  private final String password;
+
+  /**
+   * Constructor.
+   * 
+   * @param host
+   *          the server host name or IP address
+   * @param port
+   *          the server port
+   * @param username
+   *          the username to authenticate as
+   * @param password
+   *          the password to authenticate with
+   * @throws IllegalArgumentException
+   *           if {@code host} or {@code username} is {@literal null}
+   */
+  public SetupNodeInfo(String host, int port, String username, String password) {
+    super();
+    if (host == null) {
+      throw new IllegalArgumentException("The host argument must not be null.");
+    }
+    if (username == null) {
+      throw new IllegalArgumentException("The username argument must not be null.");
+    }
+    this.host = host;
+    this.port = port;
+    this.username = username;
+    this.password = password;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(host, port, username);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof SetupNodeInfo)) {
+      return false;
+    }
+    SetupNodeInfo other = (SetupNodeInfo) obj;
+    return host.equals(other.host) && port == other.port && username.equals(other.username);
+  }
+
+  @Override
+  public String toString() {
+    return username + "@" + host + ":" + port;
+  }
+
+  /**
+   * Get the host.
+   * 
+   * @return the host
+   */
+  public String getHost() {
+    return host;
+  }
+
+  /**
+   * Get the port.
+   * 
+   * @return the port
+   */
+  public int getPort() {
+    return port;
+  }
+
+  /**
+   * Get the username.
+   * 
+   * @return the username
+   */
+  public String getUsername() {
+    return username;
+  }
+
+  /**
+   * Get the password.
+   * 
+   * @return the password
+   */
+  public String getPassword() {
+    return password;
+  }
+
+}
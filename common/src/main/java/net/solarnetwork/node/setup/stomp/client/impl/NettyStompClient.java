@@ -24,11 +24,18 @@ package net.solarnetwork.node.setup.stomp.client.impl;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.Future;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.function.Consumer;
 
@@ -36,122 +43,428 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.stomp.DefaultStompFrame;
 import io.netty.handler.codec.stomp.StompCommand;
+import io.netty.handler.codec.stomp.StompFrame;
+import io.netty.handler.codec.stomp.StompHeaders;
 import io.netty.handler.codec.stomp.StompSubframeAggregator;
 import io.netty.handler.codec.stomp.StompSubframeDecoder;
 import io.netty.handler.codec.stomp.StompSubframeEncoder;
-import io.netty.handler.logging.LogLevel;
-import io.netty.handler.logging.LoggingHandler;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.PromiseCombiner;
 import net.solarnetwork.node.setup.stomp.client.domain.StompMessage;
+import net.solarnetwork.node.setup.stomp.client.service.StompFrameStreamConsumer;
 import net.solarnetwork.node.setup.stomp.client.service.StompSetupClient;
+import net.solarnetwork.node.setup.stomp.client.util.DestinationPatternIndex;
+import net.solarnetwork.node.setup.stomp.client.util.StompHeaderCodec;
 
 /**
  * Netty implementation of the client.
  * 
+ * <p>
+ * Clients created with a {@link Bootstrap} template share the event loop group configured on that
+ * template, and are assigned one of its event loops when connecting. Clients created without a
+ * template manage their own single-threaded event loop group.
+ * </p>
+ * 
+ * <p>
+ * Inbound frames are aggregated up to {@code maxFrameLength} bytes of content; larger frames cause
+ * the connection to be closed. When {@code streaming} is enabled, frames accepted by a registered
+ * {@link StompFrameStreamConsumer} are instead passed to that consumer in chunks as they arrive,
+ * without any size limit or aggregation.
+ * </p>
+ * 
+ * <p>
+ * Wire logging is only performed if a {@link NettyWireLogger} is configured. Likewise frames and
+ * bytes are only counted if a {@link StompClientMetrics} is configured.
+ * </p>
+ * 
+ * <p>
+ * Message consumers are called directly by the connection's I/O thread, unless a
+ * {@code dispatchExecutor} is configured. In that case each consumer is given its own bounded
+ * {@link QueuedMessageConsumer} queue, drained by the executor, so a slow consumer does not delay
+ * reading from the connection. With the default {@link QueuedMessageConsumer.OverflowPolicy#Block}
+ * policy, reading from the connection is paused while any consumer queue is full, without
+ * blocking the I/O thread, which might be shared with other connections.
+ * </p>
+ * 
+ * <p>
+ * STOMP heart-beats are negotiated when connecting, as configured by the
+ * {@code heartBeatSendMillis} and {@code heartBeatReceiveMillis} properties, and handled by a
+ * {@link StompHeartBeatHandler}. If the connection is closed other than by calling
+ * {@link #disconnect()}, for example because the server stopped sending heart-beats, all
+ * registered close listeners are notified.
+ * </p>
+ * 
+ * <p>
+ * Messages posted together with {@link #postAll(List)} are all written by a single event loop
+ * task, followed by a single flush. Flushes are also consolidated by a
+ * {@link FlushConsolidationHandler}, so messages posted by many threads at once are written to
+ * the network with one flush per event loop iteration, up to {@code flushConsolidationLimit}
+ * messages, rather than one each.
+ * </p>
+ * 
+ * <p>
+ * Posted messages are buffered in memory until written to the network. The client stops being
+ * {@link #isWritable() writable} once more than {@code writeBufferHighWaterMark} bytes are
+ * buffered, and is writable again once fewer than {@code writeBufferLowWaterMark} bytes are
+ * buffered. Senders can use {@link #whenWritable()} to wait for that without blocking.
+ * </p>
+ * 
  * @author matt
- * @version 1.0
+ * @version 1.6
  */
 public class NettyStompClient implements StompSetupClient {
 
   /** The UTF-8 character set. */
   public static final Charset UTF8 = Charset.forName("UTF-8");
 
+  /**
+   * The {@code maxFrameLength} property default value.
+   */
+  public static final int DEFAULT_MAX_FRAME_LENGTH = 1024 * 1024;
+
+  /**
+   * The {@code heartBeatSendMillis} and {@code heartBeatReceiveMillis} property default value.
+   */
+  public static final long DEFAULT_HEART_BEAT_MILLIS = 10_000L;
+
+  /**
+   * The {@code writeBufferLowWaterMark} property default value.
+   */
+  public static final int DEFAULT_WRITE_BUFFER_LOW_WATER_MARK = 32 * 1024;
+
+  /**
+   * The {@code writeBufferHighWaterMark} property default value.
+   */
+  public static final int DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK = 64 * 1024;
+
+  /**
+   * The {@code flushConsolidationLimit} property default value.
+   */
+  public static final int DEFAULT_FLUSH_CONSOLIDATION_LIMIT = FlushConsolidationHandler
+      .DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES;
+
+  /** The pipeline name of the flush consolidation handler. */
+  public static final String FLUSH_CONSOLIDATION_HANDLER_NAME = "flushConsolidation";
+
+  /** The pipeline name of the writability handler. */
+  public static final String WRITABILITY_HANDLER_NAME = "writability";
+
+  /** The pipeline name of the STOMP heart-beat handler. */
+  public static final String HEART_BEAT_HANDLER_NAME = "stompHeartBeat";
+
+  /** The pipeline name of the STOMP client handler. */
+  public static final String CLIENT_HANDLER_NAME = "stompSetupClient";
+
   private static final Logger log = LoggerFactory.getLogger(NettyStompClient.class);
 
   private final String host;
   private final int port;
   private final Set<Consumer<StompMessage<String>>> consumers = new CopyOnWriteArraySet<>();
+  private final DestinationPatternIndex<Consumer<StompMessage<String>>> destinationConsumers;
+  private final Set<StompFrameStreamConsumer> streamConsumers = new CopyOnWriteArraySet<>();
+  private final Set<Consumer<Throwable>> closeListeners = new CopyOnWriteArraySet<>();
+  private final ReadFlowControl readFlowControl = new ReadFlowControl();
+  private final ConcurrentMap<Consumer<StompMessage<String>>,
+      QueuedMessageConsumer> queuedConsumers;
+
+  private final Bootstrap bootstrap;
+
+  private boolean directBuffers = true;
+  private int maxFrameLength = DEFAULT_MAX_FRAME_LENGTH;
+  private boolean streaming = false;
+  private NettyWireLogger wireLogger;
+  private StompClientMetrics metrics;
+  private Executor dispatchExecutor;
+  private int dispatchQueueCapacity = QueuedMessageConsumer.DEFAULT_CAPACITY;
+  private QueuedMessageConsumer.OverflowPolicy dispatchOverflowPolicy;
+  private long heartBeatSendMillis = DEFAULT_HEART_BEAT_MILLIS;
+  private long heartBeatReceiveMillis = DEFAULT_HEART_BEAT_MILLIS;
+  private int writeBufferLowWaterMark = DEFAULT_WRITE_BUFFER_LOW_WATER_MARK;
+  private int writeBufferHighWaterMark = DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK;
+  private int flushConsolidationLimit = DEFAULT_FLUSH_CONSOLIDATION_LIMIT;
 
   private EventLoopGroup workerGroup;
   private Channel channel;
 
   /**
    * Constructor.
+   * 
+   * <p>
+   * The client will manage its own event loop group.
+   * </p>
+   * 
+   * @param host
+   *          the host to connect to
+   * @param port
+   *          the port to connect to
    */
   public NettyStompClient(String host, int port) {
+    this(null, host, port);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param bootstrap
+   *          the bootstrap template to connect with, configured with a (shared) event loop group,
+   *          channel type, and options; or {@literal null} for the client to manage its own event
+   *          loop group
+   * @param host
+   *          the host to connect to
+   * @param port
+   *          the port to connect to
+   */
+  public NettyStompClient(Bootstrap bootstrap, String host, int port) {
     super();
+    this.bootstrap = bootstrap;
     this.host = host;
     this.port = port;
+    this.queuedConsumers = new ConcurrentHashMap<>(4);
+    this.destinationConsumers = new DestinationPatternIndex<>();
+    this.dispatchOverflowPolicy = QueuedMessageConsumer.OverflowPolicy.Block;
   }
 
   /**
    * Shut the client down.
+   * 
+   * <p>
+   * Any active connection will be closed. A shared event loop group will not be affected.
+   * </p>
    */
   public synchronized void shutdown() {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
     if (workerGroup != null && !workerGroup.isShuttingDown()) {
       workerGroup.shutdownGracefully();
       workerGroup = null;
     }
-    if (channel != null) {
-      channel = null;
+  }
+
+  private synchronized Bootstrap newBootstrap() {
+    if (bootstrap != null) {
+      return bootstrap.clone();
     }
+    final ThreadFactory tf = new DefaultThreadFactory("STOMP-Setup-Client:" + port, true);
+    workerGroup = new NioEventLoopGroup(1, tf);
+    Bootstrap b = new Bootstrap();
+    b.group(workerGroup);
+    b.channel(NioSocketChannel.class);
+    b.option(ChannelOption.SO_KEEPALIVE, true);
+    return b;
+  }
+
+  /**
+   * Adapt a Netty future to a {@link CompletableFuture}.
+   * 
+   * @param future
+   *          the Netty future to adapt
+   * @return the completable future, completed when {@code future} completes
+   */
+  static CompletableFuture<Void> completableFuture(io.netty.util.concurrent.Future<?> future) {
+    final CompletableFuture<Void> result = new CompletableFuture<>();
+    future.addListener(f -> {
+      if (f.isSuccess()) {
+        result.complete(null);
+      } else if (f.isCancelled()) {
+        result.cancel(false);
+      } else {
+        result.completeExceptionally(f.cause());
+      }
+    });
+    return result;
   }
 
   @Override
-  public Future<?> connect() {
+  public CompletableFuture<Void> connect() {
     shutdown();
-    final ThreadFactory tf = new DefaultThreadFactory("STOMP-Setup-Client:" + port, true);
-    workerGroup = new NioEventLoopGroup(tf);
     try {
-      Bootstrap b = new Bootstrap();
-      b.group(workerGroup);
-      b.channel(NioSocketChannel.class);
-      b.option(ChannelOption.SO_KEEPALIVE, true);
+      Bootstrap b = newBootstrap();
+      b.option(ChannelOption.WRITE_BUFFER_WATER_MARK,
+          new WriteBufferWaterMark(writeBufferLowWaterMark, writeBufferHighWaterMark));
       b.handler(new StompChannelInitializer());
 
       ChannelFuture future = b.connect(host, port);
       future.addListener((ChannelFutureListener) f -> {
         if (f.isSuccess()) {
-          NettyStompClient.this.channel = f.channel();
-          NettyStompClient.this.channel.closeFuture().addListener(closeFuture -> {
-            shutdown();
+          final Channel ch = f.channel();
+          synchronized (NettyStompClient.this) {
+            NettyStompClient.this.channel = ch;
+          }
+          ch.closeFuture().addListener(closeFuture -> {
+            channelClosed(ch);
           });
         } else {
           Throwable t = f.cause();
-          log.error("Error connecting to STOMP setup server {}:{}: {}", this, host, port,
+          log.error("Error connecting to STOMP setup server {}:{}: {}", host, port,
               (t != null ? t.toString() : "?"));
           shutdown();
         }
       });
-      return future;
+      return completableFuture(future);
     } catch (RuntimeException e) {
       shutdown();
-      log.error("Error connecting to STOMP setup server {}:{}: {}", this, host, port, e.toString());
+      log.error("Error connecting to STOMP setup server {}:{}: {}", host, port, e.toString());
       String msg = "Error connecting to STOMP setup server " + host + ":" + port + ": "
           + e.getMessage();
       throw new RuntimeException(msg, e);
     }
   }
 
+  private void channelClosed(Channel ch) {
+    synchronized (this) {
+      if (this.channel != ch) {
+        return;
+      }
+      shutdown();
+    }
+    final Throwable cause = ch.attr(StompHeartBeatHandler.CLOSE_CAUSE).get();
+    log.info("Connection to STOMP setup server {}:{} closed{}", host, port,
+        (cause != null ? ": " + cause.getMessage() : "."));
+    for (Consumer<Throwable> listener : closeListeners) {
+      try {
+        listener.accept(cause);
+      } catch (RuntimeException e) {
+        log.warn("Close listener {} threw exception", listener, e);
+      }
+    }
+  }
+
   private class StompChannelInitializer extends ChannelInitializer<SocketChannel> {
 
     @Override
     public void initChannel(SocketChannel ch) throws Exception {
-      if (true) { // FIXME add toggle
-        ch.pipeline().addLast(
-            new LoggingHandler("net.solarnetwork.node.setup.stomp.client.WIRE", LogLevel.TRACE));
+      if (readFlowControl.isPaused()) {
+        ch.config().setAutoRead(false);
+      }
+      final ChannelPipeline p = ch.pipeline();
+      if (flushConsolidationLimit > 1) {
+        p.addLast(FLUSH_CONSOLIDATION_HANDLER_NAME,
+            new FlushConsolidationHandler(flushConsolidationLimit, true));
+      }
+      p.addLast(WRITABILITY_HANDLER_NAME, new WritabilityHandler());
+      p.addLast(new StompSubframeDecoder());
+      if (!streaming) {
+        p.addLast(new StompSubframeAggregator(maxFrameLength));
+      }
+      p.addLast(new StompSubframeEncoder());
+      p.addLast(HEART_BEAT_HANDLER_NAME,
+          new StompHeartBeatHandler(heartBeatSendMillis, heartBeatReceiveMillis));
+      p.addLast(CLIENT_HANDLER_NAME, new StompSetupClientHandler(consumers, destinationConsumers,
+          streamConsumers, maxFrameLength));
+      final NettyWireLogger wl = wireLogger;
+      if (wl != null) {
+        wl.register(ch);
+      }
+      final StompClientMetrics m = metrics;
+      if (m != null) {
+        m.register(ch);
       }
-      // @formatter:off
-      ch.pipeline().addLast(
-          new StompSubframeDecoder(),
-          new StompSubframeAggregator(4096),
-          new StompSubframeEncoder(),
-          new StompSetupClientHandler(consumers));
-      // @formatter:on
     }
   }
 
+  /**
+   * Complete the futures returned by {@link #whenWritable()} on writability changes.
+   * 
+   * <p>
+   * Each channel has its own handler, so waiters are only ever completed by events from the
+   * channel they were waiting on.
+   * </p>
+   */
+  private static final class WritabilityHandler extends ChannelInboundHandlerAdapter {
+
+    private final Queue<CompletableFuture<Void>> waiters = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+      if (ctx.channel().isWritable()) {
+        complete(null);
+      }
+      super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+      complete(new IOException("Connection closed."));
+      super.channelInactive(ctx);
+    }
+
+    private CompletableFuture<Void> whenWritable(Channel ch) {
+      final CompletableFuture<Void> result = new CompletableFuture<>();
+      waiters.add(result);
+      // the channel might have changed state before the future was added
+      if (!ch.isActive()) {
+        complete(new IOException("Connection closed."));
+      } else if (ch.isWritable()) {
+        complete(null);
+      }
+      return result;
+    }
+
+    private void complete(Throwable t) {
+      CompletableFuture<Void> f;
+      while ((f = waiters.poll()) != null) {
+        if (t == null) {
+          f.complete(null);
+        } else {
+          f.completeExceptionally(t);
+        }
+      }
+    }
+
+  }
+
+  @Override
+  public boolean isWritable() {
+    final Channel ch = this.channel;
+    return (ch != null && ch.isActive() && ch.isWritable());
+  }
+
+  @Override
+  public CompletableFuture<Void> whenWritable() {
+    final Channel ch = this.channel;
+    if (ch == null || !ch.isActive()) {
+      CompletableFuture<Void> f = new CompletableFuture<>();
+      f.completeExceptionally(new RuntimeException("Not connected."));
+      return f;
+    }
+    if (ch.isWritable()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    final WritabilityHandler h = (WritabilityHandler) ch.pipeline().get(WRITABILITY_HANDLER_NAME);
+    if (h == null) {
+      // pipeline torn down after closing
+      CompletableFuture<Void> f = new CompletableFuture<>();
+      f.completeExceptionally(new IOException("Connection closed."));
+      return f;
+    }
+    return h.whenWritable(ch);
+  }
+
   @Override
   public boolean isConnected() {
     Channel ch = this.channel;
@@ -160,13 +473,18 @@ public class NettyStompClient implements StompSetupClient {
 
   @Override
   public void disconnect() {
-    Channel ch = this.channel;
-    if (ch == null || !ch.isOpen()) {
-      return;
+    final Channel ch;
+    synchronized (this) {
+      ch = this.channel;
+      if (ch == null || !ch.isOpen()) {
+        return;
+      }
+      // clear first, so closing the channel is not reported to close listeners
+      this.channel = null;
     }
     DefaultStompFrame msg = new DefaultStompFrame(StompCommand.DISCONNECT);
     try {
-      ChannelFuture f = sendAndFlush(msg);
+      ChannelFuture f = sendAndFlush(ch, msg);
       try {
         f.await(10_000);
       } catch (InterruptedException e) {
@@ -174,64 +492,598 @@ public class NettyStompClient implements StompSetupClient {
       }
       ch.close();
     } finally {
-      this.channel = null;
       shutdown();
     }
   }
 
   @Override
   public void addMessageConsumer(Consumer<StompMessage<String>> consumer) {
-    consumers.add(consumer);
+    consumers.add(dispatchConsumer(consumer));
+  }
+
+  @Override
+  public void addMessageConsumer(String destinationPattern,
+      Consumer<StompMessage<String>> consumer) {
+    destinationConsumers.add(destinationPattern, dispatchConsumer(consumer));
+  }
+
+  private Consumer<StompMessage<String>> dispatchConsumer(Consumer<StompMessage<String>> consumer) {
+    final Executor executor = this.dispatchExecutor;
+    if (executor == null) {
+      return consumer;
+    }
+    return queuedConsumers.computeIfAbsent(consumer, k -> new QueuedMessageConsumer(k, executor,
+        dispatchQueueCapacity, dispatchOverflowPolicy, readFlowControl));
+  }
+
+  /**
+   * Pause reading from the connection while any consumer queue is full.
+   */
+  private final class ReadFlowControl implements QueuedMessageConsumer.FlowControl {
+
+    private int pausedCount;
+
+    @Override
+    public synchronized void pause() {
+      if (++pausedCount == 1) {
+        setAutoRead(false);
+      }
+    }
+
+    @Override
+    public synchronized void resume() {
+      if (--pausedCount == 0) {
+        setAutoRead(true);
+      }
+    }
+
+    private synchronized boolean isPaused() {
+      return pausedCount > 0;
+    }
+
+    private void setAutoRead(boolean autoRead) {
+      final Channel ch = channel;
+      if (ch != null) {
+        ch.config().setAutoRead(autoRead);
+      }
+    }
+
   }
 
   @Override
   public void removeMessageConsumer(Consumer<StompMessage<String>> consumer) {
+    QueuedMessageConsumer q = queuedConsumers.remove(consumer);
+    if (q != null) {
+      consumers.remove(q);
+      destinationConsumers.removeAll(q);
+      q.close();
+    }
     consumers.remove(consumer);
+    destinationConsumers.removeAll(consumer);
+  }
+
+  @Override
+  public void addCloseListener(Consumer<Throwable> listener) {
+    closeListeners.add(listener);
+  }
+
+  @Override
+  public void removeCloseListener(Consumer<Throwable> listener) {
+    closeListeners.remove(listener);
+  }
+
+  /**
+   * Get the heart-beat handler of the active connection.
+   * 
+   * <p>
+   * The handler provides the negotiated heart-beat intervals and the approximate round trip time
+   * of the connection.
+   * </p>
+   * 
+   * @return the handler, or {@literal null} if not connected
+   */
+  public StompHeartBeatHandler getHeartBeatHandler() {
+    final Channel ch = this.channel;
+    if (ch == null) {
+      return null;
+    }
+    return (StompHeartBeatHandler) ch.pipeline().get(HEART_BEAT_HANDLER_NAME);
+  }
+
+  /**
+   * Get the queued message consumers.
+   * 
+   * <p>
+   * This can be used to monitor the queue depth of each consumer added while a
+   * {@code dispatchExecutor} was configured.
+   * </p>
+   * 
+   * @return the queued consumers, never {@literal null}
+   */
+  public Collection<QueuedMessageConsumer> getQueuedMessageConsumers() {
+    return new ArrayList<>(queuedConsumers.values());
+  }
+
+  @Override
+  public void addFrameStreamConsumer(StompFrameStreamConsumer consumer) {
+    streamConsumers.add(consumer);
+  }
+
+  @Override
+  public void removeFrameStreamConsumer(StompFrameStreamConsumer consumer) {
+    streamConsumers.remove(consumer);
+  }
+
+  @Override
+  public CompletableFuture<Void> post(StompMessage<?> message) {
+    Channel ch = this.channel;
+    if (ch == null || !ch.isOpen()) {
+      CompletableFuture<Void> f = new CompletableFuture<>();
+      f.completeExceptionally(new RuntimeException("Not connected."));
+      return f;
+    }
+    return completableFuture(sendAndFlush(ch, createFrame(ch.alloc(), message)));
   }
 
   @Override
-  public Future<?> post(StompMessage<?> message) {
+  public CompletableFuture<Void> postAll(List<? extends StompMessage<?>> messages) {
+    if (messages == null || messages.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
     Channel ch = this.channel;
     if (ch == null || !ch.isOpen()) {
       CompletableFuture<Void> f = new CompletableFuture<>();
       f.completeExceptionally(new RuntimeException("Not connected."));
       return f;
     }
-    DefaultStompFrame msg = new DefaultStompFrame(
-        StompCommand.valueOf(message.getCommand().getValue()));
+    final List<StompFrame> frames = new ArrayList<>(messages.size());
+    for (StompMessage<?> message : messages) {
+      frames.add(createFrame(ch.alloc(), message));
+    }
+    return completableFuture(sendAllAndFlush(ch, frames));
+  }
+
+  /**
+   * Create a STOMP frame from a message.
+   * 
+   * <p>
+   * Header values are escaped, other than for {@literal CONNECT} and {@literal STOMP} frames, and
+   * a {@literal content-length} header is added if the message has a body.
+   * </p>
+   * 
+   * @param alloc
+   *          the allocator to encode the message body with
+   * @param message
+   *          the message
+   * @return the frame; the caller is responsible for releasing it
+   */
+  public StompFrame createFrame(ByteBufAllocator alloc, StompMessage<?> message) {
+    final StompCommand command = StompCommand.valueOf(message.getCommand().getValue());
+    final boolean escape = (command != StompCommand.CONNECT && command != StompCommand.STOMP);
+    final ByteBuf content = encodeBody(alloc, message);
+    DefaultStompFrame msg = new DefaultStompFrame(command, content);
     if (message.getHeaders() != null) {
       for (java.util.Map.Entry<String, List<String>> e : message.getHeaders().entrySet()) {
         List<String> values = e.getValue();
         if (values != null) {
           for (String v : values) {
-            msg.headers().add(e.getKey(), encodeHeaderValue(v));
+            msg.headers().add(e.getKey(), escape ? StompHeaderCodec.escape(v) : v);
           }
         }
       }
     }
-    if (message.getBody() != null) {
-      msg.content().writeBytes(message.getContent());
+    if (content.isReadable()) {
+      msg.headers().set(StompHeaders.CONTENT_LENGTH, String.valueOf(content.readableBytes()));
     }
-    return sendAndFlush(msg);
+    return msg;
   }
 
-  private static String encodeHeaderValue(String v) {
-    // @formatter:off
-    return v.replaceAll("\\\\", "\\\\\\\\")
-        .replaceAll("\r", "\\\\r")
-        .replaceAll("\n", "\\\\n")
-        .replaceAll(":", "\\\\c");
-    // @formatter:on
+  /**
+   * Encode a message body into a buffer.
+   * 
+   * <p>
+   * {@link CharSequence} bodies are UTF-8 encoded in a single pass directly into a pooled buffer,
+   * without creating an intermediate {@code byte[]}. Other bodies are wrapped from
+   * {@link StompMessage#getContent()} without copying.
+   * </p>
+   * 
+   * @param alloc
+   *          the allocator to use
+   * @param message
+   *          the message to encode the body of
+   * @return the buffer, never {@literal null}
+   */
+  private ByteBuf encodeBody(ByteBufAllocator alloc, StompMessage<?> message) {
+    final Object body = message.getBody();
+    if (body == null) {
+      return Unpooled.EMPTY_BUFFER;
+    }
+    if (body instanceof CharSequence) {
+      final CharSequence cs = (CharSequence) body;
+      final int len = ByteBufUtil.utf8Bytes(cs);
+      final ByteBuf buf = (directBuffers ? alloc.directBuffer(len) : alloc.heapBuffer(len));
+      ByteBufUtil.writeUtf8(buf, cs);
+      return buf;
+    }
+    final byte[] data = message.getContent();
+    return (data != null ? Unpooled.wrappedBuffer(data) : Unpooled.EMPTY_BUFFER);
   }
 
-  private ChannelFuture sendAndFlush(Object message) {
-    if (this.channel == null) {
-      return null;
+  private static ChannelFuture sendAndFlush(Channel ch, Object message) {
+    if (ch.isActive()) {
+      return ch.writeAndFlush(message);
+    }
+    ReferenceCountUtil.release(message);
+    return ch.newFailedFuture(new IOException("Channel is closed!"));
+  }
+
+  private static ChannelFuture sendAllAndFlush(Channel ch, List<?> messages) {
+    if (!ch.isActive()) {
+      releaseAll(messages);
+      return ch.newFailedFuture(new IOException("Channel is closed!"));
     }
-    if (this.channel.isActive()) {
-      return this.channel.writeAndFlush(message);
+    final ChannelPromise result = ch.newPromise();
+    final EventLoop loop = ch.eventLoop();
+    if (loop.inEventLoop()) {
+      writeAllAndFlush(ch, messages, result);
+    } else {
+      try {
+        // one task for the whole list, rather than one per write and another for the flush
+        loop.execute(() -> writeAllAndFlush(ch, messages, result));
+      } catch (RejectedExecutionException e) {
+        releaseAll(messages);
+        result.setFailure(e);
+      }
+    }
+    return result;
+  }
+
+  private static void writeAllAndFlush(Channel ch, List<?> messages, ChannelPromise result) {
+    final PromiseCombiner combiner = new PromiseCombiner(ch.eventLoop());
+    for (Object msg : messages) {
+      combiner.add(ch.write(msg));
+    }
+    ch.flush();
+    combiner.finish(result);
+  }
+
+  private static void releaseAll(List<?> messages) {
+    for (Object msg : messages) {
+      ReferenceCountUtil.release(msg);
     }
-    return this.channel.newFailedFuture(new IOException("Channel is closed!"));
+  }
+
+  /**
+   * Get the direct buffers setting.
+   * 
+   * @return {@literal true} if outbound message bodies are encoded into direct buffers, or
+   *         {@literal false} for heap buffers; defaults to {@literal true}
+   */
+  public boolean isDirectBuffers() {
+    return directBuffers;
+  }
+
+  /**
+   * Set the direct buffers setting.
+   * 
+   * @param directBuffers
+   *          {@literal true} to encode outbound message bodies into direct buffers, or
+   *          {@literal false} for heap buffers
+   */
+  public void setDirectBuffers(boolean directBuffers) {
+    this.directBuffers = directBuffers;
+  }
+
+  /**
+   * Get the maximum frame length.
+   * 
+   * @return the maximum number of content bytes allowed in an aggregated inbound frame; defaults
+   *         to {@link #DEFAULT_MAX_FRAME_LENGTH}
+   */
+  public int getMaxFrameLength() {
+    return maxFrameLength;
+  }
+
+  /**
+   * Set the maximum frame length.
+   * 
+   * <p>
+   * This applies to connections established after the setting is changed.
+   * </p>
+   * 
+   * @param maxFrameLength
+   *          the maximum number of content bytes allowed in an aggregated inbound frame
+   */
+  public void setMaxFrameLength(int maxFrameLength) {
+    this.maxFrameLength = maxFrameLength;
+  }
+
+  /**
+   * Get the streaming mode.
+   * 
+   * @return {@literal true} if frames accepted by a {@link StompFrameStreamConsumer} are streamed
+   *         rather than aggregated; defaults to {@literal false}
+   */
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  /**
+   * Set the streaming mode.
+   * 
+   * <p>
+   * This applies to connections established after the setting is changed.
+   * </p>
+   * 
+   * @param streaming
+   *          {@literal true} to stream frames accepted by a {@link StompFrameStreamConsumer}
+   *          rather than aggregating them
+   */
+  public void setStreaming(boolean streaming) {
+    this.streaming = streaming;
+  }
+
+  /**
+   * Get the wire logger.
+   * 
+   * @return the wire logger, or {@literal null} if wire logging is not supported
+   */
+  public NettyWireLogger getWireLogger() {
+    return wireLogger;
+  }
+
+  /**
+   * Set the wire logger.
+   * 
+   * <p>
+   * This applies to connections established after the setting is changed.
+   * </p>
+   * 
+   * @param wireLogger
+   *          the wire logger to use, or {@literal null} to disable wire logging
+   */
+  public void setWireLogger(NettyWireLogger wireLogger) {
+    this.wireLogger = wireLogger;
+  }
+
+  /**
+   * Get the metrics.
+   * 
+   * @return the metrics to count frames and bytes with, or {@literal null} if not counted
+   */
+  public StompClientMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Set the metrics.
+   * 
+   * <p>
+   * This applies to connections established after the setting is changed.
+   * </p>
+   * 
+   * @param metrics
+   *          the metrics to count frames and bytes with, or {@literal null} to not count them
+   */
+  public void setMetrics(StompClientMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Get the dispatch executor.
+   * 
+   * @return the executor used to call message consumers, or {@literal null} if consumers are
+   *         called directly by the I/O thread
+   */
+  public Executor getDispatchExecutor() {
+    return dispatchExecutor;
+  }
+
+  /**
+   * Set the dispatch executor.
+   * 
+   * <p>
+   * This applies to consumers added after the setting is changed.
+   * </p>
+   * 
+   * @param dispatchExecutor
+   *          the executor to call message consumers with, or {@literal null} to call consumers
+   *          directly from the I/O thread
+   */
+  public void setDispatchExecutor(Executor dispatchExecutor) {
+    this.dispatchExecutor = dispatchExecutor;
+  }
+
+  /**
+   * Get the dispatch queue capacity.
+   * 
+   * @return the maximum number of messages queued per consumer; defaults to
+   *         {@link QueuedMessageConsumer#DEFAULT_CAPACITY}
+   */
+  public int getDispatchQueueCapacity() {
+    return dispatchQueueCapacity;
+  }
+
+  /**
+   * Set the dispatch queue capacity.
+   * 
+   * <p>
+   * This applies to consumers added after the setting is changed.
+   * </p>
+   * 
+   * @param dispatchQueueCapacity
+   *          the maximum number of messages to queue per consumer
+   */
+  public void setDispatchQueueCapacity(int dispatchQueueCapacity) {
+    this.dispatchQueueCapacity = dispatchQueueCapacity;
+  }
+
+  /**
+   * Get the dispatch overflow policy.
+   * 
+   * @return the policy applied when a consumer queue is full; defaults to
+   *         {@link QueuedMessageConsumer.OverflowPolicy#Block}
+   */
+  public QueuedMessageConsumer.OverflowPolicy getDispatchOverflowPolicy() {
+    return dispatchOverflowPolicy;
+  }
+
+  /**
+   * Set the dispatch overflow policy.
+   * 
+   * <p>
+   * This applies to consumers added after the setting is changed.
+   * </p>
+   * 
+   * @param dispatchOverflowPolicy
+   *          the policy to apply when a consumer queue is full
+   * @throws IllegalArgumentException
+   *           if {@code dispatchOverflowPolicy} is {@literal null}
+   */
+  public void setDispatchOverflowPolicy(
+      QueuedMessageConsumer.OverflowPolicy dispatchOverflowPolicy) {
+    if (dispatchOverflowPolicy == null) {
+      throw new IllegalArgumentException("The dispatchOverflowPolicy argument must not be null.");
+    }
+    this.dispatchOverflowPolicy = dispatchOverflowPolicy;
+  }
+
+  /**
+   * Get the heart-beat send interval.
+   * 
+   * @return the smallest interval, in milliseconds, the client can send heart-beats at, or
+   *         {@literal 0} for none; defaults to {@link #DEFAULT_HEART_BEAT_MILLIS}
+   */
+  public long getHeartBeatSendMillis() {
+    return heartBeatSendMillis;
+  }
+
+  /**
+   * Set the heart-beat send interval.
+   * 
+   * <p>
+   * This applies to connections established after the setting is changed.
+   * </p>
+   * 
+   * @param heartBeatSendMillis
+   *          the smallest interval, in milliseconds, the client can send heart-beats at, or
+   *          {@literal 0} for none
+   */
+  public void setHeartBeatSendMillis(long heartBeatSendMillis) {
+    this.heartBeatSendMillis = heartBeatSendMillis;
+  }
+
+  /**
+   * Get the heart-beat receive interval.
+   * 
+   * @return the desired interval, in milliseconds, to receive heart-beats from the server at, or
+   *         {@literal 0} for none; defaults to {@link #DEFAULT_HEART_BEAT_MILLIS}
+   */
+  public long getHeartBeatReceiveMillis() {
+    return heartBeatReceiveMillis;
+  }
+
+  /**
+   * Set the heart-beat receive interval.
+   * 
+   * <p>
+   * This applies to connections established after the setting is changed.
+   * </p>
+   * 
+   * @param heartBeatReceiveMillis
+   *          the desired interval, in milliseconds, to receive heart-beats from the server at, or
+   *          {@literal 0} for none
+   */
+  public void setHeartBeatReceiveMillis(long heartBeatReceiveMillis) {
+    this.heartBeatReceiveMillis = heartBeatReceiveMillis;
+  }
+
+  /**
+   * Get the write buffer low water mark.
+   * 
+   * @return the number of buffered outbound bytes below which the client becomes writable again;
+   *         defaults to {@link #DEFAULT_WRITE_BUFFER_LOW_WATER_MARK}
+   */
+  public int getWriteBufferLowWaterMark() {
+    return writeBufferLowWaterMark;
+  }
+
+  /**
+   * Get the write buffer high water mark.
+   * 
+   * @return the number of buffered outbound bytes above which the client is no longer writable;
+   *         defaults to {@link #DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK}
+   */
+  public int getWriteBufferHighWaterMark() {
+    return writeBufferHighWaterMark;
+  }
+
+  /**
+   * Set the write buffer low and high water marks.
+   * 
+   * <p>
+   * This applies to connections established after the setting is changed.
+   * </p>
+   * 
+   * @param writeBufferLowWaterMark
+   *          the number of buffered outbound bytes below which the client becomes writable again
+   * @param writeBufferHighWaterMark
+   *          the number of buffered outbound bytes above which the client is no longer writable
+   * @throws IllegalArgumentException
+   *           if either argument is less than {@literal 0} or {@code writeBufferLowWaterMark} is
+   *           more than {@code writeBufferHighWaterMark}
+   */
+  public void setWriteBufferWaterMark(int writeBufferLowWaterMark, int writeBufferHighWaterMark) {
+    validateWriteBufferWaterMark(writeBufferLowWaterMark, writeBufferHighWaterMark);
+    this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+    this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+  }
+
+  /**
+   * Validate a pair of write buffer water marks.
+   * 
+   * @param low
+   *          the low water mark
+   * @param high
+   *          the high water mark
+   * @throws IllegalArgumentException
+   *           if either argument is less than {@literal 0} or {@code low} is more than
+   *           {@code high}
+   */
+  static void validateWriteBufferWaterMark(int low, int high) {
+    if (low < 0) {
+      throw new IllegalArgumentException(
+          "The writeBufferLowWaterMark argument must not be negative.");
+    }
+    if (high < low) {
+      throw new IllegalArgumentException(
+          "The writeBufferHighWaterMark argument must not be less than writeBufferLowWaterMark.");
+    }
+  }
+
+  /**
+   * Get the flush consolidation limit.
+   * 
+   * @return the maximum number of flushes consolidated into one; defaults to
+   *         {@link #DEFAULT_FLUSH_CONSOLIDATION_LIMIT}
+   */
+  public int getFlushConsolidationLimit() {
+    return flushConsolidationLimit;
+  }
+
+  /**
+   * Set the flush consolidation limit.
+   * 
+   * <p>
+   * This applies to connections established after the setting is changed.
+   * </p>
+   * 
+   * @param flushConsolidationLimit
+   *          the maximum number of flushes to consolidate into one, or {@literal 1} or less to
+   *          flush every message immediately
+   */
+  public void setFlushConsolidationLimit(int flushConsolidationLimit) {
+    this.flushConsolidationLimit = flushConsolidationLimit;
   }
 
 }
@@ -23,29 +23,37 @@
 package net.solarnetwork.node.setup.stomp.client.impl;
 
 import java.nio.charset.Charset;
-import java.util.Iterator;
-import java.util.Map.Entry;
 
-import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.stomp.DefaultStompFrame;
 import io.netty.handler.codec.stomp.StompFrame;
 import io.netty.handler.codec.stomp.StompHeaders;
 import net.solarnetwork.node.setup.stomp.StompCommand;
+import net.solarnetwork.node.setup.stomp.client.domain.RetainableStompMessage;
 import net.solarnetwork.node.setup.stomp.client.domain.StompMessage;
 
 /**
  * Netty implementation of {@link StompMessage}.
  * 
+ * <p>
+ * The message wraps the given frame without copying it, and shares the frame's reference count.
+ * Creating a message does not retain the frame: the creator remains responsible for the reference
+ * it holds, and consumers that keep the message beyond the scope they received it in must follow
+ * the {@link RetainableStompMessage} contract.
+ * </p>
+ * 
  * @param <T>
  *          message type
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
-public abstract class NettyStompMessage<T> implements StompMessage<T> {
+public abstract class NettyStompMessage<T> implements RetainableStompMessage<T> {
 
   protected final StompFrame frame;
+  private MultiValueMap<String, String> headers;
 
   /**
    * Constructor.
@@ -60,7 +68,50 @@ public abstract class NettyStompMessage<T> implements StompMessage<T> {
     if (frame == null) {
       throw new IllegalArgumentException("The frame argument must not be null.");
     }
-    this.frame = frame.copy();
+    this.frame = frame;
+  }
+
+  /**
+   * Create a new message instance of the same type as this message, for a different frame.
+   * 
+   * @param frame
+   *          the frame
+   * @return the new message
+   */
+  protected abstract NettyStompMessage<T> newMessage(StompFrame frame);
+
+  @Override
+  public NettyStompMessage<T> retain() {
+    frame.retain();
+    return this;
+  }
+
+  @Override
+  public boolean release() {
+    return frame.release();
+  }
+
+  @Override
+  public NettyStompMessage<T> detach() {
+    DefaultStompFrame copy = new DefaultStompFrame(frame.command(),
+        Unpooled.copiedBuffer(frame.content()));
+    copy.headers().set(frame.headers());
+    return newMessage(copy);
+  }
+
+  /**
+   * Get the message content buffer, without copying.
+   * 
+   * <p>
+   * The returned buffer is only valid while this message has not been released. Callers should not
+   * modify the buffer's reader or writer indexes; use {@link ByteBuf#duplicate()} if that is
+   * necessary.
+   * </p>
+   * 
+   * @return the content buffer, never {@literal null}
+   */
+  public ByteBuf getContentBuffer() {
+    return frame.content();
   }
 
   @Override
@@ -68,16 +119,24 @@ public abstract class NettyStompMessage<T> implements StompMessage<T> {
     return StompCommand.valueOf(frame.command().toString());
   }
 
+  /**
+   * {@inheritDoc}
+   * 
+   * <p>
+   * The returned map is a read-only view of the frame headers, created once and cached. Header
+   * values are unescaped as required by the frame command.
+   * </p>
+   */
   @Override
   public MultiValueMap<String, String> getHeaders() {
-    StompHeaders h = frame.headers();
-    if (h == null || h.isEmpty()) {
-      return null;
-    }
-    LinkedMultiValueMap<String, String> m = new LinkedMultiValueMap<>(h.size());
-    for (Iterator<Entry<String, String>> itr = h.iteratorAsString(); itr.hasNext();) {
-      Entry<String, String> e = itr.next();
-      m.add(e.getKey(), e.getValue());
+    MultiValueMap<String, String> m = this.headers;
+    if (m == null) {
+      StompHeaders h = frame.headers();
+      if (h == null || h.isEmpty()) {
+        return null;
+      }
+      m = StompHeadersMultiValueMap.headersView(frame);
+      this.headers = m;
     }
     return m;
   }
@@ -137,6 +196,11 @@ public abstract class NettyStompMessage<T> implements StompMessage<T> {
       this.charset = charset;
     }
 
+    @Override
+    protected NettyStringStompMessage newMessage(StompFrame frame) {
+      return new NettyStringStompMessage(frame, charset);
+    }
+
     @Override
     public String getBody() {
       ByteBuf b = frame.content();
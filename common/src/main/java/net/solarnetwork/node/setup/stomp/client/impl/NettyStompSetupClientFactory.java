@@ -22,20 +22,406 @@
 
 package net.solarnetwork.node.setup.stomp.client.impl;
 
+import java.util.concurrent.Executor;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import net.solarnetwork.node.setup.stomp.client.service.StompSetupClient;
 import net.solarnetwork.node.setup.stomp.client.service.StompSetupClientFactory;
+import net.solarnetwork.node.setup.stomp.client.util.ExecutorUtils;
 
 /**
  * Netty implementation of {@link StompSetupClientFactory}.
  * 
+ * <p>
+ * The factory owns a single event loop group that is shared by all clients it creates, so that
+ * connecting and disconnecting a client does not create or destroy any threads. Call
+ * {@link #shutdown()} when the factory is no longer needed to release the group's threads.
+ * </p>
+ * 
  * @author matt
- * @version 1.0
+ * @version 1.3
  */
 public class NettyStompSetupClientFactory implements StompSetupClientFactory {
 
+  /**
+   * The default number of I/O threads to use.
+   * 
+   * <p>
+   * A value of {@literal 0} means to use the Netty default, which is twice the number of available
+   * processors.
+   * </p>
+   */
+  public static final int DEFAULT_IO_THREADS = 0;
+
+  private final EventLoopGroup workerGroup;
+  private final Bootstrap bootstrap;
+  private boolean directBuffers = true;
+  private int maxFrameLength = NettyStompClient.DEFAULT_MAX_FRAME_LENGTH;
+  private boolean streaming = false;
+  private NettyWireLogger wireLogger = new NettyWireLogger();
+  private StompClientMetrics metrics;
+  private Executor dispatchExecutor;
+  private int dispatchQueueCapacity = QueuedMessageConsumer.DEFAULT_CAPACITY;
+  private QueuedMessageConsumer.OverflowPolicy dispatchOverflowPolicy;
+  private long heartBeatSendMillis = NettyStompClient.DEFAULT_HEART_BEAT_MILLIS;
+  private long heartBeatReceiveMillis = NettyStompClient.DEFAULT_HEART_BEAT_MILLIS;
+  private int writeBufferLowWaterMark = NettyStompClient.DEFAULT_WRITE_BUFFER_LOW_WATER_MARK;
+  private int writeBufferHighWaterMark = NettyStompClient.DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK;
+  private int flushConsolidationLimit = NettyStompClient.DEFAULT_FLUSH_CONSOLIDATION_LIMIT;
+
+  /**
+   * Constructor.
+   * 
+   * <p>
+   * The {@link #DEFAULT_IO_THREADS} number of threads will be used.
+   * </p>
+   */
+  public NettyStompSetupClientFactory() {
+    this(DEFAULT_IO_THREADS);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param ioThreads
+   *          the number of I/O threads to share between all clients, or {@literal 0} for the
+   *          Netty default
+   * @throws IllegalArgumentException
+   *           if {@code ioThreads} is less than {@literal 0}
+   */
+  public NettyStompSetupClientFactory(int ioThreads) {
+    super();
+    if (ioThreads < 0) {
+      throw new IllegalArgumentException("The ioThreads argument must not be negative.");
+    }
+    this.workerGroup = new NioEventLoopGroup(ioThreads,
+        new DefaultThreadFactory("STOMP-Setup-Client", true));
+    Bootstrap b = new Bootstrap();
+    b.group(workerGroup);
+    b.channel(NioSocketChannel.class);
+    b.option(ChannelOption.SO_KEEPALIVE, true);
+    this.bootstrap = b;
+    this.dispatchOverflowPolicy = QueuedMessageConsumer.OverflowPolicy.Block;
+  }
+
   @Override
   public StompSetupClient createClient(String host, int port) {
-    return new NettyStompClient(host, port);
+    if (workerGroup.isShuttingDown()) {
+      throw new IllegalStateException("The client factory has been shut down.");
+    }
+    NettyStompClient client = new NettyStompClient(bootstrap, host, port);
+    client.setDirectBuffers(directBuffers);
+    client.setMaxFrameLength(maxFrameLength);
+    client.setStreaming(streaming);
+    client.setWireLogger(wireLogger);
+    client.setMetrics(metrics);
+    client.setDispatchExecutor(dispatchExecutor);
+    client.setDispatchQueueCapacity(dispatchQueueCapacity);
+    client.setDispatchOverflowPolicy(dispatchOverflowPolicy);
+    client.setHeartBeatSendMillis(heartBeatSendMillis);
+    client.setHeartBeatReceiveMillis(heartBeatReceiveMillis);
+    client.setWriteBufferWaterMark(writeBufferLowWaterMark, writeBufferHighWaterMark);
+    client.setFlushConsolidationLimit(flushConsolidationLimit);
+    return client;
+  }
+
+  /**
+   * Shut down the shared event loop group.
+   * 
+   * <p>
+   * Any connections made by clients created by this factory will be closed.
+   * </p>
+   */
+  public void shutdown() {
+    if (!workerGroup.isShuttingDown()) {
+      workerGroup.shutdownGracefully();
+    }
+  }
+
+  /**
+   * Get the event loop group shared by all clients.
+   * 
+   * @return the event loop group, never {@literal null}
+   */
+  public EventLoopGroup getEventLoopGroup() {
+    return workerGroup;
+  }
+
+  /**
+   * Get the direct buffers setting.
+   * 
+   * @return {@literal true} if clients encode outbound message bodies into direct buffers, or
+   *         {@literal false} for heap buffers; defaults to {@literal true}
+   */
+  public boolean isDirectBuffers() {
+    return directBuffers;
+  }
+
+  /**
+   * Set the direct buffers setting.
+   * 
+   * @param directBuffers
+   *          {@literal true} for clients to encode outbound message bodies into direct buffers, or
+   *          {@literal false} for heap buffers
+   */
+  public void setDirectBuffers(boolean directBuffers) {
+    this.directBuffers = directBuffers;
+  }
+
+  /**
+   * Get the maximum frame length.
+   * 
+   * @return the maximum number of content bytes allowed in an aggregated inbound frame; defaults
+   *         to {@link NettyStompClient#DEFAULT_MAX_FRAME_LENGTH}
+   */
+  public int getMaxFrameLength() {
+    return maxFrameLength;
+  }
+
+  /**
+   * Set the maximum frame length.
+   * 
+   * @param maxFrameLength
+   *          the maximum number of content bytes allowed in an aggregated inbound frame
+   */
+  public void setMaxFrameLength(int maxFrameLength) {
+    this.maxFrameLength = maxFrameLength;
+  }
+
+  /**
+   * Get the streaming mode.
+   * 
+   * @return {@literal true} if clients stream frames accepted by a frame stream consumer rather
+   *         than aggregating them; defaults to {@literal false}
+   */
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  /**
+   * Set the streaming mode.
+   * 
+   * @param streaming
+   *          {@literal true} for clients to stream frames accepted by a frame stream consumer
+   *          rather than aggregating them
+   */
+  public void setStreaming(boolean streaming) {
+    this.streaming = streaming;
+  }
+
+  /**
+   * Get the wire logger shared by all clients.
+   * 
+   * @return the wire logger, or {@literal null} if wire logging is not supported
+   */
+  public NettyWireLogger getWireLogger() {
+    return wireLogger;
+  }
+
+  /**
+   * Set the wire logger shared by all clients.
+   * 
+   * @param wireLogger
+   *          the wire logger to use, or {@literal null} to disable wire logging
+   */
+  public void setWireLogger(NettyWireLogger wireLogger) {
+    this.wireLogger = wireLogger;
+  }
+
+  /**
+   * Get the metrics shared by all clients.
+   * 
+   * @return the metrics, or {@literal null} if frames and bytes are not counted
+   */
+  public StompClientMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Set the metrics shared by all clients.
+   * 
+   * @param metrics
+   *          the metrics to count frames and bytes with, or {@literal null} to not count them
+   */
+  public void setMetrics(StompClientMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Get the dispatch executor.
+   * 
+   * @return the executor clients use to call message consumers, or {@literal null} if consumers
+   *         are called directly by the I/O thread
+   */
+  public Executor getDispatchExecutor() {
+    return dispatchExecutor;
+  }
+
+  /**
+   * Set the dispatch executor.
+   * 
+   * <p>
+   * {@link ExecutorUtils#newVirtualThreadPerTaskExecutor(String)} can be used to dispatch with
+   * virtual threads, where supported.
+   * </p>
+   * 
+   * @param dispatchExecutor
+   *          the executor for clients to call message consumers with, or {@literal null} to call
+   *          consumers directly from the I/O thread
+   */
+  public void setDispatchExecutor(Executor dispatchExecutor) {
+    this.dispatchExecutor = dispatchExecutor;
+  }
+
+  /**
+   * Get the dispatch queue capacity.
+   * 
+   * @return the maximum number of messages queued per consumer; defaults to
+   *         {@link QueuedMessageConsumer#DEFAULT_CAPACITY}
+   */
+  public int getDispatchQueueCapacity() {
+    return dispatchQueueCapacity;
+  }
+
+  /**
+   * Set the dispatch queue capacity.
+   * 
+   * @param dispatchQueueCapacity
+   *          the maximum number of messages to queue per consumer
+   */
+  public void setDispatchQueueCapacity(int dispatchQueueCapacity) {
+    this.dispatchQueueCapacity = dispatchQueueCapacity;
+  }
+
+  /**
+   * Get the dispatch overflow policy.
+   * 
+   * @return the policy applied when a consumer queue is full; defaults to
+   *         {@link QueuedMessageConsumer.OverflowPolicy#Block}
+   */
+  public QueuedMessageConsumer.OverflowPolicy getDispatchOverflowPolicy() {
+    return dispatchOverflowPolicy;
+  }
+
+  /**
+   * Set the dispatch overflow policy.
+   * 
+   * @param dispatchOverflowPolicy
+   *          the policy to apply when a consumer queue is full
+   * @throws IllegalArgumentException
+   *           if {@code dispatchOverflowPolicy} is {@literal null}
+   */
+  public void setDispatchOverflowPolicy(
+      QueuedMessageConsumer.OverflowPolicy dispatchOverflowPolicy) {
+    if (dispatchOverflowPolicy == null) {
+      throw new IllegalArgumentException("The dispatchOverflowPolicy argument must not be null.");
+    }
+    this.dispatchOverflowPolicy = dispatchOverflowPolicy;
+  }
+
+  /**
+   * Get the heart-beat send interval.
+   * 
+   * @return the smallest interval, in milliseconds, clients can send heart-beats at, or
+   *         {@literal 0} for none; defaults to {@link NettyStompClient#DEFAULT_HEART_BEAT_MILLIS}
+   */
+  public long getHeartBeatSendMillis() {
+    return heartBeatSendMillis;
+  }
+
+  /**
+   * Set the heart-beat send interval.
+   * 
+   * @param heartBeatSendMillis
+   *          the smallest interval, in milliseconds, clients can send heart-beats at, or
+   *          {@literal 0} for none
+   */
+  public void setHeartBeatSendMillis(long heartBeatSendMillis) {
+    this.heartBeatSendMillis = heartBeatSendMillis;
+  }
+
+  /**
+   * Get the heart-beat receive interval.
+   * 
+   * @return the desired interval, in milliseconds, to receive heart-beats from the server at, or
+   *         {@literal 0} for none; defaults to {@link NettyStompClient#DEFAULT_HEART_BEAT_MILLIS}
+   */
+  public long getHeartBeatReceiveMillis() {
+    return heartBeatReceiveMillis;
+  }
+
+  /**
+   * Set the heart-beat receive interval.
+   * 
+   * @param heartBeatReceiveMillis
+   *          the desired interval, in milliseconds, to receive heart-beats from the server at, or
+   *          {@literal 0} for none
+   */
+  public void setHeartBeatReceiveMillis(long heartBeatReceiveMillis) {
+    this.heartBeatReceiveMillis = heartBeatReceiveMillis;
+  }
+
+  /**
+   * Get the write buffer low water mark.
+   * 
+   * @return the number of buffered outbound bytes below which clients become writable again
+   */
+  public int getWriteBufferLowWaterMark() {
+    return writeBufferLowWaterMark;
+  }
+
+  /**
+   * Get the write buffer high water mark.
+   * 
+   * @return the number of buffered outbound bytes above which clients are no longer writable
+   */
+  public int getWriteBufferHighWaterMark() {
+    return writeBufferHighWaterMark;
+  }
+
+  /**
+   * Set the write buffer low and high water marks.
+   * 
+   * @param writeBufferLowWaterMark
+   *          the number of buffered outbound bytes below which clients become writable again
+   * @param writeBufferHighWaterMark
+   *          the number of buffered outbound bytes above which clients are no longer writable
+   * @throws IllegalArgumentException
+   *           if either argument is less than {@literal 0} or {@code writeBufferLowWaterMark} is
+   *           more than {@code writeBufferHighWaterMark}
+   * @see NettyStompClient#setWriteBufferWaterMark(int, int)
+   */
+  public void setWriteBufferWaterMark(int writeBufferLowWaterMark, int writeBufferHighWaterMark) {
+    NettyStompClient.validateWriteBufferWaterMark(writeBufferLowWaterMark,
+        writeBufferHighWaterMark);
+    this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+    this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+  }
+
+  /**
+   * Get the flush consolidation limit.
+   * 
+   * @return the maximum number of flushes consolidated into one
+   */
+  public int getFlushConsolidationLimit() {
+    return flushConsolidationLimit;
+  }
+
+  /**
+   * Set the flush consolidation limit.
+   * 
+   * @param flushConsolidationLimit
+   *          the maximum number of flushes to consolidate into one, or {@literal 1} or less to
+   *          flush every message immediately
+   * @see NettyStompClient#setFlushConsolidationLimit(int)
+   */
+  public void setFlushConsolidationLimit(int flushConsolidationLimit) {
+    this.flushConsolidationLimit = flushConsolidationLimit;
   }
 
 }
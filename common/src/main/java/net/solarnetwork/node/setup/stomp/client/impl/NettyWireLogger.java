@@ -0,0 +1,322 @@
+/* ==================================================================
+ * NettyWireLogger.java - 18/10/2026 4:02:36 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.handler.codec.stomp.StompContentSubframe;
+import io.netty.handler.codec.stomp.StompFrame;
+import io.netty.handler.codec.stomp.StompHeadersSubframe;
+import io.netty.handler.logging.LogLevel;
+import io.netty.handler.logging.LoggingHandler;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+/**
+ * Wire logging support for Netty STOMP client channels.
+ * 
+ * <p>
+ * The logging mode can be changed at any time, and is applied to all registered channels as well
+ * as new ones. Handlers are only present in a channel pipeline while their mode is active, so the
+ * {@link Mode#Off} mode adds no cost to the pipeline at all.
+ * </p>
+ * 
+ * <p>
+ * The {@link Mode#Log} mode logs a hex dump of all data read and written, at the {@literal TRACE}
+ * level of the {@link #LOGGER_NAME} logger. The {@link Mode#Capture} mode records a short
+ * description of decoded frames into a bounded in-memory ring buffer, optionally sampling only 1 in
+ * every {@code sampleRate} frames, which can be obtained later via {@link #capturedFrames()}.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class NettyWireLogger {
+
+  /** The wire logger name. */
+  public static final String LOGGER_NAME = "net.solarnetwork.node.setup.stomp.client.WIRE";
+
+  /**
+   * The {@code captureSize} property default value.
+   */
+  public static final int DEFAULT_CAPTURE_SIZE = 100;
+
+  /**
+   * The {@code sampleRate} property default value.
+   */
+  public static final int DEFAULT_SAMPLE_RATE = 1;
+
+  /**
+   * The maximum number of body bytes included in a captured frame description.
+   */
+  public static final int MAX_CAPTURE_BODY_LENGTH = 256;
+
+  private static final String LOG_HANDLER_NAME = "wireLog";
+  private static final String CAPTURE_HANDLER_NAME = "wireCapture";
+
+  /**
+   * The wire logging mode.
+   */
+  public enum Mode {
+
+    /** No wire logging. */
+    Off,
+
+    /** Log all data read and written. */
+    Log,
+
+    /** Capture frames into a ring buffer. */
+    Capture;
+
+  }
+
+  private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+  private final LoggingHandler loggingHandler = new LoggingHandler(LOGGER_NAME, LogLevel.TRACE);
+  private final CaptureHandler captureHandler = new CaptureHandler();
+  private final AtomicLong frameCount = new AtomicLong();
+  private volatile Mode mode = Mode.Off;
+  private volatile int sampleRate = DEFAULT_SAMPLE_RATE;
+
+  private String[] captured = new String[DEFAULT_CAPTURE_SIZE];
+  private long capturedCount;
+
+  /**
+   * Register a channel.
+   * 
+   * <p>
+   * The channel pipeline is configured for the current mode. The channel is automatically
+   * unregistered when it is closed.
+   * </p>
+   * 
+   * <p>
+   * Capture handlers are added before the {@link NettyStompClient#CLIENT_HANDLER_NAME} handler.
+   * </p>
+   * 
+   * @param channel
+   *          the channel to register
+   */
+  public void register(Channel channel) {
+    channels.add(channel);
+    configure(channel.pipeline());
+  }
+
+  private void configure(ChannelPipeline pipeline) {
+    final String clientHandlerName = NettyStompClient.CLIENT_HANDLER_NAME;
+    final Mode m = this.mode;
+    final boolean logging = (pipeline.get(LOG_HANDLER_NAME) != null);
+    if (m == Mode.Log && !logging) {
+      pipeline.addFirst(LOG_HANDLER_NAME, loggingHandler);
+    } else if (m != Mode.Log && logging) {
+      pipeline.remove(LOG_HANDLER_NAME);
+    }
+    final boolean capturing = (pipeline.get(CAPTURE_HANDLER_NAME) != null);
+    if (m == Mode.Capture && !capturing && pipeline.get(clientHandlerName) != null) {
+      pipeline.addBefore(clientHandlerName, CAPTURE_HANDLER_NAME, captureHandler);
+    } else if (m != Mode.Capture && capturing) {
+      pipeline.remove(CAPTURE_HANDLER_NAME);
+    }
+  }
+
+  /**
+   * Get the captured frame descriptions.
+   * 
+   * @return the captured frames, oldest first
+   */
+  public synchronized List<String> capturedFrames() {
+    final int len = (int) Math.min(capturedCount, captured.length);
+    final List<String> result = new ArrayList<>(len);
+    for (long i = capturedCount - len; i < capturedCount; i++) {
+      result.add(captured[(int) (i % captured.length)]);
+    }
+    return result;
+  }
+
+  /**
+   * Clear all captured frames.
+   */
+  public synchronized void clearCapturedFrames() {
+    captured = new String[captured.length];
+    capturedCount = 0;
+  }
+
+  private void capture(String direction, Object msg) {
+    final int rate = sampleRate;
+    if (rate > 1 && frameCount.getAndIncrement() % rate != 0) {
+      return;
+    }
+    final String desc = Instant.now() + " " + direction + " " + describe(msg);
+    synchronized (this) {
+      captured[(int) (capturedCount % captured.length)] = desc;
+      capturedCount++;
+    }
+  }
+
+  private static String describe(Object msg) {
+    final StringBuilder buf = new StringBuilder();
+    if (msg instanceof StompHeadersSubframe) {
+      StompHeadersSubframe f = (StompHeadersSubframe) msg;
+      buf.append(f.command());
+      for (Map.Entry<CharSequence, CharSequence> h : f.headers()) {
+        buf.append(' ').append(h.getKey()).append(':').append(h.getValue());
+      }
+    }
+    if (msg instanceof StompContentSubframe) {
+      ByteBuf content = ((StompContentSubframe) msg).content();
+      final int len = content.readableBytes();
+      if (msg instanceof StompFrame) {
+        buf.append(' ');
+      } else {
+        buf.append("CONTENT ");
+      }
+      buf.append('[').append(len).append(" bytes]");
+      if (len > 0) {
+        buf.append(' ').append(content.toString(content.readerIndex(),
+            Math.min(len, MAX_CAPTURE_BODY_LENGTH), NettyStompClient.UTF8));
+        if (len > MAX_CAPTURE_BODY_LENGTH) {
+          buf.append("...");
+        }
+      }
+    } else if (!(msg instanceof StompHeadersSubframe)) {
+      buf.append(msg.getClass().getSimpleName());
+    }
+    return buf.toString();
+  }
+
+  @Sharable
+  private final class CaptureHandler extends ChannelDuplexHandler {
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+      capture(">>>", msg);
+      ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+        throws Exception {
+      capture("<<<", msg);
+      ctx.write(msg, promise);
+    }
+
+  }
+
+  /**
+   * Get the wire logging mode.
+   * 
+   * @return the mode; defaults to {@link Mode#Off}
+   */
+  public Mode getMode() {
+    return mode;
+  }
+
+  /**
+   * Set the wire logging mode.
+   * 
+   * <p>
+   * The mode is applied to all registered channels immediately.
+   * </p>
+   * 
+   * @param mode
+   *          the mode to set
+   * @throws IllegalArgumentException
+   *           if {@code mode} is {@literal null}
+   */
+  public void setMode(Mode mode) {
+    if (mode == null) {
+      throw new IllegalArgumentException("The mode argument must not be null.");
+    }
+    this.mode = mode;
+    for (Channel ch : channels) {
+      ch.eventLoop().execute(() -> {
+        if (ch.isOpen()) {
+          configure(ch.pipeline());
+        }
+      });
+    }
+  }
+
+  /**
+   * Get the capture size.
+   * 
+   * @return the maximum number of frames retained in capture mode; defaults to
+   *         {@link #DEFAULT_CAPTURE_SIZE}
+   */
+  public synchronized int getCaptureSize() {
+    return captured.length;
+  }
+
+  /**
+   * Set the capture size.
+   * 
+   * <p>
+   * Changing the size clears any frames already captured.
+   * </p>
+   * 
+   * @param captureSize
+   *          the maximum number of frames to retain in capture mode
+   * @throws IllegalArgumentException
+   *           if {@code captureSize} is less than {@literal 1}
+   */
+  public synchronized void setCaptureSize(int captureSize) {
+    if (captureSize < 1) {
+      throw new IllegalArgumentException("The captureSize argument must be at least 1.");
+    }
+    if (captureSize != captured.length) {
+      captured = new String[captureSize];
+      capturedCount = 0;
+    }
+  }
+
+  /**
+   * Get the capture sample rate.
+   * 
+   * @return the number of frames per captured frame; defaults to {@link #DEFAULT_SAMPLE_RATE}
+   */
+  public int getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * Set the capture sample rate.
+   * 
+   * @param sampleRate
+   *          the number of frames per captured frame, for example {@literal 10} to capture 1 in
+   *          every 10 frames; anything less than {@literal 2} captures every frame
+   */
+  public void setSampleRate(int sampleRate) {
+    this.sampleRate = sampleRate;
+  }
+
+}
@@ -0,0 +1,205 @@
+/* ==================================================================
+ * PooledSetupClientService.java - 18/10/2026 8:41:19 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+import org.springframework.util.MultiValueMap;
+
+import net.solarnetwork.domain.datum.Datum;
+import net.solarnetwork.node.setup.stomp.client.domain.Command;
+import net.solarnetwork.node.setup.stomp.client.domain.Message;
+import net.solarnetwork.node.setup.stomp.client.service.SetupClientService;
+import net.solarnetwork.node.setup.stomp.client.service.Subscription;
+
+/**
+ * {@link SetupClientService} that borrows its connection from a {@link SetupClientSessionPool}.
+ * 
+ * <p>
+ * Connecting borrows a session from the pool, which reuses an idle authenticated session for the
+ * same host, port, username, and password if one is available. Disconnecting returns the session
+ * to the pool rather than closing it, so connecting again later is immediate. Any datum
+ * subscriptions made through this service are unsubscribed when the session is returned.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.1
+ */
+public class PooledSetupClientService implements SetupClientService {
+
+  private final SetupClientSessionPool pool;
+  private final Set<Subscription> subscriptions = new CopyOnWriteArraySet<>();
+  private volatile SetupClientService session;
+
+  /**
+   * Constructor.
+   * 
+   * @param pool
+   *          the pool to borrow sessions from
+   * @throws IllegalArgumentException
+   *           if {@code pool} is {@literal null}
+   */
+  public PooledSetupClientService(SetupClientSessionPool pool) {
+    super();
+    if (pool == null) {
+      throw new IllegalArgumentException("The pool argument must not be null.");
+    }
+    this.pool = pool;
+  }
+
+  private SetupClientService session() {
+    final SetupClientService s = this.session;
+    if (s == null) {
+      throw new IllegalStateException("Not connected.");
+    }
+    return s;
+  }
+
+  @Override
+  public void connect(String host, int port, String username, String password) {
+    disconnect();
+    // borrowing can wait on the network or for pool capacity, so must not hold this lock
+    installed(pool.borrow(host, port, username, password));
+  }
+
+  @Override
+  public CompletionStage<Void> connectAsync(String host, int port, String username,
+      String password) {
+    disconnect();
+    return pool.borrowAsync(host, port, username, password).thenAccept(this::installed);
+  }
+
+  private void installed(SetupClientService s) {
+    final SetupClientService old;
+    final List<Subscription> subs;
+    synchronized (this) {
+      old = this.session;
+      this.session = s;
+      subs = (old != null ? takeSubscriptions() : null);
+    }
+    if (old != null) {
+      released(old, subs);
+    }
+  }
+
+  @Override
+  public void disconnect() {
+    final SetupClientService s;
+    final List<Subscription> subs;
+    synchronized (this) {
+      s = this.session;
+      if (s == null) {
+        return;
+      }
+      this.session = null;
+      subs = takeSubscriptions();
+    }
+    released(s, subs);
+  }
+
+  private List<Subscription> takeSubscriptions() {
+    final List<Subscription> subs = new ArrayList<>(subscriptions);
+    subscriptions.clear();
+    return subs;
+  }
+
+  private void released(SetupClientService s, List<Subscription> subs) {
+    // do not leave subscriptions active on a session others can borrow
+    for (Subscription sub : subs) {
+      sub.unsubscribe();
+    }
+    pool.release(s);
+  }
+
+  @Override
+  public boolean isConnected() {
+    final SetupClientService s = this.session;
+    return (s != null && s.isConnected());
+  }
+
+  @Override
+  public Collection<Datum> latestDatum(Set<String> sourceIdFilter) {
+    return session().latestDatum(sourceIdFilter);
+  }
+
+  @Override
+  public CompletionStage<Collection<Datum>> latestDatumAsync(Set<String> sourceIdFilter) {
+    return session().latestDatumAsync(sourceIdFilter);
+  }
+
+  @Override
+  public void streamLatestDatum(Set<String> sourceIdFilter, Consumer<Datum> consumer) {
+    session().streamLatestDatum(sourceIdFilter, consumer);
+  }
+
+  @Override
+  public CompletionStage<Void> streamLatestDatumAsync(Set<String> sourceIdFilter,
+      Consumer<Datum> consumer) {
+    return session().streamLatestDatumAsync(sourceIdFilter, consumer);
+  }
+
+  @Override
+  public Subscription subscribeDatum(Set<String> sourceIdFilter, Consumer<Datum> consumer) {
+    final Subscription sub = session().subscribeDatum(sourceIdFilter, consumer);
+    subscriptions.add(sub);
+    return sub;
+  }
+
+  @Override
+  public Message<String> executeCommand(String service, MultiValueMap<String, String> headers,
+      Object body) {
+    return session().executeCommand(service, headers, body);
+  }
+
+  @Override
+  public CompletionStage<Message<String>> executeCommandAsync(String service,
+      MultiValueMap<String, String> headers, Object body) {
+    return session().executeCommandAsync(service, headers, body);
+  }
+
+  @Override
+  public List<Message<String>> executeBatch(List<Command> commands) {
+    return session().executeBatch(commands);
+  }
+
+  @Override
+  public List<CompletionStage<Message<String>>> executeBatchAsync(List<Command> commands) {
+    return session().executeBatchAsync(commands);
+  }
+
+  /**
+   * Get the session pool.
+   * 
+   * @return the pool
+   */
+  public SetupClientSessionPool getPool() {
+    return pool;
+  }
+
+}
@@ -0,0 +1,389 @@
+/* ==================================================================
+ * QueuedMessageConsumer.java - 18/10/2026 5:10:44 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.solarnetwork.node.setup.stomp.client.domain.RetainableStompMessage;
+import net.solarnetwork.node.setup.stomp.client.domain.StompMessage;
+
+/**
+ * Consumer that queues messages and passes them to a delegate consumer on an executor.
+ * 
+ * <p>
+ * Messages are delivered to the delegate one at a time, in the order they were accepted, so the
+ * delegate never runs concurrently with itself. At most {@code capacity} messages are queued; what
+ * happens when the queue is full is determined by the {@link OverflowPolicy}. Reference-counted
+ * messages are retained while queued, so they are not copied.
+ * </p>
+ * 
+ * <p>
+ * If a {@link FlowControl} is provided, the {@link OverflowPolicy#Block} policy never blocks the
+ * calling thread. Instead the message source is paused once the queue is full, and resumed once
+ * the queue has drained to half its capacity. Messages accepted while pausing takes effect are
+ * still queued.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.1
+ */
+public class QueuedMessageConsumer implements Consumer<StompMessage<String>> {
+
+  /**
+   * The {@code capacity} default value.
+   */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  private static final Logger log = LoggerFactory.getLogger(QueuedMessageConsumer.class);
+
+  /**
+   * Policy for handling messages when the queue is full.
+   */
+  public enum OverflowPolicy {
+
+    /**
+     * Stop accepting messages until space is available. With a {@link FlowControl}, the message
+     * source is paused; otherwise the calling thread is blocked, which is only suitable when that
+     * is not an event loop thread shared with other connections.
+     */
+    Block,
+
+    /** Discard the oldest queued message to make room. */
+    DropOldest,
+
+    /**
+     * Discard the message and throw a {@link RejectedExecutionException}, which closes the
+     * connection.
+     */
+    Fail;
+
+  }
+
+  /**
+   * Flow control for the source of the messages, used with the {@link OverflowPolicy#Block}
+   * policy.
+   * 
+   * @since 1.1
+   */
+  public interface FlowControl {
+
+    /**
+     * Stop producing messages.
+     */
+    void pause();
+
+    /**
+     * Resume producing messages.
+     */
+    void resume();
+
+  }
+
+  private final Consumer<StompMessage<String>> delegate;
+  private final Executor executor;
+  private final OverflowPolicy overflowPolicy;
+  private final FlowControl flowControl;
+  private final int capacity;
+  private final BlockingQueue<StompMessage<String>> queue;
+  private final AtomicBoolean paused = new AtomicBoolean();
+  private final AtomicInteger wip = new AtomicInteger();
+  private final AtomicInteger maxQueueDepth = new AtomicInteger();
+  private final AtomicLong deliveredCount = new AtomicLong();
+  private final AtomicLong droppedCount = new AtomicLong();
+  private volatile boolean closed;
+
+  /**
+   * Constructor.
+   * 
+   * @param delegate
+   *          the consumer to deliver messages to
+   * @param executor
+   *          the executor to deliver messages with
+   * @param capacity
+   *          the maximum number of messages to queue
+   * @param overflowPolicy
+   *          the policy to apply when the queue is full
+   * @throws IllegalArgumentException
+   *           if any argument is {@literal null} or {@code capacity} is less than {@literal 1}
+   */
+  public QueuedMessageConsumer(Consumer<StompMessage<String>> delegate, Executor executor,
+      int capacity, OverflowPolicy overflowPolicy) {
+    this(delegate, executor, capacity, overflowPolicy, null);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param delegate
+   *          the consumer to deliver messages to
+   * @param executor
+   *          the executor to deliver messages with
+   * @param capacity
+   *          the maximum number of messages to queue
+   * @param overflowPolicy
+   *          the policy to apply when the queue is full
+   * @param flowControl
+   *          the flow control to pause the message source with, or {@literal null}
+   * @throws IllegalArgumentException
+   *           if any argument other than {@code flowControl} is {@literal null} or
+   *           {@code capacity} is less than {@literal 1}
+   * @since 1.1
+   */
+  public QueuedMessageConsumer(Consumer<StompMessage<String>> delegate, Executor executor,
+      int capacity, OverflowPolicy overflowPolicy, FlowControl flowControl) {
+    super();
+    if (delegate == null) {
+      throw new IllegalArgumentException("The delegate argument must not be null.");
+    }
+    if (executor == null) {
+      throw new IllegalArgumentException("The executor argument must not be null.");
+    }
+    if (capacity < 1) {
+      throw new IllegalArgumentException("The capacity argument must be at least 1.");
+    }
+    if (overflowPolicy == null) {
+      throw new IllegalArgumentException("The overflowPolicy argument must not be null.");
+    }
+    this.delegate = delegate;
+    this.executor = executor;
+    this.overflowPolicy = overflowPolicy;
+    this.flowControl = (overflowPolicy == OverflowPolicy.Block ? flowControl : null);
+    this.capacity = capacity;
+    // with flow control, messages still arrive while pausing takes effect
+    this.queue = (this.flowControl != null ? new LinkedBlockingQueue<>()
+        : new ArrayBlockingQueue<>(capacity));
+  }
+
+  @Override
+  public void accept(StompMessage<String> message) {
+    if (message == null || closed) {
+      return;
+    }
+    final StompMessage<String> m = retain(message);
+    switch (overflowPolicy) {
+      case Block:
+        if (flowControl != null) {
+          queue.offer(m);
+          if (queue.size() >= capacity && paused.compareAndSet(false, true)) {
+            flowControl.pause();
+          }
+          break;
+        }
+        try {
+          queue.put(m);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          dropped(m);
+          return;
+        }
+        break;
+
+      case DropOldest:
+        while (!queue.offer(m)) {
+          StompMessage<String> old = queue.poll();
+          if (old != null) {
+            dropped(old);
+          }
+        }
+        break;
+
+      default:
+        if (!queue.offer(m)) {
+          dropped(m);
+          throw new RejectedExecutionException("Message queue full for consumer " + delegate);
+        }
+    }
+    final int depth = queue.size();
+    int max = maxQueueDepth.get();
+    while (depth > max && !maxQueueDepth.compareAndSet(max, depth)) {
+      max = maxQueueDepth.get();
+    }
+    if (wip.getAndIncrement() == 0) {
+      try {
+        executor.execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        wip.set(0);
+        clear();
+        throw e;
+      }
+    }
+  }
+
+  private void drain() {
+    int missed = 1;
+    while (true) {
+      StompMessage<String> m;
+      while ((m = queue.poll()) != null) {
+        if (closed) {
+          dropped(m);
+          continue;
+        }
+        try {
+          delegate.accept(m);
+        } catch (RuntimeException e) {
+          log.warn("Message consumer {} threw exception handling message {}", delegate, m, e);
+        } finally {
+          release(m);
+        }
+        deliveredCount.incrementAndGet();
+        resumeIfDrained();
+      }
+      missed = wip.addAndGet(-missed);
+      if (missed == 0) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Stop accepting messages, and discard any queued messages.
+   */
+  public void close() {
+    closed = true;
+    clear();
+    resumeIfDrained();
+  }
+
+  private void resumeIfDrained() {
+    if (paused.get() && queue.size() <= capacity / 2 && paused.compareAndSet(true, false)) {
+      flowControl.resume();
+    }
+  }
+
+  private void clear() {
+    StompMessage<String> m;
+    while ((m = queue.poll()) != null) {
+      dropped(m);
+    }
+  }
+
+  private void dropped(StompMessage<String> m) {
+    droppedCount.incrementAndGet();
+    release(m);
+  }
+
+  private static StompMessage<String> retain(StompMessage<String> m) {
+    if (m instanceof RetainableStompMessage<?>) {
+      return ((RetainableStompMessage<String>) m).retain();
+    }
+    return m;
+  }
+
+  private static void release(StompMessage<String> m) {
+    if (m instanceof RetainableStompMessage<?>) {
+      ((RetainableStompMessage<?>) m).release();
+    }
+  }
+
+  /**
+   * Get the delegate consumer.
+   * 
+   * @return the consumer messages are delivered to
+   */
+  public Consumer<StompMessage<String>> getDelegate() {
+    return delegate;
+  }
+
+  /**
+   * Get the overflow policy.
+   * 
+   * @return the policy
+   */
+  public OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  /**
+   * Get the current queue depth.
+   * 
+   * @return the number of messages waiting to be delivered
+   */
+  public int getQueueDepth() {
+    return queue.size();
+  }
+
+  /**
+   * Get the maximum queue depth observed.
+   * 
+   * @return the high-water mark of the queue depth
+   */
+  public int getMaxQueueDepth() {
+    return maxQueueDepth.get();
+  }
+
+  /**
+   * Get the queue capacity.
+   * 
+   * @return the configured maximum number of messages to queue
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Get the number of messages delivered.
+   * 
+   * @return the delivered message count
+   */
+  public long getDeliveredCount() {
+    return deliveredCount.get();
+  }
+
+  /**
+   * Get the number of messages dropped because of queue overflow or closing.
+   * 
+   * @return the dropped message count
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("QueuedMessageConsumer{delegate=");
+    builder.append(delegate);
+    builder.append(", depth=");
+    builder.append(getQueueDepth());
+    builder.append(", maxDepth=");
+    builder.append(getMaxQueueDepth());
+    builder.append(", delivered=");
+    builder.append(getDeliveredCount());
+    builder.append(", dropped=");
+    builder.append(getDroppedCount());
+    builder.append("}");
+    return builder.toString();
+  }
+
+}
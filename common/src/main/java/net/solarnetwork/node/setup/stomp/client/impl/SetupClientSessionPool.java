@@ -0,0 +1,614 @@
+/* ==================================================================
+ * SetupClientSessionPool.java - 18/10/2026 8:12:47 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl;
+
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.apache.commons.codec.digest.HmacUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import net.solarnetwork.node.setup.stomp.client.service.SetupClientService;
+
+/**
+ * A pool of connected and authenticated setup client sessions, keyed by host, port, and username.
+ * 
+ * <p>
+ * Borrowing a session for a key that has an idle session returns that session without any network
+ * activity, skipping the connection handshake entirely. An idle session is only reused if it was
+ * authenticated with the same password, and passes a health check by still being connected;
+ * sessions that fail the health check are discarded. Otherwise a new session is created with the
+ * configured session factory and connected, as long as fewer than {@code maxPerKey} sessions
+ * (borrowed or idle) exist for the key.
+ * </p>
+ * 
+ * <p>
+ * Sessions that remain idle for longer than {@code idleTimeoutMillis} are disconnected and removed
+ * from the pool by a background task.
+ * </p>
+ * 
+ * <p>
+ * Passwords are not held by the pool. Sessions are matched to passwords by an HMAC of the password,
+ * using a random key generated for each pool instance, so the stored values cannot be used to
+ * guess passwords.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class SetupClientSessionPool {
+
+  /**
+   * The {@code maxPerKey} property default value.
+   */
+  public static final int DEFAULT_MAX_PER_KEY = 4;
+
+  /**
+   * The {@code idleTimeoutMillis} property default value.
+   */
+  public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 300_000L;
+
+  /**
+   * The {@code borrowTimeoutMillis} property default value.
+   */
+  public static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 30_000L;
+
+  private static final Logger log = LoggerFactory.getLogger(SetupClientSessionPool.class);
+
+  private final Supplier<? extends SetupClientService> sessionFactory;
+  private final HmacUtils secretHmac;
+  private final Map<String, KeyedSessions> sessions = new HashMap<>(8);
+  private final Map<SetupClientService, Lease> borrowed = new IdentityHashMap<>(8);
+  private int maxPerKey = DEFAULT_MAX_PER_KEY;
+  private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+  private long borrowTimeoutMillis = DEFAULT_BORROW_TIMEOUT_MILLIS;
+  private ScheduledExecutorService evictionScheduler;
+  private ScheduledFuture<?> evictionFuture;
+  private boolean closed;
+
+  /**
+   * The sessions for a single key.
+   */
+  private static final class KeyedSessions {
+
+    /** The idle sessions, most recently used first. */
+    private final Deque<IdleSession> idle = new ArrayDeque<>(4);
+
+    /** The total number of idle and borrowed sessions, including those being connected. */
+    private int count;
+
+    private IdleSession takeIdle(String secretDigest) {
+      for (Iterator<IdleSession> itr = idle.iterator(); itr.hasNext();) {
+        IdleSession s = itr.next();
+        if (s.secretDigest.equals(secretDigest)) {
+          itr.remove();
+          return s;
+        }
+      }
+      return null;
+    }
+
+  }
+
+  /**
+   * An idle session.
+   */
+  private static final class IdleSession {
+
+    private final SetupClientService session;
+    private final String secretDigest;
+    private final long idleSince;
+
+    private IdleSession(SetupClientService session, String secretDigest, long idleSince) {
+      super();
+      this.session = session;
+      this.secretDigest = secretDigest;
+      this.idleSince = idleSince;
+    }
+
+  }
+
+  /**
+   * The details of a borrowed session.
+   */
+  private static final class Lease {
+
+    private final String key;
+    private final String secretDigest;
+
+    private Lease(String key, String secretDigest) {
+      super();
+      this.key = key;
+      this.secretDigest = secretDigest;
+    }
+
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param sessionFactory
+   *          the factory to create new (disconnected) sessions with
+   * @throws IllegalArgumentException
+   *           if {@code sessionFactory} is {@literal null}
+   */
+  public SetupClientSessionPool(Supplier<? extends SetupClientService> sessionFactory) {
+    super();
+    if (sessionFactory == null) {
+      throw new IllegalArgumentException("The sessionFactory argument must not be null.");
+    }
+    this.sessionFactory = sessionFactory;
+    final byte[] hmacKey = new byte[32];
+    new SecureRandom().nextBytes(hmacKey);
+    this.secretHmac = new HmacUtils(HmacAlgorithms.HMAC_SHA_256, hmacKey);
+  }
+
+  private static String key(String host, int port, String username) {
+    return host + ":" + port + ":" + username;
+  }
+
+  private String secretDigest(String password) {
+    synchronized (secretHmac) {
+      return secretHmac.hmacHex(password != null ? password : "");
+    }
+  }
+
+  /**
+   * Borrow a connected session.
+   * 
+   * <p>
+   * If the maximum number of sessions for the key already exist, this method waits up to
+   * {@code borrowTimeoutMillis} for one to be returned.
+   * </p>
+   * 
+   * @param host
+   *          the host to connect to
+   * @param port
+   *          the port to connect to
+   * @param username
+   *          the username to authenticate as
+   * @param password
+   *          the password to authenticate with
+   * @return the session, which must be passed to {@link #release(SetupClientService)} or
+   *         {@link #invalidate(SetupClientService)} when no longer needed
+   * @throws IllegalStateException
+   *           if the pool is closed or no session becomes available in time
+   * @throws RuntimeException
+   *           if a new session cannot be connected
+   */
+  public SetupClientService borrow(String host, int port, String username, String password) {
+    final String key = key(host, port, username);
+    final String digest = secretDigest(password);
+    final SetupClientService idle = reserve(key, digest,
+        System.currentTimeMillis() + getBorrowTimeoutMillis());
+    if (idle != null) {
+      return idle;
+    }
+    final SetupClientService s;
+    try {
+      s = sessionFactory.get();
+      s.connect(host, port, username, password);
+    } catch (RuntimeException e) {
+      unreserve(key);
+      throw e;
+    }
+    return created(s, key, digest);
+  }
+
+  /**
+   * Borrow a connected session asynchronously.
+   * 
+   * <p>
+   * Unlike {@link #borrow(String, int, String, String)}, this method does not wait for a session
+   * to be returned if the maximum number of sessions for the key already exist, and instead fails
+   * immediately.
+   * </p>
+   * 
+   * @param host
+   *          the host to connect to
+   * @param port
+   *          the port to connect to
+   * @param username
+   *          the username to authenticate as
+   * @param password
+   *          the password to authenticate with
+   * @return the session, which must be passed to {@link #release(SetupClientService)} or
+   *         {@link #invalidate(SetupClientService)} when no longer needed
+   */
+  public CompletionStage<SetupClientService> borrowAsync(String host, int port, String username,
+      String password) {
+    final String key = key(host, port, username);
+    final String digest = secretDigest(password);
+    final CompletableFuture<SetupClientService> result = new CompletableFuture<>();
+    final SetupClientService s;
+    try {
+      final SetupClientService idle = reserve(key, digest, 0);
+      if (idle != null) {
+        result.complete(idle);
+        return result;
+      }
+    } catch (RuntimeException e) {
+      result.completeExceptionally(e);
+      return result;
+    }
+    try {
+      s = sessionFactory.get();
+      s.connectAsync(host, port, username, password).whenComplete((v, t) -> {
+        if (t != null) {
+          unreserve(key);
+          result.completeExceptionally(t);
+        } else {
+          try {
+            result.complete(created(s, key, digest));
+          } catch (RuntimeException e) {
+            // pool closed while connecting
+            result.completeExceptionally(e);
+          }
+        }
+      });
+    } catch (RuntimeException e) {
+      unreserve(key);
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  /**
+   * Take an idle session, or reserve space for a new one.
+   * 
+   * @param key
+   *          the session key
+   * @param digest
+   *          the secret digest
+   * @param deadline
+   *          the time to wait until for space to become available
+   * @return an idle session, or {@literal null} if space has been reserved for a new session
+   */
+  private SetupClientService reserve(String key, String digest, long deadline) {
+    final List<SetupClientService> discards = new ArrayList<>(2);
+    try {
+      synchronized (this) {
+        while (true) {
+          if (closed) {
+            throw new IllegalStateException("The session pool has been closed.");
+          }
+          final KeyedSessions ks = sessions.computeIfAbsent(key, k -> new KeyedSessions());
+          final IdleSession idle = ks.takeIdle(digest);
+          if (idle != null) {
+            if (idle.session.isConnected()) {
+              borrowed.put(idle.session, new Lease(key, digest));
+              log.debug("Borrowed idle session for {}", key);
+              return idle.session;
+            }
+            log.debug("Discarding disconnected idle session for {}", key);
+            ks.count--;
+            discards.add(idle.session);
+            continue;
+          }
+          if (ks.count < maxPerKey) {
+            ks.count++;
+            return null;
+          }
+          final IdleSession other = ks.idle.pollLast();
+          if (other != null) {
+            // make room by discarding a session authenticated with a different password
+            ks.count--;
+            discards.add(other.session);
+            continue;
+          }
+          final long wait = deadline - System.currentTimeMillis();
+          if (wait <= 0) {
+            throw new IllegalStateException("No session available for " + key + " (maximum "
+                + maxPerKey + " sessions in use).");
+          }
+          try {
+            this.wait(wait);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for session for " + key, e);
+          }
+        }
+      }
+    } finally {
+      disconnectAll(discards);
+    }
+  }
+
+  private synchronized void unreserve(String key) {
+    KeyedSessions ks = sessions.get(key);
+    if (ks != null) {
+      ks.count--;
+    }
+    notifyAll();
+  }
+
+  private SetupClientService created(SetupClientService s, String key, String digest) {
+    synchronized (this) {
+      if (!closed) {
+        borrowed.put(s, new Lease(key, digest));
+        scheduleEviction();
+        log.debug("Created new session for {}", key);
+        return s;
+      }
+    }
+    unreserve(key);
+    disconnectQuietly(s);
+    throw new IllegalStateException("The session pool has been closed.");
+  }
+
+  /**
+   * Return a borrowed session to the pool.
+   * 
+   * <p>
+   * The session is kept idle for reuse if it is still connected, otherwise it is discarded.
+   * </p>
+   * 
+   * @param session
+   *          the session to return
+   * @throws IllegalArgumentException
+   *           if {@code session} was not borrowed from this pool
+   */
+  public void release(SetupClientService session) {
+    returned(session, false);
+  }
+
+  /**
+   * Return a borrowed session to the pool, and discard it.
+   * 
+   * @param session
+   *          the session to return
+   * @throws IllegalArgumentException
+   *           if {@code session} was not borrowed from this pool
+   */
+  public void invalidate(SetupClientService session) {
+    returned(session, true);
+  }
+
+  private void returned(SetupClientService session, boolean discard) {
+    boolean disconnect = discard;
+    synchronized (this) {
+      final Lease lease = borrowed.remove(session);
+      if (lease == null) {
+        throw new IllegalArgumentException("The session was not borrowed from this pool.");
+      }
+      final KeyedSessions ks = sessions.get(lease.key);
+      if (disconnect || closed || !session.isConnected()) {
+        ks.count--;
+        disconnect = true;
+      } else {
+        ks.idle.addFirst(new IdleSession(session, lease.secretDigest, System.currentTimeMillis()));
+      }
+      notifyAll();
+    }
+    if (disconnect) {
+      disconnectQuietly(session);
+    }
+  }
+
+  /**
+   * Disconnect and remove all sessions that have been idle for longer than
+   * {@code idleTimeoutMillis}.
+   * 
+   * <p>
+   * This is called periodically by a background task, but can also be called directly.
+   * </p>
+   * 
+   * @return the number of sessions removed
+   */
+  public int evictIdle() {
+    final List<SetupClientService> discards = new ArrayList<>(4);
+    synchronized (this) {
+      final long expired = System.currentTimeMillis() - idleTimeoutMillis;
+      for (Iterator<KeyedSessions> itr = sessions.values().iterator(); itr.hasNext();) {
+        final KeyedSessions ks = itr.next();
+        IdleSession s;
+        while ((s = ks.idle.peekLast()) != null && s.idleSince <= expired) {
+          ks.idle.pollLast();
+          ks.count--;
+          discards.add(s.session);
+        }
+        if (ks.count < 1) {
+          itr.remove();
+        }
+      }
+      if (!discards.isEmpty()) {
+        notifyAll();
+      }
+    }
+    if (!discards.isEmpty()) {
+      log.debug("Evicting {} idle sessions", discards.size());
+      disconnectAll(discards);
+    }
+    return discards.size();
+  }
+
+  private void scheduleEviction() {
+    if (evictionFuture != null || idleTimeoutMillis < 1) {
+      return;
+    }
+    if (evictionScheduler == null) {
+      evictionScheduler = Executors.newSingleThreadScheduledExecutor(
+          new DefaultThreadFactory("STOMP-Setup-Pool-Evictor", true));
+    }
+    final long period = Math.max(1_000L, idleTimeoutMillis / 2);
+    evictionFuture = evictionScheduler.scheduleWithFixedDelay(this::evictIdle, period, period,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Close the pool.
+   * 
+   * <p>
+   * All idle sessions are disconnected, and borrowed sessions will be disconnected when they are
+   * returned. No further sessions can be borrowed.
+   * </p>
+   */
+  public void close() {
+    final List<SetupClientService> discards = new ArrayList<>(8);
+    synchronized (this) {
+      closed = true;
+      for (KeyedSessions ks : sessions.values()) {
+        for (IdleSession s : ks.idle) {
+          discards.add(s.session);
+          ks.count--;
+        }
+        ks.idle.clear();
+      }
+      if (evictionFuture != null) {
+        evictionFuture.cancel(false);
+        evictionFuture = null;
+      }
+      if (evictionScheduler != null) {
+        evictionScheduler.shutdown();
+        evictionScheduler = null;
+      }
+      notifyAll();
+    }
+    disconnectAll(discards);
+  }
+
+  private static void disconnectAll(List<SetupClientService> sessions) {
+    for (SetupClientService s : sessions) {
+      disconnectQuietly(s);
+    }
+  }
+
+  private static void disconnectQuietly(SetupClientService s) {
+    try {
+      s.disconnect();
+    } catch (RuntimeException e) {
+      log.debug("Error disconnecting session: {}", e.toString());
+    }
+  }
+
+  /**
+   * Get the number of idle sessions.
+   * 
+   * @return the number of sessions available for reuse
+   */
+  public synchronized int getIdleCount() {
+    int count = 0;
+    for (KeyedSessions ks : sessions.values()) {
+      count += ks.idle.size();
+    }
+    return count;
+  }
+
+  /**
+   * Get the number of borrowed sessions.
+   * 
+   * @return the number of sessions currently borrowed
+   */
+  public synchronized int getBorrowedCount() {
+    return borrowed.size();
+  }
+
+  /**
+   * Get the maximum number of sessions per key.
+   * 
+   * @return the maximum number of sessions, borrowed or idle, for a single host, port, and
+   *         username; defaults to {@link #DEFAULT_MAX_PER_KEY}
+   */
+  public synchronized int getMaxPerKey() {
+    return maxPerKey;
+  }
+
+  /**
+   * Set the maximum number of sessions per key.
+   * 
+   * @param maxPerKey
+   *          the maximum number of sessions, borrowed or idle, for a single host, port, and
+   *          username
+   * @throws IllegalArgumentException
+   *           if {@code maxPerKey} is less than {@literal 1}
+   */
+  public synchronized void setMaxPerKey(int maxPerKey) {
+    if (maxPerKey < 1) {
+      throw new IllegalArgumentException("The maxPerKey argument must be at least 1.");
+    }
+    this.maxPerKey = maxPerKey;
+  }
+
+  /**
+   * Get the idle timeout.
+   * 
+   * @return the maximum time, in milliseconds, a session is kept idle before being disconnected;
+   *         defaults to {@link #DEFAULT_IDLE_TIMEOUT_MILLIS}
+   */
+  public synchronized long getIdleTimeoutMillis() {
+    return idleTimeoutMillis;
+  }
+
+  /**
+   * Set the idle timeout.
+   * 
+   * <p>
+   * This applies to eviction tasks started after the setting is changed.
+   * </p>
+   * 
+   * @param idleTimeoutMillis
+   *          the maximum time, in milliseconds, to keep a session idle before disconnecting it, or
+   *          {@literal 0} to not run a background eviction task
+   */
+  public synchronized void setIdleTimeoutMillis(long idleTimeoutMillis) {
+    this.idleTimeoutMillis = idleTimeoutMillis;
+  }
+
+  /**
+   * Get the borrow timeout.
+   * 
+   * @return the maximum time, in milliseconds, to wait for a session to become available; defaults
+   *         to {@link #DEFAULT_BORROW_TIMEOUT_MILLIS}
+   */
+  public synchronized long getBorrowTimeoutMillis() {
+    return borrowTimeoutMillis;
+  }
+
+  /**
+   * Set the borrow timeout.
+   * 
+   * @param borrowTimeoutMillis
+   *          the maximum time, in milliseconds, to wait for a session to become available
+   */
+  public synchronized void setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+    this.borrowTimeoutMillis = borrowTimeoutMillis;
+  }
+
+}
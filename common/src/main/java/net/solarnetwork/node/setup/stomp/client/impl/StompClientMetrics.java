@@ -0,0 +1,490 @@
+/* ==================================================================
+ * StompClientMetrics.java - 18/10/2026 10:11:52 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.stomp.StompCommand;
+import io.netty.handler.codec.stomp.StompHeadersSubframe;
+import net.solarnetwork.node.setup.stomp.client.domain.LatencySummary;
+import net.solarnetwork.node.setup.stomp.client.service.StompClientMetricsMXBean;
+
+/**
+ * Metrics for STOMP setup clients.
+ * 
+ * <p>
+ * A single instance can be shared by any number of clients and services, to collect their metrics
+ * together. Counters are {@link LongAdder} instances and latencies are recorded into HdrHistogram
+ * {@link ConcurrentHistogram} instances with 2 significant digits, so recording is lock-free and
+ * cheap enough to leave enabled.
+ * </p>
+ * 
+ * <p>
+ * Frame and byte counts are collected by handlers added to each channel pipeline passed to
+ * {@link #register(Channel)}. Request latency, in-flight request, connect phase, and error metrics
+ * are recorded by a {@link StompSetupClientService} configured with this instance.
+ * </p>
+ * 
+ * <p>
+ * Request latencies are tracked per destination, up to {@code maxDestinations} destinations; any
+ * further destinations are tracked together under the {@link #OTHER_DESTINATIONS} key. The
+ * metrics can be published to the platform MBean server with {@link #registerMBean()}.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class StompClientMetrics implements StompClientMetricsMXBean {
+
+  /**
+   * The {@code objectName} property default value.
+   */
+  public static final String DEFAULT_OBJECT_NAME = "net.solarnetwork.node.setup.stomp.client:"
+      + "type=StompClientMetrics";
+
+  /**
+   * The {@code maxDestinations} property default value.
+   */
+  public static final int DEFAULT_MAX_DESTINATIONS = 100;
+
+  /**
+   * The request latency key used for destinations beyond {@code maxDestinations}.
+   */
+  public static final String OTHER_DESTINATIONS = "*";
+
+  private static final String BYTES_HANDLER_NAME = "metricsBytes";
+  private static final String FRAMES_HANDLER_NAME = "metricsFrames";
+
+  private static final int SIGNIFICANT_DIGITS = 2;
+
+  private static final Logger log = LoggerFactory.getLogger(StompClientMetrics.class);
+
+  /**
+   * The phases of establishing a connection.
+   */
+  public enum ConnectPhase {
+
+    /** Opening the network connection. */
+    Tcp,
+
+    /**
+     * Sending {@literal CONNECT} and receiving {@literal CONNECTED}.
+     */
+    Stomp,
+
+    /** Deriving the secret and authenticating. */
+    Authenticate,
+
+    /** Subscribing to the setup topic. */
+    Subscribe;
+
+  }
+
+  private final LongAdder framesIn = new LongAdder();
+  private final LongAdder framesOut = new LongAdder();
+  private final LongAdder bytesIn = new LongAdder();
+  private final LongAdder bytesOut = new LongAdder();
+  private final LongAdder errorFrames = new LongAdder();
+  private final LongAdder inFlightRequests = new LongAdder();
+  private final LongAdder requestCount = new LongAdder();
+  private final LongAdder requestErrors = new LongAdder();
+  private final LongAdder connectFailures = new LongAdder();
+  private final LongAdder connectionsLost = new LongAdder();
+  private final ConcurrentMap<String, Histogram> requestLatencies = new ConcurrentHashMap<>(8);
+  private final Map<ConnectPhase, Histogram> connectPhaseLatencies;
+  private final MetricsHandler handler = new MetricsHandler();
+
+  private int maxDestinations = DEFAULT_MAX_DESTINATIONS;
+  private String objectName = DEFAULT_OBJECT_NAME;
+  private ObjectName registeredName;
+
+  /**
+   * Constructor.
+   */
+  public StompClientMetrics() {
+    super();
+    connectPhaseLatencies = new EnumMap<>(ConnectPhase.class);
+    for (ConnectPhase phase : ConnectPhase.values()) {
+      connectPhaseLatencies.put(phase, new ConcurrentHistogram(SIGNIFICANT_DIGITS));
+    }
+  }
+
+  /**
+   * Register a channel.
+   * 
+   * <p>
+   * A handler counting bytes is added to the start of the pipeline, and a handler counting frames
+   * is added before the {@link NettyStompClient#CLIENT_HANDLER_NAME} handler.
+   * </p>
+   * 
+   * @param channel
+   *          the channel to register
+   */
+  public void register(Channel channel) {
+    final ChannelPipeline p = channel.pipeline();
+    p.addFirst(BYTES_HANDLER_NAME, handler);
+    if (p.get(NettyStompClient.CLIENT_HANDLER_NAME) != null) {
+      p.addBefore(NettyStompClient.CLIENT_HANDLER_NAME, FRAMES_HANDLER_NAME, handler);
+    }
+  }
+
+  /**
+   * Counts bytes when added before the STOMP codec, and frames when added after it.
+   */
+  @Sharable
+  private final class MetricsHandler extends ChannelDuplexHandler {
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+      if (msg instanceof ByteBuf) {
+        bytesIn.add(((ByteBuf) msg).readableBytes());
+      } else if (msg instanceof StompHeadersSubframe) {
+        framesIn.increment();
+        if (((StompHeadersSubframe) msg).command() == StompCommand.ERROR) {
+          errorFrames.increment();
+        }
+      }
+      ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+        throws Exception {
+      if (msg instanceof ByteBuf) {
+        bytesOut.add(((ByteBuf) msg).readableBytes());
+      } else if (msg instanceof StompHeadersSubframe) {
+        framesOut.increment();
+      }
+      ctx.write(msg, promise);
+    }
+
+  }
+
+  /**
+   * Record the start of a request.
+   * 
+   * @return the start time, to pass to {@link #requestCompleted(String, long, Throwable)}
+   */
+  public long requestStarted() {
+    inFlightRequests.increment();
+    return System.nanoTime();
+  }
+
+  /**
+   * Record the completion of a request.
+   * 
+   * <p>
+   * The latency is only recorded if the request succeeded.
+   * </p>
+   * 
+   * @param destination
+   *          the request destination
+   * @param startNanos
+   *          the start time returned by {@link #requestStarted()}
+   * @param error
+   *          the error, or {@literal null} if the request succeeded
+   */
+  public void requestCompleted(String destination, long startNanos, Throwable error) {
+    inFlightRequests.decrement();
+    requestCount.increment();
+    if (error != null) {
+      requestErrors.increment();
+      return;
+    }
+    requestLatency(destination).recordValue(micros(System.nanoTime() - startNanos));
+  }
+
+  private Histogram requestLatency(String destination) {
+    final String key = String.valueOf(destination);
+    Histogram h = requestLatencies.get(key);
+    if (h != null) {
+      return h;
+    }
+    if (requestLatencies.size() >= maxDestinations) {
+      return requestLatencies.computeIfAbsent(OTHER_DESTINATIONS,
+          k -> new ConcurrentHistogram(SIGNIFICANT_DIGITS));
+    }
+    return requestLatencies.computeIfAbsent(key, k -> new ConcurrentHistogram(SIGNIFICANT_DIGITS));
+  }
+
+  /**
+   * Start timing a connection attempt.
+   * 
+   * @return the timer
+   */
+  public ConnectTimer connectStarted() {
+    return new ConnectTimer();
+  }
+
+  /**
+   * Times the phases of a single connection attempt.
+   */
+  public final class ConnectTimer {
+
+    private long markNanos = System.nanoTime();
+
+    private ConnectTimer() {
+      super();
+    }
+
+    /**
+     * Record the completion of a phase.
+     * 
+     * <p>
+     * The phase duration is the time since the previous phase completed, or since the timer was
+     * started for the first phase.
+     * </p>
+     * 
+     * @param phase
+     *          the phase that completed
+     */
+    public synchronized void phaseCompleted(ConnectPhase phase) {
+      final long now = System.nanoTime();
+      connectPhaseLatencies.get(phase).recordValue(micros(now - markNanos));
+      markNanos = now;
+    }
+
+    /**
+     * Record that the connection attempt failed.
+     */
+    public void failed() {
+      connectFailures.increment();
+    }
+
+  }
+
+  /**
+   * Record that an established connection was lost.
+   */
+  public void connectionLost() {
+    connectionsLost.increment();
+  }
+
+  private static long micros(long nanos) {
+    return Math.max(0L, TimeUnit.NANOSECONDS.toMicros(nanos));
+  }
+
+  private static LatencySummary summary(Histogram h) {
+    final long count = h.getTotalCount();
+    if (count < 1) {
+      return new LatencySummary(0, 0, 0, 0, 0, 0, 0);
+    }
+    return new LatencySummary(count, h.getMinValue(), h.getMean(), h.getValueAtPercentile(50.0),
+        h.getValueAtPercentile(90.0), h.getValueAtPercentile(99.0), h.getMaxValue());
+  }
+
+  /**
+   * Publish these metrics to the platform MBean server, using the configured {@code objectName}.
+   * 
+   * <p>
+   * Any error registering is logged, rather than thrown.
+   * </p>
+   */
+  public synchronized void registerMBean() {
+    if (registeredName != null) {
+      return;
+    }
+    try {
+      final ObjectName name = new ObjectName(objectName);
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+      registeredName = name;
+    } catch (JMException e) {
+      log.warn("Unable to register STOMP client metrics MBean [{}]: {}", objectName, e.toString());
+    }
+  }
+
+  /**
+   * Remove these metrics from the platform MBean server, if previously published with
+   * {@link #registerMBean()}.
+   */
+  public synchronized void unregisterMBean() {
+    if (registeredName == null) {
+      return;
+    }
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      server.unregisterMBean(registeredName);
+    } catch (JMException e) {
+      log.debug("Unable to unregister STOMP client metrics MBean [{}]: {}", registeredName,
+          e.toString());
+    }
+    registeredName = null;
+  }
+
+  @Override
+  public long getFramesIn() {
+    return framesIn.sum();
+  }
+
+  @Override
+  public long getFramesOut() {
+    return framesOut.sum();
+  }
+
+  @Override
+  public long getBytesIn() {
+    return bytesIn.sum();
+  }
+
+  @Override
+  public long getBytesOut() {
+    return bytesOut.sum();
+  }
+
+  @Override
+  public long getErrorFrames() {
+    return errorFrames.sum();
+  }
+
+  @Override
+  public long getInFlightRequests() {
+    return inFlightRequests.sum();
+  }
+
+  @Override
+  public long getRequestCount() {
+    return requestCount.sum();
+  }
+
+  @Override
+  public long getRequestErrors() {
+    return requestErrors.sum();
+  }
+
+  @Override
+  public long getConnectFailures() {
+    return connectFailures.sum();
+  }
+
+  @Override
+  public long getConnectionsLost() {
+    return connectionsLost.sum();
+  }
+
+  @Override
+  public Map<String, LatencySummary> getRequestLatencies() {
+    final Map<String, LatencySummary> result = new TreeMap<>();
+    for (Map.Entry<String, Histogram> e : requestLatencies.entrySet()) {
+      result.put(e.getKey(), summary(e.getValue()));
+    }
+    return result;
+  }
+
+  @Override
+  public Map<String, LatencySummary> getConnectPhaseLatencies() {
+    final Map<String, LatencySummary> result = new LinkedHashMap<>(4);
+    for (Map.Entry<ConnectPhase, Histogram> e : connectPhaseLatencies.entrySet()) {
+      result.put(e.getKey().name(), summary(e.getValue()));
+    }
+    return result;
+  }
+
+  @Override
+  public void reset() {
+    framesIn.reset();
+    framesOut.reset();
+    bytesIn.reset();
+    bytesOut.reset();
+    errorFrames.reset();
+    requestCount.reset();
+    requestErrors.reset();
+    connectFailures.reset();
+    connectionsLost.reset();
+    requestLatencies.clear();
+    for (Histogram h : connectPhaseLatencies.values()) {
+      h.reset();
+    }
+  }
+
+  /**
+   * Get the maximum number of destinations to track request latency for.
+   * 
+   * @return the maximum number of destinations; defaults to {@link #DEFAULT_MAX_DESTINATIONS}
+   */
+  public int getMaxDestinations() {
+    return maxDestinations;
+  }
+
+  /**
+   * Set the maximum number of destinations to track request latency for.
+   * 
+   * @param maxDestinations
+   *          the maximum number of destinations
+   */
+  public void setMaxDestinations(int maxDestinations) {
+    this.maxDestinations = maxDestinations;
+  }
+
+  /**
+   * Get the JMX object name.
+   * 
+   * @return the object name to register the MBean with; defaults to {@link #DEFAULT_OBJECT_NAME}
+   */
+  public String getObjectName() {
+    return objectName;
+  }
+
+  /**
+   * Set the JMX object name.
+   * 
+   * <p>
+   * This applies the next time {@link #registerMBean()} is called.
+   * </p>
+   * 
+   * @param objectName
+   *          the object name to register the MBean with
+   * @throws IllegalArgumentException
+   *           if {@code objectName} is {@literal null}
+   */
+  public void setObjectName(String objectName) {
+    if (objectName == null) {
+      throw new IllegalArgumentException("The objectName argument must not be null.");
+    }
+    this.objectName = objectName;
+  }
+
+}
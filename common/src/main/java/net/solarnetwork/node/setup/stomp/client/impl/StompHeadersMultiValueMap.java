@@ -0,0 +1,174 @@
+/* ==================================================================
+ * StompHeadersMultiValueMap.java - 18/10/2026 12:05:43 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import io.netty.handler.codec.stomp.StompCommand;
+import io.netty.handler.codec.stomp.StompHeaders;
+import io.netty.handler.codec.stomp.StompHeadersSubframe;
+import net.solarnetwork.node.setup.stomp.client.util.StompHeaderCodec;
+
+/**
+ * A read-only {@link MultiValueMap} view of Netty {@link StompHeaders}.
+ * 
+ * <p>
+ * Single-value lookups with {@link #getFirst(String)} and {@link #containsKey(Object)} are served
+ * directly from the STOMP headers without allocating. All other read operations are served from a
+ * {@link LinkedMultiValueMap} copy of the headers that is created the first time it is needed and
+ * then cached. All modification operations throw {@link UnsupportedOperationException}.
+ * </p>
+ * 
+ * <p>
+ * Header values are unescaped according to the STOMP 1.2 value encoding rules, unless the view was
+ * created for a frame that does not use escaping, such as {@literal CONNECTED}.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class StompHeadersMultiValueMap extends AbstractMap<String, List<String>>
+    implements MultiValueMap<String, String> {
+
+  private final StompHeaders headers;
+  private final boolean escaped;
+  private MultiValueMap<String, String> materialized;
+
+  /**
+   * Constructor.
+   * 
+   * @param headers
+   *          the headers to provide a view of
+   * @param escaped
+   *          {@literal true} if the header values are escaped
+   * @throws IllegalArgumentException
+   *           if {@code headers} is {@literal null}
+   */
+  public StompHeadersMultiValueMap(StompHeaders headers, boolean escaped) {
+    super();
+    if (headers == null) {
+      throw new IllegalArgumentException("The headers argument must not be null.");
+    }
+    this.headers = headers;
+    this.escaped = escaped;
+  }
+
+  /**
+   * Create a view of the headers of a frame.
+   * 
+   * @param frame
+   *          the frame to create a view of the headers for
+   * @return the view, with escaping enabled as required by the frame command
+   */
+  public static StompHeadersMultiValueMap headersView(StompHeadersSubframe frame) {
+    final StompCommand cmd = frame.command();
+    return new StompHeadersMultiValueMap(frame.headers(), cmd != StompCommand.CONNECT
+        && cmd != StompCommand.CONNECTED && cmd != StompCommand.STOMP);
+  }
+
+  private String value(String value) {
+    return (escaped ? StompHeaderCodec.unescape(value) : value);
+  }
+
+  private MultiValueMap<String, String> materialized() {
+    MultiValueMap<String, String> m = this.materialized;
+    if (m == null) {
+      LinkedMultiValueMap<String, String> map = new LinkedMultiValueMap<>(headers.size());
+      for (Iterator<Entry<String, String>> itr = headers.iteratorAsString(); itr.hasNext();) {
+        Entry<String, String> e = itr.next();
+        map.add(e.getKey(), value(e.getValue()));
+      }
+      m = CollectionUtils.unmodifiableMultiValueMap(map);
+      this.materialized = m;
+    }
+    return m;
+  }
+
+  @Override
+  public String getFirst(String key) {
+    if (key == null) {
+      return null;
+    }
+    return value(headers.getAsString(key));
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return (key instanceof CharSequence && headers.contains((CharSequence) key));
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return headers.isEmpty();
+  }
+
+  @Override
+  public List<String> get(Object key) {
+    return materialized().get(key);
+  }
+
+  @Override
+  public Set<Entry<String, List<String>>> entrySet() {
+    return materialized().entrySet();
+  }
+
+  @Override
+  public Map<String, String> toSingleValueMap() {
+    return materialized().toSingleValueMap();
+  }
+
+  @Override
+  public void add(String key, String value) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void addAll(String key, List<? extends String> values) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void addAll(MultiValueMap<String, String> values) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void set(String key, String value) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void setAll(Map<String, String> values) {
+    throw new UnsupportedOperationException();
+  }
+
+}
@@ -0,0 +1,208 @@
+/* ==================================================================
+ * StompHeartBeatHandler.java - 18/10/2026 7:05:21 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.stomp.StompCommand;
+import io.netty.handler.codec.stomp.StompHeaders;
+import io.netty.handler.codec.stomp.StompHeadersSubframe;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AttributeKey;
+
+/**
+ * Handler for STOMP 1.2 heart-beating.
+ * 
+ * <p>
+ * A {@literal heart-beat} header is added to the outbound {@literal CONNECT} (or {@literal STOMP})
+ * frame if it does not already have one, and the intervals are negotiated from the
+ * {@literal heart-beat} header of the inbound {@literal CONNECTED} frame. An
+ * {@link IdleStateHandler} is then added to the start of the pipeline, so that a heart-beat (a
+ * single end-of-line) is written whenever nothing else has been written within the negotiated send
+ * interval, and the connection is closed if nothing at all has been read within twice the
+ * negotiated receive interval. The cause of such a close is set on the {@link #CLOSE_CAUSE} channel
+ * attribute.
+ * </p>
+ * 
+ * <p>
+ * STOMP heart-beats are not acknowledged, so a true heart-beat round trip time cannot be measured;
+ * the time between writing {@literal CONNECT} and reading {@literal CONNECTED} is used as an
+ * approximation instead, available via {@link #getConnectRoundTripMillis()}.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class StompHeartBeatHandler extends ChannelDuplexHandler {
+
+  /** The channel attribute for the cause of the channel being closed. */
+  public static final AttributeKey<Throwable> CLOSE_CAUSE = AttributeKey
+      .valueOf(StompHeartBeatHandler.class, "closeCause");
+
+  /** The pipeline name of the idle state handler. */
+  public static final String IDLE_HANDLER_NAME = "heartBeatIdle";
+
+  private static final Logger log = LoggerFactory.getLogger(StompHeartBeatHandler.class);
+
+  private static final ByteBuf HEART_BEAT = Unpooled
+      .unreleasableBuffer(Unpooled.directBuffer(1).writeByte('\n'));
+
+  private final long sendMillis;
+  private final long receiveMillis;
+
+  private long connectNanos;
+  private volatile long negotiatedSendMillis;
+  private volatile long negotiatedReceiveMillis;
+  private volatile long connectRoundTripMillis = -1;
+
+  /**
+   * Constructor.
+   * 
+   * @param sendMillis
+   *          the smallest interval the client can send heart-beats at, or {@literal 0} for none
+   * @param receiveMillis
+   *          the desired interval to receive heart-beats at, or {@literal 0} for none
+   */
+  public StompHeartBeatHandler(long sendMillis, long receiveMillis) {
+    super();
+    this.sendMillis = Math.max(0, sendMillis);
+    this.receiveMillis = Math.max(0, receiveMillis);
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+      throws Exception {
+    if (msg instanceof StompHeadersSubframe) {
+      StompHeadersSubframe f = (StompHeadersSubframe) msg;
+      if (f.command() == StompCommand.CONNECT || f.command() == StompCommand.STOMP) {
+        if (!f.headers().contains(StompHeaders.HEART_BEAT)) {
+          f.headers().set(StompHeaders.HEART_BEAT, sendMillis + "," + receiveMillis);
+        }
+        connectNanos = System.nanoTime();
+      }
+    }
+    ctx.write(msg, promise);
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+    if (msg instanceof StompHeadersSubframe
+        && ((StompHeadersSubframe) msg).command() == StompCommand.CONNECTED) {
+      connected(ctx, ((StompHeadersSubframe) msg).headers());
+    }
+    ctx.fireChannelRead(msg);
+  }
+
+  private void connected(ChannelHandlerContext ctx, StompHeaders headers) {
+    if (connectNanos != 0) {
+      connectRoundTripMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectNanos);
+    }
+    long serverSend = 0;
+    long serverReceive = 0;
+    String hb = headers.getAsString(StompHeaders.HEART_BEAT);
+    if (hb != null) {
+      int idx = hb.indexOf(',');
+      if (idx > 0) {
+        try {
+          serverSend = Long.parseLong(hb.substring(0, idx).trim());
+          serverReceive = Long.parseLong(hb.substring(idx + 1).trim());
+        } catch (NumberFormatException e) {
+          log.warn("Ignoring invalid heart-beat header value [{}]", hb);
+        }
+      }
+    }
+    negotiatedSendMillis = (sendMillis > 0 && serverReceive > 0
+        ? Math.max(sendMillis, serverReceive)
+        : 0);
+    negotiatedReceiveMillis = (receiveMillis > 0 && serverSend > 0
+        ? Math.max(receiveMillis, serverSend)
+        : 0);
+    log.debug("STOMP heart-beat negotiated as send {}ms, receive {}ms; CONNECT RTT {}ms",
+        negotiatedSendMillis, negotiatedReceiveMillis, connectRoundTripMillis);
+    if (ctx.pipeline().get(IDLE_HANDLER_NAME) != null) {
+      ctx.pipeline().remove(IDLE_HANDLER_NAME);
+    }
+    if (negotiatedSendMillis > 0 || negotiatedReceiveMillis > 0) {
+      ctx.pipeline().addFirst(IDLE_HANDLER_NAME, new IdleStateHandler(negotiatedReceiveMillis * 2,
+          negotiatedSendMillis, 0, TimeUnit.MILLISECONDS));
+    }
+  }
+
+  @Override
+  public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+    if (evt instanceof IdleStateEvent) {
+      IdleStateEvent e = (IdleStateEvent) evt;
+      if (e.state() == IdleState.WRITER_IDLE) {
+        ctx.writeAndFlush(HEART_BEAT.duplicate());
+      } else if (e.state() == IdleState.READER_IDLE) {
+        IOException cause = new IOException(
+            "No heart-beat received within " + (negotiatedReceiveMillis * 2) + "ms.");
+        log.warn("Closing STOMP connection {}: {}", ctx.channel(), cause.getMessage());
+        ctx.channel().attr(CLOSE_CAUSE).setIfAbsent(cause);
+        ctx.close();
+      }
+      return;
+    }
+    ctx.fireUserEventTriggered(evt);
+  }
+
+  /**
+   * Get the negotiated heart-beat send interval.
+   * 
+   * @return the interval, in milliseconds, or {@literal 0} if the client does not send heart-beats
+   */
+  public long getNegotiatedSendMillis() {
+    return negotiatedSendMillis;
+  }
+
+  /**
+   * Get the negotiated heart-beat receive interval.
+   * 
+   * @return the interval, in milliseconds, or {@literal 0} if the server does not send heart-beats
+   */
+  public long getNegotiatedReceiveMillis() {
+    return negotiatedReceiveMillis;
+  }
+
+  /**
+   * Get the approximate round trip time, from writing {@literal CONNECT} to reading
+   * {@literal CONNECTED}.
+   * 
+   * @return the round trip time, in milliseconds, or {@literal -1} if not known
+   */
+  public long getConnectRoundTripMillis() {
+    return connectRoundTripMillis;
+  }
+
+}
@@ -22,29 +22,69 @@
 
 package net.solarnetwork.node.setup.stomp.client.impl;
 
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.Set;
 import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.stomp.DefaultStompFrame;
+import io.netty.handler.codec.stomp.LastStompContentSubframe;
+import io.netty.handler.codec.stomp.StompContentSubframe;
 import io.netty.handler.codec.stomp.StompFrame;
+import io.netty.handler.codec.stomp.StompHeaders;
+import io.netty.handler.codec.stomp.StompHeadersSubframe;
 import io.netty.util.ReferenceCountUtil;
 import net.solarnetwork.node.setup.stomp.client.domain.StompMessage;
+import net.solarnetwork.node.setup.stomp.client.service.StompFrameStreamConsumer;
+import net.solarnetwork.node.setup.stomp.client.util.DestinationPatternIndex;
 
 /**
  * Client handler for STOMP setup.
  * 
+ * <p>
+ * Each frame is passed to the consumers as a {@link NettyStompMessage} that shares the frame's
+ * buffer without copying it. The frame is released once all consumers have been called, so
+ * consumers that keep a message must retain or detach it.
+ * </p>
+ * 
+ * <p>
+ * The handler accepts either complete {@link StompFrame} messages, as produced by a
+ * {@link io.netty.handler.codec.stomp.StompSubframeAggregator}, or the individual subframes
+ * produced by a {@link io.netty.handler.codec.stomp.StompSubframeDecoder}. In the latter
+ * (streaming) mode, the content of frames accepted by a {@link StompFrameStreamConsumer} is passed
+ * to that consumer as each subframe arrives and is never aggregated in memory, while all other
+ * frames are aggregated up to {@code maxFrameLength} bytes and then handled like complete frames.
+ * </p>
+ * 
+ * <p>
+ * Complete frames are passed to all consumers in the consumers set, and to the consumers in the
+ * destination index registered with a pattern matching the frame's {@literal destination} header.
+ * </p>
+ * 
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
 public class StompSetupClientHandler extends ChannelInboundHandlerAdapter {
 
   private static final Logger log = LoggerFactory.getLogger(StompSetupClientHandler.class);
 
   private final Set<Consumer<StompMessage<String>>> consumers;
+  private final DestinationPatternIndex<Consumer<StompMessage<String>>> destinationConsumers;
+  private final Set<StompFrameStreamConsumer> streamConsumers;
+  private final int maxFrameLength;
+
+  private NettyStompMessage<String> streamFrame;
+  private StompFrameStreamConsumer streamConsumer;
+  private StompFrame aggregateFrame;
 
   /**
    * Constructor.
@@ -55,33 +95,182 @@ public class StompSetupClientHandler extends ChannelInboundHandlerAdapter {
    *           if any argument is {@literal null}
    */
   public StompSetupClientHandler(Set<Consumer<StompMessage<String>>> consumers) {
+    this(consumers, Collections.emptySet(), Integer.MAX_VALUE);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param consumers
+   *          the consumers set
+   * @param streamConsumers
+   *          the stream consumers set
+   * @param maxFrameLength
+   *          the maximum content length of frames aggregated by this handler in streaming mode
+   * @throws IllegalArgumentException
+   *           if any argument is {@literal null}
+   */
+  public StompSetupClientHandler(Set<Consumer<StompMessage<String>>> consumers,
+      Set<StompFrameStreamConsumer> streamConsumers, int maxFrameLength) {
+    this(consumers, new DestinationPatternIndex<>(), streamConsumers, maxFrameLength);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param consumers
+   *          the consumers set
+   * @param destinationConsumers
+   *          the destination-routed consumers index
+   * @param streamConsumers
+   *          the stream consumers set
+   * @param maxFrameLength
+   *          the maximum content length of frames aggregated by this handler in streaming mode
+   * @throws IllegalArgumentException
+   *           if any argument is {@literal null}
+   */
+  public StompSetupClientHandler(Set<Consumer<StompMessage<String>>> consumers,
+      DestinationPatternIndex<Consumer<StompMessage<String>>> destinationConsumers,
+      Set<StompFrameStreamConsumer> streamConsumers, int maxFrameLength) {
     super();
     if (consumers == null) {
       throw new IllegalArgumentException("The consumers argument must not be null.");
     }
+    if (destinationConsumers == null) {
+      throw new IllegalArgumentException("The destinationConsumers argument must not be null.");
+    }
+    if (streamConsumers == null) {
+      throw new IllegalArgumentException("The streamConsumers argument must not be null.");
+    }
     this.consumers = consumers;
+    this.destinationConsumers = destinationConsumers;
+    this.streamConsumers = streamConsumers;
+    this.maxFrameLength = maxFrameLength;
   }
 
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object msg) {
     try {
-      StompFrame frame = (msg instanceof StompFrame ? (StompFrame) msg : null);
-      if (frame == null) {
-        return;
-      }
-      log.debug("Got stomp message: {}", frame);
-      NettyStompMessage<String> message = NettyStompMessage.stringMessage(frame);
-      for (Consumer<StompMessage<String>> c : consumers) {
-        c.accept(message);
+      if (msg instanceof StompFrame) {
+        frameReceived((StompFrame) msg);
+      } else if (msg instanceof StompHeadersSubframe) {
+        headersReceived(ctx, (StompHeadersSubframe) msg);
+      } else if (msg instanceof StompContentSubframe) {
+        contentReceived((StompContentSubframe) msg);
       }
     } finally {
       ReferenceCountUtil.release(msg);
     }
   }
 
+  private void frameReceived(StompFrame frame) {
+    log.debug("Got stomp message: {}", frame);
+    NettyStompMessage<String> message = NettyStompMessage.stringMessage(frame);
+    StompFrameStreamConsumer sc = streamConsumer(message);
+    if (sc != null) {
+      ByteBuffer[] buffers = frame.content().nioBuffers();
+      if (buffers.length < 1) {
+        sc.frameContent(message, ByteBuffer.allocate(0), true);
+      }
+      for (int i = 0; i < buffers.length; i++) {
+        sc.frameContent(message, buffers[i], i + 1 == buffers.length);
+      }
+      return;
+    }
+    dispatch(message);
+  }
+
+  private void dispatch(StompMessage<String> message) {
+    for (Consumer<StompMessage<String>> c : consumers) {
+      c.accept(message);
+    }
+    if (destinationConsumers.isEmpty() || message.getHeaders() == null) {
+      return;
+    }
+    final String dest = message.getHeaders().getFirst(StompHeaders.DESTINATION.toString());
+    for (Consumer<StompMessage<String>> c : destinationConsumers.match(dest)) {
+      c.accept(message);
+    }
+  }
+
+  private StompFrameStreamConsumer streamConsumer(StompMessage<String> message) {
+    for (StompFrameStreamConsumer sc : streamConsumers) {
+      if (sc.acceptFrame(message)) {
+        return sc;
+      }
+    }
+    return null;
+  }
+
+  private void headersReceived(ChannelHandlerContext ctx, StompHeadersSubframe headers) {
+    resetFrame();
+    DefaultStompFrame frame = new DefaultStompFrame(headers.command(), Unpooled.EMPTY_BUFFER);
+    frame.headers().set(headers.headers());
+    NettyStompMessage<String> message = NettyStompMessage.stringMessage(frame);
+    StompFrameStreamConsumer sc = streamConsumer(message);
+    if (sc != null) {
+      log.debug("Streaming stomp message: {}", frame);
+      streamFrame = message;
+      streamConsumer = sc;
+    } else {
+      aggregateFrame = new DefaultStompFrame(headers.command(), ctx.alloc().compositeBuffer());
+      aggregateFrame.headers().set(headers.headers());
+    }
+  }
+
+  private void contentReceived(StompContentSubframe content) {
+    final boolean last = (content instanceof LastStompContentSubframe);
+    if (streamConsumer != null) {
+      final StompFrameStreamConsumer sc = streamConsumer;
+      final NettyStompMessage<String> message = streamFrame;
+      if (last) {
+        streamConsumer = null;
+        streamFrame = null;
+      }
+      sc.frameContent(message, content.content().nioBuffer(), last);
+    } else if (aggregateFrame != null) {
+      final CompositeByteBuf buf = (CompositeByteBuf) aggregateFrame.content();
+      final ByteBuf chunk = content.content();
+      if (buf.readableBytes() > maxFrameLength - chunk.readableBytes()) {
+        resetFrame();
+        throw new TooLongFrameException(
+            "STOMP frame content exceeds " + maxFrameLength + " bytes.");
+      }
+      if (chunk.isReadable()) {
+        buf.addComponent(true, chunk.retain());
+      }
+      if (last) {
+        final StompFrame frame = aggregateFrame;
+        aggregateFrame = null;
+        log.debug("Got stomp message: {}", frame);
+        try {
+          dispatch(NettyStompMessage.stringMessage(frame));
+        } finally {
+          frame.release();
+        }
+      }
+    }
+  }
+
+  private void resetFrame() {
+    streamConsumer = null;
+    streamFrame = null;
+    if (aggregateFrame != null) {
+      aggregateFrame.release();
+      aggregateFrame = null;
+    }
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+    resetFrame();
+    super.channelInactive(ctx);
+  }
+
   @Override
   public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
     cause.printStackTrace();
+    ctx.channel().attr(StompHeartBeatHandler.CLOSE_CAUSE).setIfAbsent(cause);
     ctx.close();
   }
 
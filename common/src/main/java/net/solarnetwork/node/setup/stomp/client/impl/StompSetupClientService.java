@@ -25,49 +25,141 @@ package net.solarnetwork.node.setup.stomp.client.impl;
 import static net.solarnetwork.node.setup.stomp.client.domain.BasicStompMessage.stringMessage;
 import static net.solarnetwork.util.NumberUtils.getAndIncrementWithWrap;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
+import java.util.function.Function;
 
-import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.crypto.bcrypt.BCrypt;
 import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.PathMatcher;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import net.solarnetwork.domain.datum.Datum;
 import net.solarnetwork.node.setup.stomp.SetupHeader;
 import net.solarnetwork.node.setup.stomp.SetupTopic;
 import net.solarnetwork.node.setup.stomp.StompCommand;
 import net.solarnetwork.node.setup.stomp.StompHeader;
+import net.solarnetwork.node.setup.stomp.client.domain.Command;
 import net.solarnetwork.node.setup.stomp.client.domain.Message;
+import net.solarnetwork.node.setup.stomp.client.domain.RetainableStompMessage;
 import net.solarnetwork.node.setup.stomp.client.domain.StompMessage;
 import net.solarnetwork.node.setup.stomp.client.service.SetupClientService;
+import net.solarnetwork.node.setup.stomp.client.service.StompFrameStreamConsumer;
 import net.solarnetwork.node.setup.stomp.client.service.StompSetupClient;
 import net.solarnetwork.node.setup.stomp.client.service.StompSetupClientFactory;
+import net.solarnetwork.node.setup.stomp.client.service.Subscription;
+import net.solarnetwork.node.setup.stomp.client.util.BcryptSecretCache;
+import net.solarnetwork.node.setup.stomp.client.util.ExecutorUtils;
+import net.solarnetwork.node.setup.stomp.client.util.JsonArrayStreamDecoder;
 import net.solarnetwork.security.SnsAuthorizationBuilder;
 
 /**
  * Implementation of {@link SetupClientService} using the STOMP protocol.
  * 
+ * <p>
+ * Each {@literal SEND} message is given a unique {@link #REQUEST_ID_HEADER} header value, and any
+ * number of requests can be outstanding at once. Response {@literal MESSAGE} frames are routed to
+ * their request by that header, falling back to the oldest outstanding request for the response
+ * destination if the server did not include it. The fallback is not used for destinations
+ * matching {@code datumTopicPattern} while datum subscriptions are active, so that pushed datum
+ * are never mistaken for a response.
+ * </p>
+ * 
+ * <p>
+ * Datum responses are decoded as a stream with a {@link JsonArrayStreamDecoder}, directly from the
+ * response frame content. If the client is configured for streaming, the response content is
+ * decoded chunk by chunk as it arrives, and each datum is made available as soon as it has been
+ * parsed.
+ * </p>
+ * 
+ * <p>
+ * Datum pushed by the server over the {@link #SETUP_SUBSCRIBE_TOPIC} subscription, to a
+ * destination matching {@code datumTopicPattern}, are delivered to the consumers registered with
+ * {@link #subscribeDatum(Set, Consumer)}. Such messages are only decoded while at least one
+ * subscription is active.
+ * </p>
+ * 
+ * <p>
+ * Each request is given a deadline of {@code timeoutSeconds}, tracked on a {@link Timer} shared
+ * by all instances of this class. A request that has not received a response by its deadline is
+ * failed with a {@link TimeoutException}, and forgotten so that a late response is ignored.
+ * Cancelling the future returned for a request also forgets it. No thread is blocked waiting on
+ * outstanding requests, other than callers of the synchronous methods.
+ * </p>
+ * 
+ * <p>
+ * If the connection is lost, for example because the server stopped sending heart-beats, all
+ * outstanding requests are failed immediately rather than waiting for them to time out.
+ * </p>
+ * 
+ * <p>
+ * When {@code autoReconnect} is enabled, a lost connection is re-established using the
+ * credentials of the last successful {@link #connectAsync(String, int, String, String)} call,
+ * with exponential backoff between attempts from {@code reconnectInitialDelayMillis} up to
+ * {@code reconnectMaxDelayMillis}, randomly reduced by up to half. Each attempt repeats the full
+ * {@literal CONNECT}, authenticate, and {@literal SUBSCRIBE} handshake. Datum subscriptions are
+ * kept across reconnections. Outstanding requests are handled according to the
+ * {@link InFlightPolicy}. Calling {@link #disconnect()} stops any further attempts.
+ * </p>
+ * 
+ * <p>
+ * The requests of a batch executed with {@link #executeBatchAsync(List)}, or re-sent after
+ * reconnecting, are posted together with {@link StompSetupClient#postAll(List)}, so they are
+ * written back-to-back and flushed once. Their responses are correlated as they arrive.
+ * </p>
+ * 
+ * <p>
+ * The authentication secret is derived from the password with bcrypt by a
+ * {@link BcryptSecretCache}, on its own executor rather than the connection's I/O thread, and
+ * cached so reconnecting with the same credentials does not derive it again.
+ * </p>
+ * 
+ * <p>
+ * If a {@link StompClientMetrics} is configured, the latency of each request is recorded by
+ * destination, along with the number of in-flight requests, the duration of each phase of
+ * connecting, and counts of failed requests, failed connection attempts, and lost connections.
+ * </p>
+ * 
  * @author matt
- * @version 1.0
+ * @version 1.6
  */
 @Service
 public class StompSetupClientService implements SetupClientService, Consumer<StompMessage<String>> {
@@ -83,16 +175,93 @@ public class StompSetupClientService implements SetupClientService, Consumer<Sto
   /** The JSON UTF-8 content type. */
   public static final String JSON_UTF8_CONTENT_TYPE = "application/json;charset=utf-8";
 
+  /** The message header used to correlate response messages to requests. */
+  public static final String REQUEST_ID_HEADER = "request-id";
+
+  /**
+   * The {@code datumTopicPattern} property default value.
+   */
+  public static final String DEFAULT_DATUM_TOPIC_PATTERN = "/setup/datum/**";
+
+  /**
+   * The {@code reconnectInitialDelayMillis} property default value.
+   */
+  public static final long DEFAULT_RECONNECT_INITIAL_DELAY_MILLIS = 1_000L;
+
+  /**
+   * The {@code reconnectMaxDelayMillis} property default value.
+   */
+  public static final long DEFAULT_RECONNECT_MAX_DELAY_MILLIS = 60_000L;
+
   private static final Logger log = LoggerFactory.getLogger(StompSetupClientService.class);
 
+  /**
+   * Policy for handling outstanding requests when the connection is lost and
+   * {@code autoReconnect} is enabled.
+   */
+  public enum InFlightPolicy {
+
+    /** Fail outstanding requests immediately. */
+    Fail,
+
+    /**
+     * Keep outstanding requests, and send them again once reconnected. Requests made while
+     * reconnecting are also held until then. Note a request might be processed twice if the
+     * connection was lost after the server received it.
+     */
+    Requeue;
+
+  }
+
+  /**
+   * The settings needed to re-establish a connection.
+   */
+  private static final class ConnectionSettings {
+
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+
+    private ConnectionSettings(String host, int port, String username, String password) {
+      super();
+      this.host = host;
+      this.port = port;
+      this.username = username;
+      this.password = password;
+    }
+
+  }
+
   private final AtomicInteger ids = new AtomicInteger(0);
+  private final AtomicLong requestIds = new AtomicLong(0);
+  private final ConcurrentMap<String, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Queue<PendingRequest>> pendingByDestination;
   private final StompSetupClientFactory clientFactory;
-  private StompSetupClient stompClient;
+  private volatile StompSetupClient stompClient;
+  private StompSetupClient handshakeClient;
   private long timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
   private ObjectMapper objectMapper = new ObjectMapper();
+  private JsonArrayStreamDecoder<Datum> datumDecoder = new JsonArrayStreamDecoder<>(objectMapper,
+      Datum.class);
+  private final DatumFrameStreamConsumer datumStreamConsumer = new DatumFrameStreamConsumer();
+  private final Set<DatumSubscription> datumSubscriptions = new CopyOnWriteArraySet<>();
+  private final PathMatcher pathMatcher = new AntPathMatcher();
+  private String datumTopicPattern = DEFAULT_DATUM_TOPIC_PATTERN;
 
-  private Predicate<StompMessage<String>> actionFilter;
-  private CompletableFuture<StompMessage<String>> actionFuture;
+  private boolean autoReconnect = false;
+  private long reconnectInitialDelayMillis = DEFAULT_RECONNECT_INITIAL_DELAY_MILLIS;
+  private long reconnectMaxDelayMillis = DEFAULT_RECONNECT_MAX_DELAY_MILLIS;
+  private InFlightPolicy inFlightPolicy = InFlightPolicy.Fail;
+  private ScheduledExecutorService reconnectScheduler;
+  private BcryptSecretCache secretCache;
+  private StompClientMetrics metrics;
+  private Timer requestTimer;
+
+  private volatile CompletableFuture<StompMessage<String>> connectedFuture;
+  private ConnectionSettings connectionSettings;
+  private ScheduledFuture<?> reconnectFuture;
+  private volatile boolean reconnecting;
 
   /**
    * Constructor.
@@ -106,108 +275,460 @@ public class StompSetupClientService implements SetupClientService, Consumer<Sto
       throw new IllegalArgumentException("The clientFactory argument must not be null.");
     }
     this.clientFactory = clientFactory;
+    this.pendingByDestination = new ConcurrentHashMap<>(8);
+    this.secretCache = DefaultSecretCache.INSTANCE;
+    this.requestTimer = DefaultRequestTimer.INSTANCE;
   }
 
-  private static Predicate<StompMessage<String>> commandFilter(StompCommand command) {
-    return (msg) -> {
-      return (msg != null && command == msg.getCommand());
-    };
+  /**
+   * Lazy holder of the default secret cache, shared by all service instances.
+   */
+  private static final class DefaultSecretCache {
+
+    private static final BcryptSecretCache INSTANCE = new BcryptSecretCache(
+        ExecutorUtils.newBoundedExecutor("STOMP-Setup-Bcrypt",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 256),
+        BcryptSecretCache.DEFAULT_MAXIMUM_SIZE);
+
   }
 
-  private static Predicate<StompMessage<String>> messageTopicFilter(String topic) {
-    return (msg) -> {
-      return (msg != null && StompCommand.MESSAGE == msg.getCommand() && msg.getHeaders() != null
-          && topic.equals(msg.getHeaders().getFirst(StompHeader.Destination.getValue())));
-    };
+  /**
+   * Get the default request deadline timer.
+   * 
+   * <p>
+   * This is a {@link HashedWheelTimer} with a tick duration of 100ms that is shared by all
+   * instances of this class, and may be shared by other services that need coarse timeouts. It
+   * must not be stopped.
+   * </p>
+   * 
+   * @return the shared timer, never {@literal null}
+   * @since 1.6
+   */
+  public static Timer defaultRequestTimer() {
+    return DefaultRequestTimer.INSTANCE;
+  }
+
+  /**
+   * Lazy holder of the default request deadline timer, shared by all service instances.
+   */
+  private static final class DefaultRequestTimer {
+
+    private static final Timer INSTANCE = new HashedWheelTimer(
+        new DefaultThreadFactory("STOMP-Setup-Timeout", true), 100, TimeUnit.MILLISECONDS);
+
+  }
+
+  /**
+   * An outstanding request awaiting a response message.
+   */
+  private static final class PendingRequest {
+
+    private final long id;
+    private final String destination;
+    private final CompletableFuture<Message<String>> future;
+    private final Consumer<Datum> datumConsumer;
+    private final MultiValueMap<String, String> headers;
+    private final String body;
+    private final String contentType;
+
+    private PendingRequest(long id, String destination, CompletableFuture<Message<String>> future,
+        Consumer<Datum> datumConsumer, MultiValueMap<String, String> headers, String body,
+        String contentType) {
+      super();
+      this.id = id;
+      this.destination = destination;
+      this.future = future;
+      this.datumConsumer = datumConsumer;
+      this.headers = headers;
+      this.body = body;
+      this.contentType = contentType;
+    }
+
   }
 
   @Override
   public void connect(String host, int port, String username, String password) {
-    StompSetupClient c = null;
     try {
-      final CompletableFuture<Void> authFuture;
-      synchronized (this) {
-        if (stompClient != null) {
-          stompClient.disconnect();
-          stompClient = null;
+      await(connectAsync(host, port, username, password));
+    } catch (RuntimeException e) {
+      String msg = "Error connecting to " + host + ":" + port + ": " + e.getMessage();
+      throw new RuntimeException(msg, e.getCause());
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * <p>
+   * If the returned stage is cancelled or otherwise completed before the connection is
+   * established, for example when {@link #connect(String, int, String, String)} times out, the
+   * connection attempt is abandoned and the connection closed.
+   * </p>
+   */
+  @Override
+  public CompletionStage<Void> connectAsync(String host, int port, String username,
+      String password) {
+    final ConnectionSettings settings = new ConnectionSettings(host, port, username, password);
+    final StompSetupClient old;
+    final StompSetupClient oldHandshake;
+    synchronized (this) {
+      stopReconnecting();
+      old = stompClient;
+      oldHandshake = handshakeClient;
+      stompClient = null;
+      handshakeClient = null;
+    }
+    disconnect(old);
+    disconnect(oldHandshake);
+    failPendingRequests(new IOException("Connection closed."));
+    final CompletableFuture<Void> result = handshake(settings, () -> true, () -> {
+      connectionSettings = settings;
+    });
+    result.whenComplete((v, t) -> {
+      if (t != null) {
+        synchronized (this) {
+          // abandoned just after connecting
+          if (connectionSettings == settings) {
+            stopReconnecting();
+          }
         }
-        if (actionFuture != null) {
-          throw new RuntimeException("Multiplexed messages not supported.");
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Connect a new client and perform the STOMP and authentication handshake.
+   * 
+   * <p>
+   * The returned future can be completed early, for example cancelled, to abandon the attempt and
+   * close the client's connection.
+   * </p>
+   * 
+   * <p>
+   * The new client is only installed as the service's client once the handshake is complete, so
+   * requests are not sent before the setup topic subscription exists.
+   * </p>
+   * 
+   * @param settings
+   *          the connection settings
+   * @param wanted
+   *          called while holding this service's lock before installing the new client and once
+   *          the handshake is complete; returns {@literal false} if the connection is no longer
+   *          wanted, in which case the handshake fails
+   * @param connected
+   *          called while holding this service's lock once the handshake is complete and the
+   *          connection is still wanted
+   * @return the future, completed once connected
+   */
+  private CompletableFuture<Void> handshake(ConnectionSettings settings, BooleanSupplier wanted,
+      Runnable connected) {
+    final String host = settings.host;
+    final String username = settings.username;
+    final String password = settings.password;
+    final StompSetupClient c;
+    final StompSetupClient old;
+    final StompSetupClient oldHandshake;
+    final CompletableFuture<StompMessage<String>> connFuture = new CompletableFuture<>();
+    final StompClientMetrics m = this.metrics;
+    final StompClientMetrics.ConnectTimer timer = (m != null ? m.connectStarted() : null);
+    synchronized (this) {
+      if (!wanted.getAsBoolean()) {
+        if (timer != null) {
+          timer.failed();
         }
-        c = clientFactory.createClient(host, port);
-        c.addMessageConsumer(this);
-        c.connect().get(timeoutSeconds, TimeUnit.SECONDS);
-        stompClient = c;
-
-        final StompSetupClient client = c;
-        final CompletableFuture<StompMessage<String>> connFuture = new CompletableFuture<>();
-        authFuture = connFuture.thenCompose(msg -> {
-          CompletableFuture<Void> f = new CompletableFuture<>();
-          MultiValueMap<String, String> headers = msg.getHeaders();
-          if (headers == null) {
-            f.completeExceptionally(new RuntimeException("No CONNECTED headers."));
-          } else if (!"bcrypt".equals(headers.getFirst(SetupHeader.AuthHash.getValue()))) {
-            f.completeExceptionally(new RuntimeException("Unsupported auth-hash value: "
-                + headers.getFirst(SetupHeader.AuthHash.getValue())));
-          } else if (headers.getFirst("auth-hash-param-salt") == null) {
-            f.completeExceptionally(new RuntimeException("Missing auth-hash-param-salt header."));
-          } else {
-            String salt = headers.getFirst("auth-hash-param-salt");
-            String secret = DigestUtils.sha256Hex(BCrypt.hashpw(password, salt));
-            // @formatter:off
-            SnsAuthorizationBuilder authBuilder = new SnsAuthorizationBuilder(username)
-                .verb(StompCommand.SEND.getValue())
-                .path(SetupTopic.Authenticate.getValue());
-            // @formatter:on
-            String authHeader = authBuilder.build(secret);
-            String dateHeader = authBuilder.headerValue("date");
-            MultiValueMap<String, String> authHeaders = new LinkedMultiValueMap<>(2);
-            authHeaders.set(SetupHeader.Authorization.getValue(), authHeader);
-            authHeaders.set(SetupHeader.Date.getValue(), dateHeader);
-            authHeaders.set(StompHeader.Destination.getValue(), "/setup/authenticate");
-            postAndWait(client, StompCommand.SEND, authHeaders, null, f);
-          }
-          return f;
-        }).thenCompose(Void -> {
-          CompletableFuture<Void> f = new CompletableFuture<>();
+        return failedFuture(abandoned(settings));
+      }
+      old = stompClient;
+      oldHandshake = handshakeClient;
+      c = clientFactory.createClient(host, settings.port);
+      c.addMessageConsumer(this);
+      c.addFrameStreamConsumer(datumStreamConsumer);
+      c.addCloseListener(cause -> connectionLost(c, cause));
+      stompClient = null;
+      handshakeClient = c;
+      this.connectedFuture = connFuture;
+    }
+    disconnect(old);
+    disconnect(oldHandshake);
+
+    final CompletableFuture<Void> result = new CompletableFuture<>();
+    result.whenComplete((v, t) -> {
+      if (t != null) {
+        if (timer != null) {
+          timer.failed();
+        }
+        connectFailed(c);
+      }
+    });
+
+    // @formatter:off
+    c.connect()
+        .thenCompose(v -> {
+          phaseCompleted(timer, StompClientMetrics.ConnectPhase.Tcp);
+          // CONNECT
+          MultiValueMap<String, String> headers = new LinkedMultiValueMap<>(2);
+          headers.set(StompHeader.AcceptVersion.getValue(), "1.2");
+          headers.set(StompHeader.Host.getValue(), host);
+          headers.set(StompHeader.Login.getValue(), username);
+          return c.post(stringMessage(StompCommand.CONNECT, headers, null));
+        })
+        .thenCompose(v -> connFuture)
+        .thenCompose(msg -> {
+          phaseCompleted(timer, StompClientMetrics.ConnectPhase.Stomp);
+          return authenticate(c, msg, username, password);
+        })
+        .thenCompose(v -> {
+          phaseCompleted(timer, StompClientMetrics.ConnectPhase.Authenticate);
           MultiValueMap<String, String> headers = new LinkedMultiValueMap<>(2);
           headers.set(StompHeader.Destination.getValue(), SETUP_SUBSCRIBE_TOPIC);
           headers.set(StompHeader.Id.getValue(), String.valueOf(getAndIncrementWithWrap(ids, 0)));
-          postAndWait(client, StompCommand.SUBSCRIBE, headers, null, f);
-          return f;
+          return post(c, StompCommand.SUBSCRIBE, headers);
+        })
+        .whenComplete((v, t) -> {
+          if (t != null) {
+            result.completeExceptionally(t);
+            return;
+          }
+          final boolean installed;
+          synchronized (this) {
+            installed = (handshakeClient == c && !result.isDone() && wanted.getAsBoolean());
+            if (installed) {
+              handshakeClient = null;
+              stompClient = c;
+              connected.run();
+            }
+          }
+          if (installed) {
+            phaseCompleted(timer, StompClientMetrics.ConnectPhase.Subscribe);
+            result.complete(null);
+          } else {
+            // disconnects c
+            result.completeExceptionally(abandoned(settings));
+          }
         });
-        this.actionFuture = connFuture;
-        this.actionFilter = commandFilter(StompCommand.CONNECTED);
-      }
+    // @formatter:on
+    return result;
+  }
 
-      // CONNECT
-      MultiValueMap<String, String> headers = new LinkedMultiValueMap<>(2);
-      headers.set(StompHeader.AcceptVersion.getValue(), "1.2");
-      headers.set(StompHeader.Host.getValue(), host);
-      headers.set(StompHeader.Login.getValue(), username);
-      c.post(stringMessage(StompCommand.CONNECT, headers, null)).get(timeoutSeconds,
-          TimeUnit.SECONDS);
-
-      authFuture.get(timeoutSeconds, TimeUnit.SECONDS);
-    } catch (InterruptedException | ExecutionException | TimeoutException e) {
-      if (c != null) {
-        try {
-          c.disconnect();
-        } catch (Exception e2) {
-          // ignore
+  private static CancellationException abandoned(ConnectionSettings settings) {
+    return new CancellationException(
+        "Connection to " + settings.host + ":" + settings.port + " abandoned.");
+  }
+
+  private static void phaseCompleted(StompClientMetrics.ConnectTimer timer,
+      StompClientMetrics.ConnectPhase phase) {
+    if (timer != null) {
+      timer.phaseCompleted(phase);
+    }
+  }
+
+  private CompletableFuture<Void> authenticate(StompSetupClient c, StompMessage<String> msg,
+      String username, String password) {
+    MultiValueMap<String, String> headers = msg.getHeaders();
+    if (headers == null) {
+      return failedFuture(new RuntimeException("No CONNECTED headers."));
+    } else if (!"bcrypt".equals(headers.getFirst(SetupHeader.AuthHash.getValue()))) {
+      return failedFuture(new RuntimeException(
+          "Unsupported auth-hash value: " + headers.getFirst(SetupHeader.AuthHash.getValue())));
+    } else if (headers.getFirst("auth-hash-param-salt") == null) {
+      return failedFuture(new RuntimeException("Missing auth-hash-param-salt header."));
+    }
+    String salt = headers.getFirst("auth-hash-param-salt");
+    // bcrypt is slow, so derive off the I/O thread
+    return secretCache.secret(username, salt, password)
+        .thenCompose(secret -> authenticate(c, username, secret));
+  }
+
+  private CompletableFuture<Void> authenticate(StompSetupClient c, String username,
+      String secret) {
+    // @formatter:off
+    SnsAuthorizationBuilder authBuilder = new SnsAuthorizationBuilder(username)
+        .verb(StompCommand.SEND.getValue())
+        .path(SetupTopic.Authenticate.getValue());
+    // @formatter:on
+    String authHeader = authBuilder.build(secret);
+    String dateHeader = authBuilder.headerValue("date");
+    MultiValueMap<String, String> authHeaders = new LinkedMultiValueMap<>(2);
+    authHeaders.set(SetupHeader.Authorization.getValue(), authHeader);
+    authHeaders.set(SetupHeader.Date.getValue(), dateHeader);
+    authHeaders.set(StompHeader.Destination.getValue(), "/setup/authenticate");
+    return post(c, StompCommand.SEND, authHeaders);
+  }
+
+  private void connectFailed(StompSetupClient c) {
+    synchronized (this) {
+      if (stompClient == c || handshakeClient == c) {
+        if (stompClient == c) {
+          stompClient = null;
+        } else {
+          handshakeClient = null;
+        }
+        if (connectedFuture != null) {
+          connectedFuture.cancel(false);
+          connectedFuture = null;
         }
       }
-      String msg = "Error connecting to " + host + ":" + port + ": " + e.getMessage();
-      throw new RuntimeException(msg, e);
+    }
+    try {
+      c.disconnect();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+  private void connectionLost(StompSetupClient c, Throwable cause) {
+    final CompletableFuture<StompMessage<String>> connFuture;
+    final ConnectionSettings settings;
+    final boolean alreadyReconnecting;
+    synchronized (this) {
+      if (stompClient == c) {
+        stompClient = null;
+      } else if (handshakeClient == c) {
+        handshakeClient = null;
+      } else {
+        return;
+      }
+      connFuture = connectedFuture;
+      connectedFuture = null;
+      settings = (autoReconnect ? connectionSettings : null);
+      alreadyReconnecting = reconnecting;
+      reconnecting = (settings != null);
+    }
+    final StompClientMetrics m = this.metrics;
+    if (m != null) {
+      m.connectionLost();
+    }
+    final IOException e = new IOException("Connection lost.", cause);
+    if (connFuture != null) {
+      connFuture.completeExceptionally(e);
+    }
+    if (settings == null || inFlightPolicy == InFlightPolicy.Fail) {
+      failPendingRequests(e);
+    }
+    if (settings != null && !alreadyReconnecting) {
+      // a failed reconnection attempt schedules the next attempt itself
+      log.warn("Connection to {}:{} lost; will reconnect: {}", settings.host, settings.port,
+          e.getMessage());
+      scheduleReconnect(settings, 0);
+    }
+  }
+
+  private synchronized void scheduleReconnect(ConnectionSettings settings, int attempt) {
+    if (settings != connectionSettings) {
+      return;
+    }
+    final long delay = reconnectDelay(attempt);
+    log.info("Reconnecting to {}:{} in {}ms (attempt {})", settings.host, settings.port, delay,
+        attempt + 1);
+    reconnectFuture = reconnectScheduler().schedule(() -> reconnect(settings, attempt), delay,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Get the delay before a reconnection attempt.
+   * 
+   * <p>
+   * The delay doubles with each attempt up to {@code reconnectMaxDelayMillis}, and is then
+   * randomly reduced by up to half, so that many clients that lost their connections at the same
+   * time do not all reconnect at the same time.
+   * </p>
+   * 
+   * @param attempt
+   *          the zero-based attempt number
+   * @return the delay, in milliseconds
+   */
+  private long reconnectDelay(int attempt) {
+    final long max = Math.max(1L, reconnectMaxDelayMillis);
+    final long initial = Math.max(1L, Math.min(reconnectInitialDelayMillis, max));
+    final long delay = (attempt < 31 ? Math.min(max, initial << attempt) : max);
+    final long half = delay / 2;
+    return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+  }
+
+  private void reconnect(ConnectionSettings settings, int attempt) {
+    synchronized (this) {
+      if (settings != connectionSettings) {
+        return;
+      }
+    }
+    // requests are queued while reconnecting; collected atomically with installing the client,
+    // after which new requests are sent directly
+    final List<PendingRequest> queued = new ArrayList<>();
+
+    // re-checked atomically with installing the client, in case of disconnect() or connectAsync()
+    handshake(settings, () -> settings == connectionSettings, () -> {
+      reconnecting = false;
+      reconnectFuture = null;
+      queued.addAll(pendingRequests.values());
+    }).whenComplete((v, t) -> {
+      if (t == null) {
+        log.info("Reconnected to {}:{}", settings.host, settings.port);
+        resendPendingRequests(queued);
+      } else if (t instanceof CancellationException) {
+        log.info("Reconnection to {}:{} abandoned.", settings.host, settings.port);
+      } else {
+        log.warn("Error reconnecting to {}:{}: {}", settings.host, settings.port, t.toString());
+        scheduleReconnect(settings, attempt + 1);
+      }
+    });
+  }
+
+  private void resendPendingRequests(List<PendingRequest> queued) {
+    final List<PendingRequest> reqs = new ArrayList<>(queued.size());
+    for (PendingRequest req : queued) {
+      if (!req.future.isDone()) {
+        reqs.add(req);
+      }
+    }
+    reqs.sort((l, r) -> Long.compare(l.id, r.id));
+    send(reqs);
+  }
+
+  private ScheduledExecutorService reconnectScheduler() {
+    if (reconnectScheduler == null) {
+      reconnectScheduler = Executors.newSingleThreadScheduledExecutor(
+          new DefaultThreadFactory("STOMP-Setup-Reconnect", true));
+    }
+    return reconnectScheduler;
+  }
+
+  private void stopReconnecting() {
+    connectionSettings = null;
+    reconnecting = false;
+    if (reconnectFuture != null) {
+      reconnectFuture.cancel(false);
+      reconnectFuture = null;
     }
   }
 
   @Override
-  public synchronized void disconnect() {
-    StompSetupClient c = this.stompClient;
+  public void disconnect() {
+    final StompSetupClient c;
+    final StompSetupClient h;
+    synchronized (this) {
+      stopReconnecting();
+      c = this.stompClient;
+      h = this.handshakeClient;
+      this.stompClient = null;
+      this.handshakeClient = null;
+    }
+    disconnect(c);
+    disconnect(h);
+    failPendingRequests(new IOException("Connection closed."));
+  }
+
+  private static void disconnect(StompSetupClient c) {
     if (c != null) {
       c.disconnect();
-      this.stompClient = null;
+    }
+  }
+
+  private void failPendingRequests(Throwable t) {
+    for (PendingRequest req : pendingRequests.values()) {
+      if (pendingRequests.remove(String.valueOf(req.id), req)) {
+        req.future.completeExceptionally(t);
+      }
     }
   }
 
@@ -219,100 +740,573 @@ public class StompSetupClientService implements SetupClientService, Consumer<Sto
 
   @Override
   public void accept(StompMessage<String> message) {
-    final CompletableFuture<StompMessage<String>> f;
-    final Predicate<StompMessage<String>> p;
-    synchronized (this) {
-      f = this.actionFuture;
-      p = this.actionFilter;
+    if (message == null) {
+      return;
     }
-    if (f != null && p != null && p.test(message)) {
-      synchronized (this) {
-        this.actionFuture = null;
-        this.actionFilter = null;
+    if (StompCommand.CONNECTED == message.getCommand()) {
+      final CompletableFuture<StompMessage<String>> f = this.connectedFuture;
+      if (f != null) {
+        this.connectedFuture = null;
+        f.complete(detached(message));
       }
-      f.complete(message);
+      return;
+    }
+    if (StompCommand.MESSAGE != message.getCommand() || message.getHeaders() == null) {
+      return;
+    }
+    final MultiValueMap<String, String> headers = message.getHeaders();
+    final String requestId = headers.getFirst(REQUEST_ID_HEADER);
+    final PendingRequest req;
+    if (requestId != null) {
+      req = pendingRequests.remove(requestId);
+    } else {
+      req = removeOldestPendingRequest(headers.getFirst(StompHeader.Destination.getValue()),
+          false);
+    }
+    if (req == null) {
+      datumPushed(message, headers.getFirst(StompHeader.Destination.getValue()));
+      return;
+    }
+    if (req.datumConsumer != null) {
+      // decode while the frame content is still valid, to avoid copying it
+      try (InputStream in = contentStream(message)) {
+        datumDecoder.decode(in, req.datumConsumer);
+        req.future.complete(null);
+      } catch (IOException | RuntimeException e) {
+        req.future.completeExceptionally(e);
+      }
+    } else {
+      req.future.complete(detached(message));
+    }
+  }
+
+  private void datumPushed(StompMessage<String> message, String destination) {
+    if (datumSubscriptions.isEmpty() || destination == null
+        || !pathMatcher.match(datumTopicPattern, destination)) {
+      return;
+    }
+    try (InputStream in = contentStream(message)) {
+      datumDecoder.decodeValues(in, datum -> {
+        for (DatumSubscription sub : datumSubscriptions) {
+          sub.offer(datum);
+        }
+      });
+    } catch (IOException | RuntimeException e) {
+      log.warn("Error decoding datum pushed to {}: {}", destination, e.toString());
     }
   }
 
   @Override
-  public Collection<Datum> latestDatum(Set<String> sourceIdFilter) {
-    final Message<String> response = executeCommand(SetupTopic.DatumLatest.getValue(), null,
-        sourceIdFilter);
-    final List<Datum> result = new ArrayList<>();
-    try {
-      // response body should be JSON array of objects, objects being GeneralDatum
-      JsonNode json = objectMapper.readTree(response.getBody());
-      for (JsonNode n : json) {
-        if (!n.isObject()) {
-          continue;
+  public Subscription subscribeDatum(Set<String> sourceIdFilter, Consumer<Datum> consumer) {
+    if (consumer == null) {
+      throw new IllegalArgumentException("The consumer argument must not be null.");
+    }
+    DatumSubscription sub = new DatumSubscription(sourceIdFilter, consumer);
+    datumSubscriptions.add(sub);
+    return sub;
+  }
+
+  /**
+   * A datum subscription, filtering datum by source ID.
+   */
+  private final class DatumSubscription implements Subscription {
+
+    private final Set<String> sourceIdFilter;
+    private final Consumer<Datum> consumer;
+    private volatile boolean active = true;
+
+    private DatumSubscription(Set<String> sourceIdFilter, Consumer<Datum> consumer) {
+      super();
+      this.sourceIdFilter = (sourceIdFilter == null || sourceIdFilter.isEmpty() ? null
+          : new LinkedHashSet<>(sourceIdFilter));
+      this.consumer = consumer;
+    }
+
+    private void offer(Datum datum) {
+      if (!active || !matches(datum.getSourceId())) {
+        return;
+      }
+      try {
+        consumer.accept(datum);
+      } catch (RuntimeException e) {
+        log.warn("Datum subscriber threw exception handling datum {}", datum.getSourceId(), e);
+      }
+    }
+
+    private boolean matches(String sourceId) {
+      if (sourceIdFilter == null) {
+        return true;
+      } else if (sourceId == null) {
+        return false;
+      }
+      for (String pattern : sourceIdFilter) {
+        if (pathMatcher.match(pattern, sourceId)) {
+          return true;
         }
-        Datum datum = objectMapper.treeToValue(n, Datum.class);
-        if (datum != null) {
-          result.add(datum);
+      }
+      return false;
+    }
+
+    @Override
+    public void unsubscribe() {
+      active = false;
+      datumSubscriptions.remove(this);
+    }
+
+    @Override
+    public boolean isActive() {
+      return active;
+    }
+
+  }
+
+  private static InputStream contentStream(StompMessage<String> message) {
+    if (message instanceof NettyStompMessage<?>) {
+      return new ByteBufInputStream(
+          ((NettyStompMessage<String>) message).getContentBuffer().duplicate());
+    }
+    byte[] data = message.getContent();
+    return new ByteArrayInputStream(data != null ? data : new byte[0]);
+  }
+
+  /**
+   * Stream datum response frames to the datum consumer of their request.
+   * 
+   * <p>
+   * Frames are only accepted for requests with a datum consumer. The frame callbacks are invoked
+   * one frame at a time by the client I/O thread.
+   * </p>
+   */
+  private final class DatumFrameStreamConsumer implements StompFrameStreamConsumer {
+
+    private PendingRequest request;
+    private JsonArrayStreamDecoder<Datum>.Feeder feeder;
+
+    @Override
+    public boolean acceptFrame(StompMessage<?> frame) {
+      if (StompCommand.MESSAGE != frame.getCommand() || frame.getHeaders() == null) {
+        return false;
+      }
+      final MultiValueMap<String, String> headers = frame.getHeaders();
+      final String requestId = headers.getFirst(REQUEST_ID_HEADER);
+      final PendingRequest req;
+      if (requestId != null) {
+        req = pendingRequests.get(requestId);
+        if (req == null || req.datumConsumer == null
+            || !pendingRequests.remove(requestId, req)) {
+          return false;
+        }
+      } else {
+        req = removeOldestPendingRequest(headers.getFirst(StompHeader.Destination.getValue()),
+            true);
+        if (req == null) {
+          return false;
+        }
+      }
+      try {
+        feeder = datumDecoder.newFeeder(req.datumConsumer);
+      } catch (IOException e) {
+        feeder = null;
+        req.future.completeExceptionally(e);
+      }
+      request = req;
+      return true;
+    }
+
+    @Override
+    public void frameContent(StompMessage<?> frame, ByteBuffer content, boolean last) {
+      final PendingRequest req = request;
+      final JsonArrayStreamDecoder<Datum>.Feeder f = feeder;
+      if (last) {
+        request = null;
+        feeder = null;
+      }
+      if (req == null || f == null || req.future.isDone()) {
+        return;
+      }
+      try {
+        f.feed(content);
+        if (last) {
+          f.end();
+          req.future.complete(null);
         }
+      } catch (IOException | RuntimeException e) {
+        feeder = null;
+        req.future.completeExceptionally(e);
       }
+    }
+
+  }
+
+  /**
+   * Get a message that remains valid after a consumer call returns.
+   * 
+   * @param message
+   *          the message passed to a consumer
+   * @return the message, detached if it is reference-counted
+   */
+  private static StompMessage<String> detached(StompMessage<String> message) {
+    if (message instanceof RetainableStompMessage<?>) {
+      return ((RetainableStompMessage<String>) message).detach();
+    }
+    return message;
+  }
+
+  /**
+   * Track an outstanding request, so its response can be correlated.
+   * 
+   * @param req
+   *          the request
+   */
+  private void addPendingRequest(PendingRequest req) {
+    final String requestId = String.valueOf(req.id);
+    if (pendingRequests.put(requestId, req) != null) {
+      // already tracked, e.g. re-sent after reconnecting
+      return;
+    }
+    pendingByDestination.compute(req.destination, (k, q) -> {
+      Queue<PendingRequest> result = (q != null ? q : new ArrayDeque<>(4));
+      result.add(req);
       return result;
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+    });
+    if (req.future.isDone()) {
+      // completed before being tracked, e.g. cancelled
+      removePendingRequest(req);
+    }
+  }
+
+  /**
+   * Stop tracking an outstanding request.
+   * 
+   * @param req
+   *          the request
+   */
+  private void removePendingRequest(PendingRequest req) {
+    pendingRequests.remove(String.valueOf(req.id), req);
+    pendingByDestination.computeIfPresent(req.destination, (k, q) -> {
+      q.remove(req);
+      return (q.isEmpty() ? null : q);
+    });
+  }
+
+  /**
+   * Remove the oldest outstanding request to a destination, for a response without a
+   * {@link #REQUEST_ID_HEADER} header.
+   * 
+   * @param destination
+   *          the response destination
+   * @param datum
+   *          {@literal true} to only remove the request if it has a datum consumer
+   * @return the removed request, or {@literal null} if there is no suitable request
+   */
+  private PendingRequest removeOldestPendingRequest(String destination, boolean datum) {
+    if (destination == null || (!datumSubscriptions.isEmpty()
+        && pathMatcher.match(datumTopicPattern, destination))) {
+      return null;
     }
+    final PendingRequest[] result = new PendingRequest[1];
+    pendingByDestination.computeIfPresent(destination, (k, q) -> {
+      PendingRequest oldest;
+      while ((oldest = q.peek()) != null) {
+        if (pendingRequests.get(String.valueOf(oldest.id)) != oldest) {
+          // already completed
+          q.poll();
+          continue;
+        }
+        if ((!datum || oldest.datumConsumer != null)
+            && pendingRequests.remove(String.valueOf(oldest.id), oldest)) {
+          q.poll();
+          result[0] = oldest;
+        }
+        break;
+      }
+      return (q.isEmpty() ? null : q);
+    });
+    return result[0];
+  }
+
+  @Override
+  public Collection<Datum> latestDatum(Set<String> sourceIdFilter) {
+    return await(latestDatumAsync(sourceIdFilter));
+  }
+
+  @Override
+  public CompletionStage<Collection<Datum>> latestDatumAsync(Set<String> sourceIdFilter) {
+    final List<Datum> result = new ArrayList<>();
+    return thenApply(streamLatestDatumAsync(sourceIdFilter, result::add).toCompletableFuture(),
+        v -> result);
+  }
+
+  @Override
+  public void streamLatestDatum(Set<String> sourceIdFilter, Consumer<Datum> consumer) {
+    await(streamLatestDatumAsync(sourceIdFilter, consumer));
+  }
+
+  @Override
+  public CompletionStage<Void> streamLatestDatumAsync(Set<String> sourceIdFilter,
+      Consumer<Datum> consumer) {
+    if (consumer == null) {
+      throw new IllegalArgumentException("The consumer argument must not be null.");
+    }
+    // response body should be JSON array of objects, objects being GeneralDatum
+    return thenApply(sendAsync(SetupTopic.DatumLatest.getValue(), null, sourceIdFilter, consumer),
+        m -> null);
   }
 
   @Override
   public Message<String> executeCommand(String service, MultiValueMap<String, String> headers,
       Object body) {
+    return await(executeCommandAsync(service, headers, body));
+  }
+
+  @Override
+  public CompletionStage<Message<String>> executeCommandAsync(String service,
+      MultiValueMap<String, String> headers, Object body) {
+    return sendAsync(service, headers, body, null);
+  }
+
+  @Override
+  public List<Message<String>> executeBatch(List<Command> commands) {
+    final List<CompletionStage<Message<String>>> stages = executeBatchAsync(commands);
+    final CompletableFuture<?>[] futures = new CompletableFuture<?>[stages.size()];
+    for (int i = 0; i < futures.length; i++) {
+      futures[i] = stages.get(i).toCompletableFuture();
+    }
+    try {
+      await(CompletableFuture.allOf(futures));
+    } catch (RuntimeException e) {
+      for (CompletableFuture<?> f : futures) {
+        f.cancel(false);
+      }
+      throw e;
+    }
+    final List<Message<String>> result = new ArrayList<>(futures.length);
+    for (CompletionStage<Message<String>> stage : stages) {
+      result.add(stage.toCompletableFuture().join());
+    }
+    return result;
+  }
+
+  @Override
+  public List<CompletionStage<Message<String>>> executeBatchAsync(List<Command> commands) {
+    if (commands == null) {
+      throw new IllegalArgumentException("The commands argument must not be null.");
+    }
+    final List<CompletionStage<Message<String>>> result = new ArrayList<>(commands.size());
+    final List<PendingRequest> reqs = new ArrayList<>(commands.size());
+    for (Command cmd : commands) {
+      try {
+        PendingRequest req = pendingRequest(cmd.getService(), cmd.getHeaders(), cmd.getBody(),
+            null);
+        reqs.add(req);
+        result.add(req.future);
+      } catch (JsonProcessingException e) {
+        result.add(failedFuture(e));
+      }
+    }
+    send(reqs);
+    return result;
+  }
+
+  private CompletableFuture<Message<String>> sendAsync(String service,
+      MultiValueMap<String, String> headers, Object body, Consumer<Datum> datumConsumer) {
+    final PendingRequest req;
+    try {
+      req = pendingRequest(service, headers, body, datumConsumer);
+    } catch (JsonProcessingException e) {
+      return failedFuture(e);
+    }
+    send(Collections.singletonList(req));
+    return req.future;
+  }
+
+  private PendingRequest pendingRequest(String service, MultiValueMap<String, String> headers,
+      Object body, Consumer<Datum> datumConsumer) throws JsonProcessingException {
     String bodyString = null;
     String contentType = null;
     if (body instanceof CharSequence) {
       bodyString = body.toString();
       contentType = "text/plain;charset=utf-8";
     } else if (body != null) {
-      try {
-        bodyString = objectMapper.writeValueAsString(body);
-        contentType = JSON_UTF8_CONTENT_TYPE;
-      } catch (JsonProcessingException e) {
-        throw new RuntimeException(e);
-      }
+      bodyString = objectMapper.writeValueAsString(body);
+      contentType = JSON_UTF8_CONTENT_TYPE;
     }
     MultiValueMap<String, String> sendHeaders = new LinkedMultiValueMap<>();
     if (headers != null) {
       sendHeaders.putAll(headers);
     }
-    final CompletableFuture<StompMessage<String>> future = new CompletableFuture<>();
+    final CompletableFuture<Message<String>> future = new CompletableFuture<>();
+    final PendingRequest req = new PendingRequest(requestIds.incrementAndGet(), service, future,
+        datumConsumer, sendHeaders, bodyString, contentType);
+    final StompClientMetrics reqMetrics = this.metrics;
+    final long startNanos = (reqMetrics != null ? reqMetrics.requestStarted() : 0L);
+    final Timeout deadline = deadline(req);
+    future.whenComplete((m, t) -> {
+      if (deadline != null) {
+        deadline.cancel();
+      }
+      // free the correlation slot if completed other than by a response, e.g. timed out
+      removePendingRequest(req);
+      if (reqMetrics != null) {
+        reqMetrics.requestCompleted(service, startNanos, t);
+      }
+    });
+    return req;
+  }
+
+  private Timeout deadline(PendingRequest req) {
+    final long secs = this.timeoutSeconds;
+    if (secs < 1) {
+      return null;
+    }
+    return requestTimer.newTimeout(t -> {
+      req.future.completeExceptionally(new TimeoutException("No response to request " + req.id
+          + " to " + req.destination + " within " + secs + "s."));
+    }, secs, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Send requests, failing them if they cannot be sent.
+   * 
+   * @param reqs
+   *          the requests to send
+   */
+  private void send(List<PendingRequest> reqs) {
+    if (reqs.isEmpty()) {
+      return;
+    }
     try {
-      sendForMessage(service, sendHeaders, bodyString, contentType, future).get(timeoutSeconds,
-          TimeUnit.SECONDS);
-      return future.get(timeoutSeconds, TimeUnit.SECONDS);
-    } catch (InterruptedException | ExecutionException | TimeoutException e) {
-      throw new RuntimeException(e);
+      sendForMessages(reqs).whenComplete((v, t) -> {
+        if (t != null) {
+          for (PendingRequest req : reqs) {
+            req.future.completeExceptionally(t);
+          }
+        }
+      });
+    } catch (RuntimeException e) {
+      for (PendingRequest req : reqs) {
+        req.future.completeExceptionally(e);
+      }
     }
   }
 
-  private Future<?> sendForMessage(String topic, MultiValueMap<String, String> headers, String body,
-      String contentType, CompletableFuture<StompMessage<String>> actionFuture) {
-    final StompSetupClient c = this.stompClient;
+  private CompletableFuture<Void> sendForMessages(List<PendingRequest> reqs) {
+    StompSetupClient c = this.stompClient;
     if (c == null || !c.isConnected()) {
-      throw new RuntimeException("Not connected.");
+      // re-check atomically with a reconnection installing its client and collecting queued
+      // requests, so a request is either queued and resent or sent to the new client
+      synchronized (this) {
+        c = this.stompClient;
+        if (c == null || !c.isConnected()) {
+          if (reconnecting && inFlightPolicy == InFlightPolicy.Requeue) {
+            // will be sent once reconnected
+            for (PendingRequest req : reqs) {
+              addPendingRequest(req);
+            }
+            return CompletableFuture.completedFuture(null);
+          }
+          throw new RuntimeException("Not connected.");
+        }
+      }
     }
-    headers.set(StompHeader.Destination.getValue(), topic);
-    if (body != null) {
-      headers.set(StompHeader.ContentType.getValue(), contentType);
-      headers.set(StompHeader.ContentLength.getValue(), String.valueOf(body.length()));
+    if (reqs.size() == 1) {
+      return c.post(requestMessage(reqs.get(0)));
     }
-    synchronized (this) {
-      this.actionFuture = actionFuture;
-      this.actionFilter = messageTopicFilter(topic);
-      return c.post(stringMessage(StompCommand.SEND, headers, body));
+    // write all requests back-to-back, with a single flush
+    final List<StompMessage<String>> msgs = new ArrayList<>(reqs.size());
+    for (PendingRequest req : reqs) {
+      msgs.add(requestMessage(req));
     }
+    return c.postAll(msgs);
+  }
+
+  private StompMessage<String> requestMessage(PendingRequest req) {
+    final String requestId = String.valueOf(req.id);
+    final MultiValueMap<String, String> headers = req.headers;
+    headers.set(StompHeader.Destination.getValue(), req.destination);
+    headers.set(REQUEST_ID_HEADER, requestId);
+    if (req.body != null) {
+      // content-length is set by the client from the encoded byte length
+      headers.set(StompHeader.ContentType.getValue(), req.contentType);
+    }
+    addPendingRequest(req);
+    return stringMessage(StompCommand.SEND, headers, req.body);
+  }
+
+  private CompletableFuture<Void> post(StompSetupClient c, StompCommand command,
+      MultiValueMap<String, String> headers) {
+    return c.post(stringMessage(command, headers, null)).whenComplete((v, t) -> {
+      if (t != null) {
+        log.error("Error posting {} message", command, t);
+      }
+    });
+  }
+
+  /**
+   * Derive a future from another, forwarding cancellation of the derived future to the source.
+   * 
+   * <p>
+   * This way cancelling the derived future of a request also cancels the request's deadline and
+   * frees its correlation slot.
+   * </p>
+   * 
+   * @param <T>
+   *          the source result type
+   * @param <R>
+   *          the derived result type
+   * @param source
+   *          the source future
+   * @param fn
+   *          the function to derive the result with
+   * @return the derived future
+   */
+  private static <T, R> CompletableFuture<R> thenApply(CompletableFuture<T> source,
+      Function<? super T, ? extends R> fn) {
+    final CompletableFuture<R> result = source.thenApply(fn);
+    result.whenComplete((r, t) -> {
+      if (t != null && !source.isDone()) {
+        source.cancel(false);
+      }
+    });
+    return result;
+  }
+
+  private static <T> CompletableFuture<T> failedFuture(Throwable t) {
+    CompletableFuture<T> f = new CompletableFuture<>();
+    f.completeExceptionally(t);
+    return f;
   }
 
-  private void postAndWait(StompSetupClient c, StompCommand command,
-      MultiValueMap<String, String> headers, String body, CompletableFuture<Void> postFuture) {
+  /**
+   * Wait for an asynchronous operation to complete, up to the configured timeout.
+   * 
+   * <p>
+   * If the timeout elapses, the operation is cancelled. If no timeout is configured, wait until
+   * the operation completes.
+   * </p>
+   * 
+   * @param <T>
+   *          the result type
+   * @param stage
+   *          the operation to wait for
+   * @return the operation result
+   * @throws RuntimeException
+   *           if the operation fails, is interrupted, or times out
+   */
+  private <T> T await(CompletionStage<T> stage) {
+    final CompletableFuture<T> f = stage.toCompletableFuture();
+    final long secs = this.timeoutSeconds;
     try {
-      c.post(stringMessage(command, headers, body)).get(timeoutSeconds, TimeUnit.SECONDS);
-      postFuture.complete(null);
-    } catch (InterruptedException | ExecutionException | TimeoutException e) {
-      log.error("Error posting {} message", command, e);
-      postFuture.completeExceptionally(e);
+      return (secs < 1 ? f.get() : f.get(secs, TimeUnit.SECONDS));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      f.cancel(false);
+      throw new RuntimeException(e);
+    } catch (TimeoutException e) {
+      f.cancel(false);
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e);
     }
   }
 
@@ -328,13 +1322,219 @@ public class StompSetupClientService implements SetupClientService, Consumer<Sto
   /**
    * Set the message timeout value.
    * 
+   * <p>
+   * This is the deadline given to each request, as well as the maximum time the synchronous
+   * methods wait for a result. Changes apply to requests made after the setting is changed.
+   * </p>
+   * 
    * @param timeoutSeconds
-   *          the timeout seconds to set
+   *          the timeout seconds to set, or {@literal 0} for requests to have no deadline
    */
   public void setTimeoutSeconds(long timeoutSeconds) {
     this.timeoutSeconds = timeoutSeconds;
   }
 
+  /**
+   * Get the datum topic pattern.
+   * 
+   * @return the Ant-style pattern of destinations that pushed datum messages are accepted from;
+   *         defaults to {@link #DEFAULT_DATUM_TOPIC_PATTERN}
+   */
+  public String getDatumTopicPattern() {
+    return datumTopicPattern;
+  }
+
+  /**
+   * Set the datum topic pattern.
+   * 
+   * @param datumTopicPattern
+   *          the Ant-style pattern of destinations that pushed datum messages are accepted from
+   * @throws IllegalArgumentException
+   *           if {@code datumTopicPattern} is {@literal null}
+   */
+  public void setDatumTopicPattern(String datumTopicPattern) {
+    if (datumTopicPattern == null) {
+      throw new IllegalArgumentException("The datumTopicPattern argument must not be null.");
+    }
+    this.datumTopicPattern = datumTopicPattern;
+  }
+
+  /**
+   * Get the automatic reconnect mode.
+   * 
+   * @return {@literal true} to reconnect automatically when the connection is lost; defaults to
+   *         {@literal false}
+   */
+  public boolean isAutoReconnect() {
+    return autoReconnect;
+  }
+
+  /**
+   * Set the automatic reconnect mode.
+   * 
+   * @param autoReconnect
+   *          {@literal true} to reconnect automatically when the connection is lost
+   */
+  public synchronized void setAutoReconnect(boolean autoReconnect) {
+    this.autoReconnect = autoReconnect;
+  }
+
+  /**
+   * Get the initial reconnect delay.
+   * 
+   * @return the delay before the first reconnection attempt, in milliseconds; defaults to
+   *         {@link #DEFAULT_RECONNECT_INITIAL_DELAY_MILLIS}
+   */
+  public long getReconnectInitialDelayMillis() {
+    return reconnectInitialDelayMillis;
+  }
+
+  /**
+   * Set the initial reconnect delay.
+   * 
+   * @param reconnectInitialDelayMillis
+   *          the delay before the first reconnection attempt, in milliseconds
+   */
+  public void setReconnectInitialDelayMillis(long reconnectInitialDelayMillis) {
+    this.reconnectInitialDelayMillis = reconnectInitialDelayMillis;
+  }
+
+  /**
+   * Get the maximum reconnect delay.
+   * 
+   * @return the maximum delay between reconnection attempts, in milliseconds; defaults to
+   *         {@link #DEFAULT_RECONNECT_MAX_DELAY_MILLIS}
+   */
+  public long getReconnectMaxDelayMillis() {
+    return reconnectMaxDelayMillis;
+  }
+
+  /**
+   * Set the maximum reconnect delay.
+   * 
+   * @param reconnectMaxDelayMillis
+   *          the maximum delay between reconnection attempts, in milliseconds
+   */
+  public void setReconnectMaxDelayMillis(long reconnectMaxDelayMillis) {
+    this.reconnectMaxDelayMillis = reconnectMaxDelayMillis;
+  }
+
+  /**
+   * Get the in-flight request policy.
+   * 
+   * @return the policy applied to outstanding requests when the connection is lost and
+   *         {@code autoReconnect} is enabled; defaults to {@link InFlightPolicy#Fail}
+   */
+  public InFlightPolicy getInFlightPolicy() {
+    return inFlightPolicy;
+  }
+
+  /**
+   * Set the in-flight request policy.
+   * 
+   * @param inFlightPolicy
+   *          the policy to apply to outstanding requests when the connection is lost and
+   *          {@code autoReconnect} is enabled
+   * @throws IllegalArgumentException
+   *           if {@code inFlightPolicy} is {@literal null}
+   */
+  public void setInFlightPolicy(InFlightPolicy inFlightPolicy) {
+    if (inFlightPolicy == null) {
+      throw new IllegalArgumentException("The inFlightPolicy argument must not be null.");
+    }
+    this.inFlightPolicy = inFlightPolicy;
+  }
+
+  /**
+   * Get the secret cache.
+   * 
+   * @return the cache used to derive authentication secrets, never {@literal null}
+   */
+  public BcryptSecretCache getSecretCache() {
+    return secretCache;
+  }
+
+  /**
+   * Set the secret cache.
+   * 
+   * <p>
+   * By default a cache shared by all instances of this class is used, which derives secrets with
+   * half of the available processors.
+   * </p>
+   * 
+   * @param secretCache
+   *          the cache to derive authentication secrets with
+   * @throws IllegalArgumentException
+   *           if {@code secretCache} is {@literal null}
+   */
+  public void setSecretCache(BcryptSecretCache secretCache) {
+    if (secretCache == null) {
+      throw new IllegalArgumentException("The secretCache argument must not be null.");
+    }
+    this.secretCache = secretCache;
+  }
+
+  /**
+   * Get the request deadline timer.
+   * 
+   * @return the timer used to fail requests that reach their deadline, never {@literal null}
+   */
+  public Timer getRequestTimer() {
+    return requestTimer;
+  }
+
+  /**
+   * Set the request deadline timer.
+   * 
+   * <p>
+   * By default a {@link HashedWheelTimer} shared by all instances of this class is used, with a
+   * tick duration of 100ms.
+   * </p>
+   * 
+   * @param requestTimer
+   *          the timer to fail requests that reach their deadline with
+   * @throws IllegalArgumentException
+   *           if {@code requestTimer} is {@literal null}
+   */
+  public void setRequestTimer(Timer requestTimer) {
+    if (requestTimer == null) {
+      throw new IllegalArgumentException("The requestTimer argument must not be null.");
+    }
+    this.requestTimer = requestTimer;
+  }
+
+  /**
+   * Get the metrics.
+   * 
+   * @return the metrics to record request and connection metrics with, or {@literal null} if not
+   *         recorded
+   */
+  public StompClientMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Set the metrics.
+   * 
+   * @param metrics
+   *          the metrics to record request and connection metrics with, or {@literal null} to not
+   *          record them
+   */
+  public void setMetrics(StompClientMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Set the reconnect scheduler.
+   * 
+   * @param reconnectScheduler
+   *          the scheduler to run reconnection attempts with, or {@literal null} to create a
+   *          single-threaded scheduler when first needed
+   */
+  public synchronized void setReconnectScheduler(ScheduledExecutorService reconnectScheduler) {
+    this.reconnectScheduler = reconnectScheduler;
+  }
+
   /**
    * Get the object mapper.
    * 
@@ -357,6 +1557,7 @@ public class StompSetupClientService implements SetupClientService, Consumer<Sto
       throw new IllegalArgumentException("The objectMapper argument must not be null.");
     }
     this.objectMapper = objectMapper;
+    this.datumDecoder = new JsonArrayStreamDecoder<>(objectMapper, Datum.class);
   }
 
 }
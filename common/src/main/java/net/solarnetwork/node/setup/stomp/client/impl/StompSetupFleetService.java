@@ -0,0 +1,410 @@
+/* ==================================================================
+ * StompSetupFleetService.java - 18/10/2026 9:48:27 AM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.MultiValueMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import net.solarnetwork.domain.datum.Datum;
+import net.solarnetwork.node.setup.stomp.client.domain.Message;
+import net.solarnetwork.node.setup.stomp.client.domain.NodeResult;
+import net.solarnetwork.node.setup.stomp.client.domain.SetupNodeInfo;
+import net.solarnetwork.node.setup.stomp.client.service.SetupClientService;
+import net.solarnetwork.node.setup.stomp.client.service.SetupFleetService;
+import net.solarnetwork.node.setup.stomp.client.service.StompSetupClientFactory;
+
+/**
+ * Implementation of {@link SetupFleetService} that manages one {@link StompSetupClientService}
+ * session per node.
+ * 
+ * <p>
+ * At most {@code maxParallelism} node operations are outstanding at any time. Each node operation
+ * is bounded by {@code timeoutSeconds}, so a slow node holds up at most one slot for that long and
+ * never delays the results of other nodes. No threads are blocked while operations are
+ * outstanding.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.1
+ */
+public class StompSetupFleetService implements SetupFleetService {
+
+  /**
+   * The {@code maxParallelism} property default value.
+   */
+  public static final int DEFAULT_MAX_PARALLELISM = 32;
+
+  /**
+   * The {@code timeoutSeconds} property default value.
+   */
+  public static final long DEFAULT_TIMEOUT_SECONDS = 60;
+
+  private static final Logger log = LoggerFactory.getLogger(StompSetupFleetService.class);
+
+  private final StompSetupClientFactory clientFactory;
+  private Timer timer = StompSetupClientService.defaultRequestTimer();
+  private final Map<SetupNodeInfo, SetupClientService> sessions = new ConcurrentHashMap<>();
+  private int maxParallelism = DEFAULT_MAX_PARALLELISM;
+  private long timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
+  private ObjectMapper objectMapper = new ObjectMapper();
+
+  /**
+   * Constructor.
+   * 
+   * @param clientFactory
+   *          the client factory to create node sessions with
+   * @throws IllegalArgumentException
+   *           if {@code clientFactory} is {@literal null}
+   */
+  public StompSetupFleetService(StompSetupClientFactory clientFactory) {
+    super();
+    if (clientFactory == null) {
+      throw new IllegalArgumentException("The clientFactory argument must not be null.");
+    }
+    this.clientFactory = clientFactory;
+  }
+
+  /**
+   * Disconnect from all nodes and release all resources.
+   */
+  public void shutdown() {
+    disconnect();
+  }
+
+  /**
+   * Create a new session for a node.
+   * 
+   * @param node
+   *          the node to create the session for
+   * @return the new, unconnected session
+   */
+  protected SetupClientService createSession(SetupNodeInfo node) {
+    StompSetupClientService s = new StompSetupClientService(clientFactory);
+    s.setObjectMapper(objectMapper);
+    s.setTimeoutSeconds(timeoutSeconds);
+    return s;
+  }
+
+  @Override
+  public CompletionStage<Void> connect(Collection<SetupNodeInfo> nodes,
+      Consumer<NodeResult<Void>> consumer) {
+    return fanOut(nodes, node -> {
+      SetupClientService old = sessions.remove(node);
+      if (old != null) {
+        old.disconnect();
+      }
+      final SetupClientService s = createSession(node);
+      final CompletableFuture<Void> connected = s
+          .connectAsync(node.getHost(), node.getPort(), node.getUsername(), node.getPassword())
+          .toCompletableFuture();
+      final CompletableFuture<Void> result = new CompletableFuture<>();
+      result.whenComplete((v, t) -> {
+        if (t != null) {
+          // timed out: abandon the connection attempt
+          connected.cancel(false);
+          s.disconnect();
+        }
+      });
+      connected.whenComplete((v, t) -> {
+        if (t != null) {
+          result.completeExceptionally(t);
+          return;
+        }
+        sessions.put(node, s);
+        if (!result.complete(null)) {
+          // connected after timing out
+          sessions.remove(node, s);
+          s.disconnect();
+        }
+      });
+      return result;
+    }, consumer);
+  }
+
+  @Override
+  public void disconnect() {
+    for (SetupNodeInfo node : new ArrayList<>(sessions.keySet())) {
+      SetupClientService s = sessions.remove(node);
+      if (s != null) {
+        try {
+          s.disconnect();
+        } catch (RuntimeException e) {
+          log.warn("Error disconnecting from {}: {}", node, e.toString());
+        }
+      }
+    }
+  }
+
+  @Override
+  public Collection<SetupNodeInfo> getConnectedNodes() {
+    Collection<SetupNodeInfo> result = new ArrayList<>(sessions.size());
+    for (Map.Entry<SetupNodeInfo, SetupClientService> e : sessions.entrySet()) {
+      if (e.getValue().isConnected()) {
+        result.add(e.getKey());
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public CompletionStage<Void> latestDatum(Set<String> sourceIdFilter,
+      Consumer<NodeResult<Collection<Datum>>> consumer) {
+    return fanOut(new ArrayList<>(sessions.keySet()),
+        node -> session(node).latestDatumAsync(sourceIdFilter), consumer);
+  }
+
+  @Override
+  public CompletionStage<Void> executeCommand(String service,
+      MultiValueMap<String, String> headers, Object body,
+      Consumer<NodeResult<Message<String>>> consumer) {
+    return fanOut(new ArrayList<>(sessions.keySet()),
+        node -> session(node).executeCommandAsync(service, headers, body), consumer);
+  }
+
+  private SetupClientService session(SetupNodeInfo node) {
+    SetupClientService s = sessions.get(node);
+    if (s == null) {
+      throw new IllegalStateException("Not connected to " + node + ".");
+    }
+    return s;
+  }
+
+  private <T> CompletionStage<Void> fanOut(Collection<SetupNodeInfo> nodes,
+      Function<SetupNodeInfo, CompletionStage<T>> operation, Consumer<NodeResult<T>> consumer) {
+    FanOut<T> f = new FanOut<>(nodes, operation, consumer);
+    f.drain();
+    return f.done;
+  }
+
+  /**
+   * Executes an operation on a queue of nodes, with bounded parallelism.
+   * 
+   * @param <T>
+   *          the operation result type
+   */
+  private final class FanOut<T> {
+
+    private final Queue<SetupNodeInfo> queue;
+    private final Function<SetupNodeInfo, CompletionStage<T>> operation;
+    private final Consumer<NodeResult<T>> consumer;
+    private final AtomicInteger remaining;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    private FanOut(Collection<SetupNodeInfo> nodes,
+        Function<SetupNodeInfo, CompletionStage<T>> operation, Consumer<NodeResult<T>> consumer) {
+      super();
+      this.queue = new ConcurrentLinkedQueue<>(nodes);
+      this.operation = operation;
+      this.consumer = consumer;
+      this.remaining = new AtomicInteger(queue.size());
+      if (queue.isEmpty()) {
+        done.complete(null);
+      }
+    }
+
+    private void drain() {
+      if (wip.getAndIncrement() != 0) {
+        // another thread, or an outer call on this thread, is already draining
+        return;
+      }
+      do {
+        while (active.get() < maxParallelism) {
+          SetupNodeInfo node = queue.poll();
+          if (node == null) {
+            break;
+          }
+          active.incrementAndGet();
+          start(node);
+        }
+      } while (wip.decrementAndGet() != 0);
+    }
+
+    private void start(SetupNodeInfo node) {
+      CompletableFuture<T> f;
+      try {
+        f = operation.apply(node).toCompletableFuture();
+      } catch (RuntimeException e) {
+        f = new CompletableFuture<>();
+        f.completeExceptionally(e);
+      }
+      withTimeout(f, node).whenComplete((r, t) -> {
+        try {
+          consumer.accept(new NodeResult<>(node, r, unwrap(t)));
+        } catch (RuntimeException e) {
+          log.warn("Error handling result from {}: {}", node, e.toString(), e);
+        } finally {
+          active.decrementAndGet();
+          if (remaining.decrementAndGet() == 0) {
+            done.complete(null);
+          } else {
+            drain();
+          }
+        }
+      });
+    }
+
+  }
+
+  private <T> CompletableFuture<T> withTimeout(CompletableFuture<T> f, SetupNodeInfo node) {
+    if (timeoutSeconds < 1 || f.isDone()) {
+      return f;
+    }
+    final Timeout timeout = timer.newTimeout(t -> {
+      f.completeExceptionally(new TimeoutException("Timeout waiting for " + node + "."));
+    }, timeoutSeconds, TimeUnit.SECONDS);
+    f.whenComplete((r, t) -> timeout.cancel());
+    return f;
+  }
+
+  private static Throwable unwrap(Throwable t) {
+    while ((t instanceof CompletionException || t instanceof ExecutionException)
+        && t.getCause() != null) {
+      t = t.getCause();
+    }
+    return t;
+  }
+
+  /**
+   * Get the maximum number of node operations to execute in parallel.
+   * 
+   * @return the maximum parallelism; defaults to {@link #DEFAULT_MAX_PARALLELISM}
+   */
+  public int getMaxParallelism() {
+    return maxParallelism;
+  }
+
+  /**
+   * Set the maximum number of node operations to execute in parallel.
+   * 
+   * @param maxParallelism
+   *          the maximum parallelism to set
+   * @throws IllegalArgumentException
+   *           if {@code maxParallelism} is less than {@literal 1}
+   */
+  public void setMaxParallelism(int maxParallelism) {
+    if (maxParallelism < 1) {
+      throw new IllegalArgumentException("The maxParallelism argument must be at least 1.");
+    }
+    this.maxParallelism = maxParallelism;
+  }
+
+  /**
+   * Get the per-node operation timeout.
+   * 
+   * @return the timeout seconds; defaults to {@link #DEFAULT_TIMEOUT_SECONDS}
+   */
+  public long getTimeoutSeconds() {
+    return timeoutSeconds;
+  }
+
+  /**
+   * Set the per-node operation timeout.
+   * 
+   * @param timeoutSeconds
+   *          the timeout seconds to set, or {@literal 0} for no timeout
+   */
+  public void setTimeoutSeconds(long timeoutSeconds) {
+    this.timeoutSeconds = timeoutSeconds;
+  }
+
+  /**
+   * Get the connect timeout timer.
+   * 
+   * @return the timer used to fail node operations that reach their deadline, never
+   *         {@literal null}
+   * @since 1.1
+   */
+  public Timer getTimer() {
+    return timer;
+  }
+
+  /**
+   * Set the connect timeout timer.
+   * 
+   * <p>
+   * By default the timer returned by {@link StompSetupClientService#defaultRequestTimer()} is
+   * used. The timer is not stopped by {@link #shutdown()}.
+   * </p>
+   * 
+   * @param timer
+   *          the timer to fail node operations that reach their deadline with
+   * @throws IllegalArgumentException
+   *           if {@code timer} is {@literal null}
+   * @since 1.1
+   */
+  public void setTimer(Timer timer) {
+    if (timer == null) {
+      throw new IllegalArgumentException("The timer argument must not be null.");
+    }
+    this.timer = timer;
+  }
+
+  /**
+   * Get the object mapper.
+   * 
+   * @return the object mapper, never {@literal null}
+   */
+  public ObjectMapper getObjectMapper() {
+    return objectMapper;
+  }
+
+  /**
+   * Set the object mapper.
+   * 
+   * @param objectMapper
+   *          the object mapper to set
+   * @throws IllegalArgumentException
+   *           if {@code objectMapper} is {@literal null}
+   */
+  public void setObjectMapper(ObjectMapper objectMapper) {
+    if (objectMapper == null) {
+      throw new IllegalArgumentException("The objectMapper argument must not be null.");
+    }
+    this.objectMapper = objectMapper;
+  }
+
+}
@@ -23,18 +23,28 @@
 package net.solarnetwork.node.setup.stomp.client.service;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
 
 import org.springframework.util.MultiValueMap;
 
 import net.solarnetwork.domain.datum.Datum;
+import net.solarnetwork.node.setup.stomp.client.domain.Command;
 import net.solarnetwork.node.setup.stomp.client.domain.Message;
 
 /**
  * High-level API for a SolarNode setup client.
  * 
+ * <p>
+ * Each blocking method has a non-blocking {@code Async} variant that returns a
+ * {@link CompletionStage} completed by the network I/O itself, without tying up the calling
+ * thread while the operation is outstanding.
+ * </p>
+ * 
  * @author matt
- * @version 1.0
+ * @version 1.2
  */
 public interface SetupClientService {
 
@@ -52,6 +62,21 @@ public interface SetupClientService {
    */
   void connect(String host, int port, String username, String password);
 
+  /**
+   * Connect to a SolarNode Setup server, without blocking.
+   * 
+   * @param host
+   *          the server host name or IP address
+   * @param port
+   *          the server port
+   * @param username
+   *          the username to authenticate as
+   * @param password
+   *          the password to authenticate with
+   * @return a stage completed once the connection has been authenticated and subscribed
+   */
+  CompletionStage<Void> connectAsync(String host, int port, String username, String password);
+
   /**
    * Disconnect from the currently connected SolarNode Setup server.
    */
@@ -74,6 +99,73 @@ public interface SetupClientService {
    */
   Collection<Datum> latestDatum(Set<String> sourceIdFilter);
 
+  /**
+   * Get the latest available datum, without blocking.
+   * 
+   * @param sourceIdFilter
+   *          optional source ID filter or {@literal null} for all available datum; can use
+   *          Ant-style patterns
+   * @return a stage completed with the latest available datum
+   */
+  CompletionStage<Collection<Datum>> latestDatumAsync(Set<String> sourceIdFilter);
+
+  /**
+   * Get the latest available datum, passing each datum to a consumer as it is decoded.
+   * 
+   * <p>
+   * This avoids holding the entire response in memory, and makes the first datum available before
+   * the entire response has been decoded.
+   * </p>
+   * 
+   * @param sourceIdFilter
+   *          optional source ID filter or {@literal null} for all available datum; can use
+   *          Ant-style patterns
+   * @param consumer
+   *          the consumer to pass each datum to
+   * @throws IllegalArgumentException
+   *           if {@code consumer} is {@literal null}
+   */
+  void streamLatestDatum(Set<String> sourceIdFilter, Consumer<Datum> consumer);
+
+  /**
+   * Get the latest available datum, passing each datum to a consumer as it is decoded, without
+   * blocking.
+   * 
+   * <p>
+   * The consumer may be invoked by a network I/O thread, and so should not block.
+   * </p>
+   * 
+   * @param sourceIdFilter
+   *          optional source ID filter or {@literal null} for all available datum; can use
+   *          Ant-style patterns
+   * @param consumer
+   *          the consumer to pass each datum to
+   * @return a stage completed after all datum have been passed to {@code consumer}
+   * @throws IllegalArgumentException
+   *           if {@code consumer} is {@literal null}
+   */
+  CompletionStage<Void> streamLatestDatumAsync(Set<String> sourceIdFilter,
+      Consumer<Datum> consumer);
+
+  /**
+   * Subscribe to datum pushed by the setup server.
+   * 
+   * <p>
+   * Datum are delivered as they arrive for as long as the subscription is active, without polling.
+   * The consumer may be invoked by a network I/O thread, and so should not block.
+   * </p>
+   * 
+   * @param sourceIdFilter
+   *          optional source ID filter or {@literal null} for all datum; can use Ant-style
+   *          patterns
+   * @param consumer
+   *          the consumer to pass each datum to
+   * @return the subscription handle, to unsubscribe with
+   * @throws IllegalArgumentException
+   *           if {@code consumer} is {@literal null}
+   */
+  Subscription subscribeDatum(Set<String> sourceIdFilter, Consumer<Datum> consumer);
+
   /**
    * Execute an arbitrary command.
    * 
@@ -88,4 +180,56 @@ public interface SetupClientService {
   Message<String> executeCommand(String service, MultiValueMap<String, String> headers,
       Object body);
 
+  /**
+   * Execute an arbitrary command, without blocking.
+   * 
+   * @param service
+   *          the setup service to execute
+   * @param headers
+   *          the headers
+   * @param body
+   *          the body content
+   * @return a stage completed with the result message
+   */
+  CompletionStage<Message<String>> executeCommandAsync(String service,
+      MultiValueMap<String, String> headers, Object body);
+
+  /**
+   * Execute a batch of commands.
+   * 
+   * <p>
+   * All commands are sent together, without waiting for the result of one before sending the
+   * next, so the batch takes about one round trip to the server rather than one per command.
+   * </p>
+   * 
+   * @param commands
+   *          the commands to execute
+   * @return the result messages, in the same order as {@code commands}
+   * @throws IllegalArgumentException
+   *           if {@code commands} is {@literal null}
+   * @throws RuntimeException
+   *           if any command fails
+   * @since 1.2
+   */
+  List<Message<String>> executeBatch(List<Command> commands);
+
+  /**
+   * Execute a batch of commands, without blocking.
+   * 
+   * <p>
+   * All commands are sent together, without waiting for the result of one before sending the
+   * next. Each returned stage is completed as soon as the result of its command arrives, so results
+   * can be handled as they complete, or in order.
+   * </p>
+   * 
+   * @param commands
+   *          the commands to execute
+   * @return a stage for each command, completed with its result message, in the same order as
+   *         {@code commands}
+   * @throws IllegalArgumentException
+   *           if {@code commands} is {@literal null}
+   * @since 1.2
+   */
+  List<CompletionStage<Message<String>>> executeBatchAsync(List<Command> commands);
+
 }
@@ -0,0 +1,108 @@
+/* ==================================================================
+ * SetupFleetService.java - 18/10/2026 9:31:02 AM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.service;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+import org.springframework.util.MultiValueMap;
+
+import net.solarnetwork.domain.datum.Datum;
+import net.solarnetwork.node.setup.stomp.client.domain.Message;
+import net.solarnetwork.node.setup.stomp.client.domain.NodeResult;
+import net.solarnetwork.node.setup.stomp.client.domain.SetupNodeInfo;
+
+/**
+ * High-level API for working with many SolarNode setup servers at once.
+ * 
+ * <p>
+ * Each operation is fanned out to all applicable nodes concurrently, and each node's result is
+ * passed to a consumer as soon as it is available. The consumer may be invoked concurrently from
+ * different threads.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public interface SetupFleetService {
+
+  /**
+   * Connect to a set of SolarNode Setup servers.
+   * 
+   * <p>
+   * Nodes that are already connected will be reconnected.
+   * </p>
+   * 
+   * @param nodes
+   *          the nodes to connect to
+   * @param consumer
+   *          a consumer for each node's connection result
+   * @return a stage completed once all nodes have produced a result
+   */
+  CompletionStage<Void> connect(Collection<SetupNodeInfo> nodes,
+      Consumer<NodeResult<Void>> consumer);
+
+  /**
+   * Disconnect from all connected servers.
+   */
+  void disconnect();
+
+  /**
+   * Get the nodes currently connected.
+   * 
+   * @return the connected nodes, never {@literal null}
+   */
+  Collection<SetupNodeInfo> getConnectedNodes();
+
+  /**
+   * Get the latest available datum from all connected nodes.
+   * 
+   * @param sourceIdFilter
+   *          optional source ID filter or {@literal null} for all available datum; can use
+   *          Ant-style patterns
+   * @param consumer
+   *          a consumer for each node's result
+   * @return a stage completed once all nodes have produced a result
+   */
+  CompletionStage<Void> latestDatum(Set<String> sourceIdFilter,
+      Consumer<NodeResult<Collection<Datum>>> consumer);
+
+  /**
+   * Execute an arbitrary command on all connected nodes.
+   * 
+   * @param service
+   *          the setup service to execute
+   * @param headers
+   *          the headers
+   * @param body
+   *          the body content
+   * @param consumer
+   *          a consumer for each node's result
+   * @return a stage completed once all nodes have produced a result
+   */
+  CompletionStage<Void> executeCommand(String service, MultiValueMap<String, String> headers,
+      Object body, Consumer<NodeResult<Message<String>>> consumer);
+
+}
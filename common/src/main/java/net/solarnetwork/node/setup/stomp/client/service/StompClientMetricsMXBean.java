@@ -0,0 +1,126 @@
+/* ==================================================================
+ * StompClientMetricsMXBean.java - 18/10/2026 10:05:41 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.service;
+
+import java.util.Map;
+
+import net.solarnetwork.node.setup.stomp.client.domain.LatencySummary;
+
+/**
+ * Management API for STOMP setup client metrics.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public interface StompClientMetricsMXBean {
+
+  /**
+   * Get the number of STOMP frames read.
+   * 
+   * @return the inbound frame count
+   */
+  long getFramesIn();
+
+  /**
+   * Get the number of STOMP frames written.
+   * 
+   * @return the outbound frame count
+   */
+  long getFramesOut();
+
+  /**
+   * Get the number of bytes read.
+   * 
+   * @return the inbound byte count
+   */
+  long getBytesIn();
+
+  /**
+   * Get the number of bytes written.
+   * 
+   * @return the outbound byte count
+   */
+  long getBytesOut();
+
+  /**
+   * Get the number of {@literal ERROR} frames read.
+   * 
+   * @return the error frame count
+   */
+  long getErrorFrames();
+
+  /**
+   * Get the number of requests awaiting a response.
+   * 
+   * @return the in-flight request count
+   */
+  long getInFlightRequests();
+
+  /**
+   * Get the number of completed requests.
+   * 
+   * @return the count of requests completed, successfully or not
+   */
+  long getRequestCount();
+
+  /**
+   * Get the number of requests that failed.
+   * 
+   * @return the count of requests completed with an error, including those cancelled or timed out
+   */
+  long getRequestErrors();
+
+  /**
+   * Get the number of connection attempts that failed.
+   * 
+   * @return the count of failed connection attempts
+   */
+  long getConnectFailures();
+
+  /**
+   * Get the number of established connections that were lost.
+   * 
+   * @return the count of lost connections
+   */
+  long getConnectionsLost();
+
+  /**
+   * Get the latency of successful requests, by destination.
+   * 
+   * @return the request latencies, never {@literal null}
+   */
+  Map<String, LatencySummary> getRequestLatencies();
+
+  /**
+   * Get the duration of each phase of successful connection attempts, by phase name.
+   * 
+   * @return the connect phase latencies, never {@literal null}
+   */
+  Map<String, LatencySummary> getConnectPhaseLatencies();
+
+  /**
+   * Reset all metrics, other than the in-flight request count.
+   */
+  void reset();
+
+}
@@ -0,0 +1,72 @@
+/* ==================================================================
+ * StompFrameStreamConsumer.java - 18/10/2026 2:31:47 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.service;
+
+import java.nio.ByteBuffer;
+
+import net.solarnetwork.node.setup.stomp.client.domain.StompMessage;
+
+/**
+ * API for a consumer of STOMP frame content as it arrives, rather than as complete messages.
+ * 
+ * <p>
+ * When a frame starts to arrive, each registered stream consumer is asked if it wants to stream the
+ * frame via {@link #acceptFrame(StompMessage)}. The first consumer to accept the frame is passed
+ * the frame content in one or more chunks via
+ * {@link #frameContent(StompMessage, ByteBuffer, boolean)}, and the frame is not passed to any
+ * message consumers. Frames on a single connection arrive one after another, so chunks from
+ * different frames are never interleaved for a given client.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public interface StompFrameStreamConsumer {
+
+  /**
+   * Test if a frame should be streamed to this consumer.
+   * 
+   * @param frame
+   *          the frame command and headers; the body is not available
+   * @return {@literal true} to stream the frame content to this consumer
+   */
+  boolean acceptFrame(StompMessage<?> frame);
+
+  /**
+   * Receive a chunk of content for a frame accepted by {@link #acceptFrame(StompMessage)}.
+   * 
+   * <p>
+   * The {@code content} buffer may share memory with network buffers, and is only valid for the
+   * duration of this call.
+   * </p>
+   * 
+   * @param frame
+   *          the frame command and headers, as passed to {@link #acceptFrame(StompMessage)}
+   * @param content
+   *          the content chunk, possibly empty
+   * @param last
+   *          {@literal true} if this is the final chunk of the frame
+   */
+  void frameContent(StompMessage<?> frame, ByteBuffer content, boolean last);
+
+}
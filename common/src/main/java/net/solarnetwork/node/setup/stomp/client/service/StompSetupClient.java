@@ -22,7 +22,8 @@
 
 package net.solarnetwork.node.setup.stomp.client.service;
 
-import java.util.concurrent.Future;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 import net.solarnetwork.node.setup.stomp.client.domain.StompMessage;
@@ -31,16 +32,17 @@ import net.solarnetwork.node.setup.stomp.client.domain.StompMessage;
  * API for a STOMP setup client.
  * 
  * @author matt
- * @version 1.0
+ * @version 1.4
  */
 public interface StompSetupClient {
 
   /**
    * Connect.
    * 
-   * @return a future with the connection result
+   * @return a future with the connection result, completed when the connection has been
+   *         established
    */
-  Future<?> connect();
+  CompletableFuture<Void> connect();
 
   /**
    * Test if the client is connected.
@@ -62,21 +64,130 @@ public interface StompSetupClient {
    */
   void addMessageConsumer(Consumer<StompMessage<String>> consumer);
 
+  /**
+   * Add a message consumer to receive messages sent to matching destinations with.
+   * 
+   * <p>
+   * The consumer will only be passed messages with a {@literal destination} header value that
+   * matches {@code destinationPattern}. The same consumer can be added with more than one pattern,
+   * and will be passed a matching message only once.
+   * </p>
+   * 
+   * @param destinationPattern
+   *          the Ant-style destination pattern to match, for example {@literal /setup/datum/**}
+   * @param consumer
+   *          the consumer
+   * @since 1.1
+   */
+  void addMessageConsumer(String destinationPattern, Consumer<StompMessage<String>> consumer);
+
   /**
    * Remove a previously added message consumer.
    * 
+   * <p>
+   * The consumer is removed for all destination patterns it was added with.
+   * </p>
+   * 
    * @param consumer
    *          the consumer to remove
    */
   void removeMessageConsumer(Consumer<StompMessage<String>> consumer);
 
+  /**
+   * Add a consumer to receive the content of selected frames as it arrives.
+   * 
+   * @param consumer
+   *          the consumer
+   */
+  void addFrameStreamConsumer(StompFrameStreamConsumer consumer);
+
+  /**
+   * Remove a previously added frame stream consumer.
+   * 
+   * @param consumer
+   *          the consumer to remove
+   */
+  void removeFrameStreamConsumer(StompFrameStreamConsumer consumer);
+
+  /**
+   * Add a listener to be notified when the connection is closed unexpectedly.
+   * 
+   * <p>
+   * Listeners are not notified when the connection is closed by {@link #disconnect()}. The
+   * listener is passed the cause of the connection being closed, for example a heart-beat timeout,
+   * or {@literal null} if the server closed the connection.
+   * </p>
+   * 
+   * @param listener
+   *          the listener
+   * @since 1.2
+   */
+  void addCloseListener(Consumer<Throwable> listener);
+
+  /**
+   * Remove a previously added close listener.
+   * 
+   * @param listener
+   *          the listener to remove
+   * @since 1.2
+   */
+  void removeCloseListener(Consumer<Throwable> listener);
+
   /**
    * Post a message.
    * 
+   * <p>
+   * The {@literal content-length} header is set by the client from the encoded body length.
+   * </p>
+   * 
    * @param message
    *          the message to post
-   * @return a future with the post result
+   * @return a future with the post result, completed when the message has been written
+   */
+  CompletableFuture<Void> post(StompMessage<?> message);
+
+  /**
+   * Post a list of messages together.
+   * 
+   * <p>
+   * The messages are written in order, and then flushed once, rather than flushing after each
+   * message as {@link #post(StompMessage)} does.
+   * </p>
+   * 
+   * @param messages
+   *          the messages to post
+   * @return a future with the post result, completed when all messages have been written
+   * @since 1.3
+   */
+  CompletableFuture<Void> postAll(List<? extends StompMessage<?>> messages);
+
+  /**
+   * Test if messages can be posted without exceeding the outbound buffer limit.
+   * 
+   * <p>
+   * A client that posts messages faster than they can be written to the network buffers them in
+   * memory. Once the buffered amount exceeds a high water mark the client is no longer writable,
+   * until enough has been written to drop below a low water mark. High-rate senders should stop
+   * posting while the client is not writable.
+   * </p>
+   * 
+   * @return {@literal true} if connected and the outbound buffer is below its limit
+   * @since 1.4
+   */
+  boolean isWritable();
+
+  /**
+   * Get a future that is completed once the client is writable.
+   * 
+   * <p>
+   * This allows a sender to suspend posting messages while the client is not writable, without
+   * blocking a thread. The future may be completed by a network I/O thread.
+   * </p>
+   * 
+   * @return a future completed immediately if the client is writable, otherwise when it becomes
+   *         writable, or exceptionally if the connection is closed first
+   * @since 1.4
    */
-  Future<?> post(StompMessage<?> message);
+  CompletableFuture<Void> whenWritable();
 
 }
@@ -0,0 +1,58 @@
+/* ==================================================================
+ * Subscription.java - 18/10/2026 3:32:08 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.service;
+
+/**
+ * A handle to an active subscription.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public interface Subscription extends AutoCloseable {
+
+  /**
+   * Cancel the subscription.
+   * 
+   * <p>
+   * No further values will be delivered after this method returns, other than any delivery that is
+   * already in progress on another thread. Calling this method more than once has no effect.
+   * </p>
+   */
+  void unsubscribe();
+
+  /**
+   * Test if the subscription is still active.
+   * 
+   * @return {@literal true} if {@link #unsubscribe()} has not been called
+   */
+  boolean isActive();
+
+  /**
+   * Calls {@link #unsubscribe()}.
+   */
+  @Override
+  default void close() {
+    unsubscribe();
+  }
+
+}
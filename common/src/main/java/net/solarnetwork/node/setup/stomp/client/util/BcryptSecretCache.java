@@ -0,0 +1,197 @@
+/* ==================================================================
+ * BcryptSecretCache.java - 18/10/2026 9:20:36 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.util;
+
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.apache.commons.codec.digest.HmacUtils;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+/**
+ * Derive and cache authentication secrets from bcrypt password hashes.
+ * 
+ * <p>
+ * A secret is the hex-encoded SHA-256 digest of the bcrypt hash of a password with a given salt.
+ * Bcrypt is deliberately slow, so secrets are derived on a dedicated executor, and cached so that
+ * connecting again with the same username, salt, and password does not derive the secret again.
+ * Concurrent requests for the same secret share a single derivation.
+ * </p>
+ * 
+ * <p>
+ * The cache holds at most {@code maximumSize} secrets, discarding the least recently used. Cache
+ * keys are an HMAC of the username, salt, and password, using a random key generated for each
+ * cache instance, so passwords are not held by the cache and the keys cannot be used to guess
+ * them.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class BcryptSecretCache {
+
+  /**
+   * The {@code maximumSize} default value.
+   */
+  public static final int DEFAULT_MAXIMUM_SIZE = 64;
+
+  private final Executor executor;
+  private final int maximumSize;
+  private final HmacUtils keyHmac;
+  private final Map<String, CompletableFuture<String>> cache;
+
+  /**
+   * Constructor.
+   * 
+   * @param executor
+   *          the executor to derive secrets on
+   * @param maximumSize
+   *          the maximum number of secrets to cache
+   * @throws IllegalArgumentException
+   *           if {@code executor} is {@literal null} or {@code maximumSize} is less than
+   *           {@literal 1}
+   */
+  public BcryptSecretCache(Executor executor, int maximumSize) {
+    super();
+    if (executor == null) {
+      throw new IllegalArgumentException("The executor argument must not be null.");
+    }
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException("The maximumSize argument must be at least 1.");
+    }
+    this.executor = executor;
+    this.maximumSize = maximumSize;
+    final byte[] hmacKey = new byte[32];
+    new SecureRandom().nextBytes(hmacKey);
+    this.keyHmac = new HmacUtils(HmacAlgorithms.HMAC_SHA_256, hmacKey);
+    this.cache = new LinkedHashMap<String, CompletableFuture<String>>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<String>> eldest) {
+        return size() > BcryptSecretCache.this.maximumSize;
+      }
+
+    };
+  }
+
+  /**
+   * Derive a secret, without caching.
+   * 
+   * @param password
+   *          the password
+   * @param salt
+   *          the bcrypt salt
+   * @return the secret
+   */
+  public static String deriveSecret(String password, String salt) {
+    return DigestUtils.sha256Hex(BCrypt.hashpw(password, salt));
+  }
+
+  /**
+   * Get a secret, deriving it if it is not already cached.
+   * 
+   * <p>
+   * The returned future is completed by the derivation executor, or immediately if the secret is
+   * already cached. A derivation that fails is not cached.
+   * </p>
+   * 
+   * @param username
+   *          the username
+   * @param salt
+   *          the bcrypt salt
+   * @param password
+   *          the password
+   * @return a future with the secret
+   */
+  public CompletableFuture<String> secret(String username, String salt, String password) {
+    final String key;
+    final CompletableFuture<String> result;
+    synchronized (cache) {
+      // the HMAC is not thread safe
+      key = keyHmac.hmacHex(String.valueOf(username) + '\0' + salt + '\0' + password);
+      CompletableFuture<String> f = cache.get(key);
+      if (f != null && !f.isCompletedExceptionally()) {
+        return f;
+      }
+      result = new CompletableFuture<>();
+      cache.put(key, result);
+    }
+    try {
+      executor.execute(() -> {
+        try {
+          result.complete(deriveSecret(password, salt));
+        } catch (RuntimeException e) {
+          failed(key, result, e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      failed(key, result, e);
+    }
+    return result;
+  }
+
+  private void failed(String key, CompletableFuture<String> f, Throwable t) {
+    synchronized (cache) {
+      cache.remove(key, f);
+    }
+    f.completeExceptionally(t);
+  }
+
+  /**
+   * Remove all cached secrets.
+   */
+  public void clear() {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+  /**
+   * Get the number of cached secrets.
+   * 
+   * @return the number of secrets, including those still being derived
+   */
+  public int size() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  /**
+   * Get the maximum size.
+   * 
+   * @return the maximum number of secrets cached
+   */
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+}
@@ -0,0 +1,302 @@
+/* ==================================================================
+ * DestinationPatternIndex.java - 18/10/2026 6:14:38 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * An index of values registered against Ant-style destination patterns, organised as a trie of
+ * {@literal /} delimited path segments.
+ * 
+ * <p>
+ * Patterns support literal segments, {@literal *} to match exactly one segment, {@literal **} to
+ * match zero or more segments, {@literal ?} and {@literal *} within a segment, and
+ * {@literal {name}} template variables, which match any one segment. Looking up a destination
+ * only visits the trie branches that can match it, so the cost is proportional to the number of
+ * matching patterns rather than the total number registered.
+ * </p>
+ * 
+ * <p>
+ * This class is thread safe. Lookups are lock-free, against an immutable trie that is rebuilt
+ * whenever a registration changes, on the assumption that registrations change far less often
+ * than lookups are performed.
+ * </p>
+ * 
+ * @param <T>
+ *          the value type
+ * @author matt
+ * @version 1.0
+ */
+public class DestinationPatternIndex<T> {
+
+  private static final String PATH_SEPARATOR = "/";
+  private static final String SINGLE_WILDCARD = "*";
+  private static final String MULTI_WILDCARD = "**";
+
+  private final List<Registration<T>> registrations = new ArrayList<>();
+  private volatile Node<T> root = new Node<>();
+  private volatile boolean empty = true;
+
+  /**
+   * A pattern and value pair.
+   */
+  private static final class Registration<T> {
+
+    private final String pattern;
+    private final T value;
+
+    private Registration(String pattern, T value) {
+      super();
+      this.pattern = pattern;
+      this.value = value;
+    }
+
+  }
+
+  /**
+   * A segment pattern and the node it leads to.
+   */
+  private static final class SegmentPattern<T> {
+
+    private final Pattern pattern;
+    private final Node<T> node = new Node<>();
+
+    private SegmentPattern(Pattern pattern) {
+      super();
+      this.pattern = pattern;
+    }
+
+  }
+
+  /**
+   * A trie node.
+   */
+  private static final class Node<T> {
+
+    private final Map<String, Node<T>> literals = new HashMap<>(4);
+    private final List<SegmentPattern<T>> segmentPatterns = new ArrayList<>(2);
+    private final List<T> values = new ArrayList<>(2);
+    private Node<T> single;
+    private Node<T> multi;
+
+    private void insert(String[] segments, int idx, T value) {
+      if (idx == segments.length) {
+        values.add(value);
+        return;
+      }
+      final String seg = segments[idx];
+      final Node<T> child;
+      if (MULTI_WILDCARD.equals(seg)) {
+        if (multi == null) {
+          multi = new Node<>();
+        }
+        child = multi;
+      } else if (SINGLE_WILDCARD.equals(seg) || isTemplateVariable(seg)) {
+        if (single == null) {
+          single = new Node<>();
+        }
+        child = single;
+      } else if (seg.indexOf('*') >= 0 || seg.indexOf('?') >= 0) {
+        SegmentPattern<T> sp = null;
+        final String regex = segmentRegex(seg);
+        for (SegmentPattern<T> p : segmentPatterns) {
+          if (p.pattern.pattern().equals(regex)) {
+            sp = p;
+            break;
+          }
+        }
+        if (sp == null) {
+          sp = new SegmentPattern<>(Pattern.compile(regex));
+          segmentPatterns.add(sp);
+        }
+        child = sp.node;
+      } else {
+        child = literals.computeIfAbsent(seg, k -> new Node<>());
+      }
+      child.insert(segments, idx + 1, value);
+    }
+
+    private void match(String[] segments, int idx, Set<T> result) {
+      if (multi != null) {
+        for (int i = idx; i <= segments.length; i++) {
+          multi.match(segments, i, result);
+        }
+      }
+      if (idx == segments.length) {
+        result.addAll(values);
+        return;
+      }
+      final String seg = segments[idx];
+      final Node<T> literal = literals.get(seg);
+      if (literal != null) {
+        literal.match(segments, idx + 1, result);
+      }
+      if (single != null) {
+        single.match(segments, idx + 1, result);
+      }
+      for (SegmentPattern<T> sp : segmentPatterns) {
+        if (sp.pattern.matcher(seg).matches()) {
+          sp.node.match(segments, idx + 1, result);
+        }
+      }
+    }
+
+  }
+
+  private static boolean isTemplateVariable(String seg) {
+    return (seg.length() > 1 && seg.charAt(0) == '{' && seg.charAt(seg.length() - 1) == '}');
+  }
+
+  private static String segmentRegex(String seg) {
+    StringBuilder buf = new StringBuilder();
+    int start = 0;
+    for (int i = 0; i < seg.length(); i++) {
+      char c = seg.charAt(i);
+      if (c == '*' || c == '?') {
+        if (i > start) {
+          buf.append(Pattern.quote(seg.substring(start, i)));
+        }
+        buf.append(c == '*' ? ".*" : ".");
+        start = i + 1;
+      }
+    }
+    if (start < seg.length()) {
+      buf.append(Pattern.quote(seg.substring(start)));
+    }
+    return buf.toString();
+  }
+
+  private static String[] segments(String path) {
+    return StringUtils.tokenizeToStringArray(path, PATH_SEPARATOR);
+  }
+
+  private void rebuild() {
+    Node<T> r = new Node<>();
+    for (Registration<T> reg : registrations) {
+      r.insert(segments(reg.pattern), 0, reg.value);
+    }
+    root = r;
+    empty = registrations.isEmpty();
+  }
+
+  /**
+   * Register a value for a destination pattern.
+   * 
+   * @param pattern
+   *          the Ant-style destination pattern
+   * @param value
+   *          the value to register
+   * @throws IllegalArgumentException
+   *           if any argument is {@literal null}
+   */
+  public synchronized void add(String pattern, T value) {
+    if (pattern == null) {
+      throw new IllegalArgumentException("The pattern argument must not be null.");
+    }
+    if (value == null) {
+      throw new IllegalArgumentException("The value argument must not be null.");
+    }
+    registrations.add(new Registration<>(pattern, value));
+    rebuild();
+  }
+
+  /**
+   * Remove a value registered for a specific pattern.
+   * 
+   * @param pattern
+   *          the pattern the value was registered with
+   * @param value
+   *          the value to remove
+   * @return {@literal true} if the registration was found and removed
+   */
+  public synchronized boolean remove(String pattern, T value) {
+    for (Iterator<Registration<T>> itr = registrations.iterator(); itr.hasNext();) {
+      Registration<T> reg = itr.next();
+      if (reg.pattern.equals(pattern) && reg.value.equals(value)) {
+        itr.remove();
+        rebuild();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Remove all registrations of a value.
+   * 
+   * @param value
+   *          the value to remove
+   * @return {@literal true} if any registration was found and removed
+   */
+  public synchronized boolean removeAll(T value) {
+    boolean removed = false;
+    for (Iterator<Registration<T>> itr = registrations.iterator(); itr.hasNext();) {
+      if (itr.next().value.equals(value)) {
+        itr.remove();
+        removed = true;
+      }
+    }
+    if (removed) {
+      rebuild();
+    }
+    return removed;
+  }
+
+  /**
+   * Test if no values are registered.
+   * 
+   * @return {@literal true} if the index is empty
+   */
+  public boolean isEmpty() {
+    return empty;
+  }
+
+  /**
+   * Find the values registered with patterns that match a destination.
+   * 
+   * @param destination
+   *          the destination to match
+   * @return the matching values, in no particular order and without duplicates, never
+   *         {@literal null}
+   */
+  public Set<T> match(String destination) {
+    if (destination == null || empty) {
+      return Collections.emptySet();
+    }
+    final Node<T> r = root;
+    Set<T> result = new LinkedHashSet<>(4);
+    r.match(segments(destination), 0, result);
+    return result;
+  }
+
+}
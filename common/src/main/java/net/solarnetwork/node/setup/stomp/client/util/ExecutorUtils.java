@@ -0,0 +1,103 @@
+/* ==================================================================
+ * ExecutorUtils.java - 18/10/2026 5:26:03 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor utilities.
+ * 
+ * @author matt
+ * @version 1.1
+ */
+public final class ExecutorUtils {
+
+  private ExecutorUtils() {
+    // can't construct me
+  }
+
+  /**
+   * Create an executor that runs each task in a new virtual thread, if supported by the runtime.
+   * 
+   * <p>
+   * On runtimes without virtual threads (before Java 21), a cached thread pool of daemon threads is
+   * returned instead.
+   * </p>
+   * 
+   * @param name
+   *          the thread name prefix to use for non-virtual threads
+   * @return the executor
+   */
+  public static ExecutorService newVirtualThreadPerTaskExecutor(String name) {
+    try {
+      Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) m.invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return Executors.newCachedThreadPool(daemonThreadFactory(name));
+    }
+  }
+
+  /**
+   * Create a fixed-size executor with a bounded task queue, for CPU-bound work.
+   * 
+   * <p>
+   * Idle threads are allowed to time out, so the executor holds no threads while unused. Tasks
+   * submitted while the queue is full are rejected with a
+   * {@link java.util.concurrent.RejectedExecutionException}, rather than being run by the
+   * submitting thread.
+   * </p>
+   * 
+   * @param name
+   *          the thread name prefix to use
+   * @param threads
+   *          the maximum number of threads
+   * @param queueCapacity
+   *          the maximum number of queued tasks
+   * @return the executor
+   * @since 1.1
+   */
+  public static ExecutorService newBoundedExecutor(String name, int threads, int queueCapacity) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(queueCapacity), daemonThreadFactory(name),
+        new ThreadPoolExecutor.AbortPolicy());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private static ThreadFactory daemonThreadFactory(String name) {
+    final AtomicInteger count = new AtomicInteger();
+    return r -> {
+      Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    };
+  }
+
+}
@@ -0,0 +1,303 @@
+/* ==================================================================
+ * JsonArrayStreamDecoder.java - 18/10/2026 2:41:17 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Decode the object elements of a JSON array one at a time, as they are parsed.
+ * 
+ * <p>
+ * Elements are bound with a single reusable {@link ObjectReader} directly from the parser, without
+ * first reading the document into a tree or string. Only object elements are decoded; any other
+ * elements are skipped, as is the entire document if it is not an array, unless decoding with
+ * {@link #decodeValues(InputStream, Consumer)} which also accepts a single object.
+ * </p>
+ * 
+ * <p>
+ * Both blocking ({@link #decode(InputStream, Consumer)}) and non-blocking ({@link Feeder}) input is
+ * supported. In the non-blocking case each element is buffered as tokens until it is complete, so
+ * memory use is bounded by the largest element rather than the whole array.
+ * </p>
+ * 
+ * @param <T>
+ *          the element type
+ * @author matt
+ * @version 1.1
+ */
+public class JsonArrayStreamDecoder<T> {
+
+  private final ObjectMapper mapper;
+  private final ObjectReader reader;
+
+  /**
+   * Constructor.
+   * 
+   * @param mapper
+   *          the mapper to use
+   * @param type
+   *          the element type
+   * @throws IllegalArgumentException
+   *           if any argument is {@literal null}
+   */
+  public JsonArrayStreamDecoder(ObjectMapper mapper, Class<T> type) {
+    super();
+    if (mapper == null) {
+      throw new IllegalArgumentException("The mapper argument must not be null.");
+    }
+    if (type == null) {
+      throw new IllegalArgumentException("The type argument must not be null.");
+    }
+    this.mapper = mapper;
+    this.reader = mapper.readerFor(type);
+  }
+
+  /**
+   * Decode a JSON array from a stream.
+   * 
+   * @param in
+   *          the stream to read
+   * @param consumer
+   *          the consumer to pass each decoded element to
+   * @return the number of elements passed to {@code consumer}
+   * @throws IOException
+   *           if any parsing or binding error occurs
+   */
+  public int decode(InputStream in, Consumer<? super T> consumer) throws IOException {
+    return decodeDocument(in, consumer, false);
+  }
+
+  /**
+   * Decode either a JSON array or a single JSON object from a stream.
+   * 
+   * @param in
+   *          the stream to read
+   * @param consumer
+   *          the consumer to pass each decoded element to
+   * @return the number of elements passed to {@code consumer}
+   * @throws IOException
+   *           if any parsing or binding error occurs
+   * @since 1.1
+   */
+  public int decodeValues(InputStream in, Consumer<? super T> consumer) throws IOException {
+    return decodeDocument(in, consumer, true);
+  }
+
+  private int decodeDocument(InputStream in, Consumer<? super T> consumer, boolean allowObject)
+      throws IOException {
+    int count = 0;
+    try (JsonParser p = mapper.getFactory().createParser(in)) {
+      JsonToken t = p.nextToken();
+      if (allowObject && t == JsonToken.START_OBJECT) {
+        T value = reader.readValue(p);
+        if (value != null) {
+          consumer.accept(value);
+          count++;
+        }
+        return count;
+      } else if (t != JsonToken.START_ARRAY) {
+        return count;
+      }
+      while ((t = p.nextToken()) != null && t != JsonToken.END_ARRAY) {
+        if (t == JsonToken.START_OBJECT) {
+          T value = reader.readValue(p);
+          if (value != null) {
+            consumer.accept(value);
+            count++;
+          }
+        } else {
+          p.skipChildren();
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Create a new non-blocking feeder.
+   * 
+   * @param consumer
+   *          the consumer to pass each decoded element to
+   * @return the feeder
+   * @throws IOException
+   *           if the parser cannot be created
+   */
+  public Feeder newFeeder(Consumer<? super T> consumer) throws IOException {
+    return new Feeder(mapper.getFactory().createNonBlockingByteArrayParser(), consumer);
+  }
+
+  /**
+   * Non-blocking decoder that is fed the JSON document in chunks.
+   * 
+   * <p>
+   * This class is not thread safe: chunks must be fed one after another.
+   * </p>
+   */
+  public final class Feeder implements Closeable {
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder input;
+    private final Consumer<? super T> consumer;
+
+    private byte[] chunk;
+    private boolean started;
+    private boolean skip;
+    private TokenBuffer element;
+    private boolean object;
+    private int depth;
+    private int count;
+
+    private Feeder(JsonParser parser, Consumer<? super T> consumer) {
+      super();
+      this.parser = parser;
+      this.input = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+      this.consumer = consumer;
+    }
+
+    /**
+     * Feed the next chunk of the document.
+     * 
+     * <p>
+     * All complete elements available after the chunk is parsed are passed to the consumer before
+     * this method returns, and the chunk is not referenced afterwards.
+     * </p>
+     * 
+     * @param data
+     *          the chunk to feed; all remaining bytes are consumed
+     * @throws IOException
+     *           if any parsing or binding error occurs
+     */
+    public void feed(ByteBuffer data) throws IOException {
+      final int len = data.remaining();
+      if (len < 1) {
+        return;
+      }
+      if (data.hasArray()) {
+        final int off = data.arrayOffset() + data.position();
+        input.feedInput(data.array(), off, off + len);
+      } else {
+        if (chunk == null || chunk.length < len) {
+          chunk = new byte[len];
+        }
+        data.get(chunk, 0, len);
+        input.feedInput(chunk, 0, len);
+      }
+      data.position(data.limit());
+      drain();
+    }
+
+    /**
+     * Signal the end of the document.
+     * 
+     * @return the number of elements passed to the consumer
+     * @throws IOException
+     *           if the document is incomplete or any parsing or binding error occurs
+     */
+    public int end() throws IOException {
+      input.endOfInput();
+      try {
+        drain();
+      } finally {
+        close();
+      }
+      return count;
+    }
+
+    private void drain() throws IOException {
+      JsonToken t;
+      while ((t = parser.nextToken()) != null && t != JsonToken.NOT_AVAILABLE) {
+        if (!started) {
+          started = true;
+          skip = (t != JsonToken.START_ARRAY);
+          if (!skip) {
+            continue;
+          }
+        }
+        if (skip) {
+          continue;
+        }
+        if (element == null) {
+          if (t == JsonToken.END_ARRAY) {
+            skip = true;
+            continue;
+          }
+          element = new TokenBuffer(parser);
+          object = (t == JsonToken.START_OBJECT);
+          depth = 0;
+        }
+        element.copyCurrentEvent(parser);
+        if (t.isStructStart()) {
+          depth++;
+        } else if (t.isStructEnd()) {
+          depth--;
+        }
+        if (depth == 0) {
+          elementComplete();
+        }
+      }
+    }
+
+    private void elementComplete() throws IOException {
+      final TokenBuffer buf = element;
+      element = null;
+      if (!object) {
+        return;
+      }
+      try (JsonParser p = buf.asParser(parser.getCodec())) {
+        T value = reader.readValue(p);
+        if (value != null) {
+          consumer.accept(value);
+          count++;
+        }
+      }
+    }
+
+    /**
+     * Get the number of elements passed to the consumer so far.
+     * 
+     * @return the count
+     */
+    public int getCount() {
+      return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+      element = null;
+      parser.close();
+    }
+
+  }
+
+}
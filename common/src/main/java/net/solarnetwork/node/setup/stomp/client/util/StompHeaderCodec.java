@@ -0,0 +1,152 @@
+/* ==================================================================
+ * StompHeaderCodec.java - 18/10/2026 1:14:36 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.util;
+
+/**
+ * STOMP 1.2 header value escaping and unescaping.
+ * 
+ * <p>
+ * Both operations make a single pass over the value and return the given instance unchanged when
+ * there is nothing to escape or unescape, so the common case does not allocate. Note that STOMP
+ * requires that {@literal CONNECT} and {@literal CONNECTED} frame headers are <b>not</b> escaped.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.0
+ * @see <a href="https://stomp.github.io/stomp-specification-1.2.html#Value_Encoding">STOMP 1.2
+ *      Value Encoding</a>
+ */
+public final class StompHeaderCodec {
+
+  private StompHeaderCodec() {
+    // can't construct me
+  }
+
+  private static boolean needsEscape(char c) {
+    return (c == '\\' || c == '\r' || c == '\n' || c == ':');
+  }
+
+  /**
+   * Escape a header value.
+   * 
+   * @param value
+   *          the value to escape
+   * @return the escaped value, which will be {@code value} itself if no escaping was required
+   */
+  public static String escape(String value) {
+    if (value == null) {
+      return null;
+    }
+    final int len = value.length();
+    int i = 0;
+    while (i < len && !needsEscape(value.charAt(i))) {
+      i++;
+    }
+    if (i == len) {
+      return value;
+    }
+    StringBuilder buf = new StringBuilder(len + 8);
+    buf.append(value, 0, i);
+    for (; i < len; i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\':
+          buf.append("\\\\");
+          break;
+
+        case '\r':
+          buf.append("\\r");
+          break;
+
+        case '\n':
+          buf.append("\\n");
+          break;
+
+        case ':':
+          buf.append("\\c");
+          break;
+
+        default:
+          buf.append(c);
+      }
+    }
+    return buf.toString();
+  }
+
+  /**
+   * Unescape a header value.
+   * 
+   * @param value
+   *          the value to unescape
+   * @return the unescaped value, which will be {@code value} itself if no unescaping was required
+   * @throws IllegalArgumentException
+   *           if {@code value} contains an undefined escape sequence, which STOMP treats as a
+   *           fatal protocol error
+   */
+  public static String unescape(String value) {
+    if (value == null) {
+      return null;
+    }
+    int i = value.indexOf('\\');
+    if (i < 0) {
+      return value;
+    }
+    final int len = value.length();
+    StringBuilder buf = new StringBuilder(len);
+    buf.append(value, 0, i);
+    for (; i < len; i++) {
+      char c = value.charAt(i);
+      if (c != '\\') {
+        buf.append(c);
+        continue;
+      }
+      if (++i >= len) {
+        throw new IllegalArgumentException("Incomplete escape sequence in header value.");
+      }
+      c = value.charAt(i);
+      switch (c) {
+        case '\\':
+          buf.append('\\');
+          break;
+
+        case 'r':
+          buf.append('\r');
+          break;
+
+        case 'n':
+          buf.append('\n');
+          break;
+
+        case 'c':
+          buf.append(':');
+          break;
+
+        default:
+          throw new IllegalArgumentException("Undefined escape sequence \\" + c
+              + " in header value.");
+      }
+    }
+    return buf.toString();
+  }
+
+}
@@ -0,0 +1,245 @@
+/* ==================================================================
+ * NettyStompClientTests.java - 19/10/2026 10:41:52 AM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl.test;
+
+import static net.solarnetwork.node.setup.stomp.client.domain.BasicStompMessage.stringMessage;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.stomp.StompFrame;
+import io.netty.handler.codec.stomp.StompHeaders;
+import net.solarnetwork.node.setup.stomp.SetupTopic;
+import net.solarnetwork.node.setup.stomp.StompCommand;
+import net.solarnetwork.node.setup.stomp.StompHeader;
+import net.solarnetwork.node.setup.stomp.client.impl.NettyStompClient;
+import net.solarnetwork.node.setup.stomp.client.test.StompSetupTestServer;
+
+/**
+ * Test cases for the {@link NettyStompClient} class, connected to a {@link StompSetupTestServer}
+ * over the loopback interface.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class NettyStompClientTests {
+
+  private static final int MAX_POSTS = 2000;
+
+  private StompSetupTestServer server;
+  private NettyStompClient client;
+
+  /**
+   * Setup for test.
+   * 
+   * @throws Exception
+   *           if any error occurs
+   */
+  @BeforeEach
+  public void setup() throws Exception {
+    server = new StompSetupTestServer();
+    server.setPassword(null);
+    server.start();
+    client = new NettyStompClient(server.getHost(), server.getPort());
+  }
+
+  /**
+   * Tear down after test.
+   */
+  @AfterEach
+  public void teardown() {
+    client.shutdown();
+    server.stop();
+  }
+
+  private void connectClient() throws Exception {
+    client.connect().get(10, TimeUnit.SECONDS);
+    MultiValueMap<String, String> headers = new LinkedMultiValueMap<>(2);
+    headers.set(StompHeader.AcceptVersion.getValue(), "1.2");
+    headers.set(StompHeader.Login.getValue(), StompSetupTestServer.DEFAULT_USERNAME);
+    client.post(stringMessage(StompCommand.CONNECT, headers));
+
+    // server accepts any credentials without a password
+    headers = new LinkedMultiValueMap<>(1);
+    headers.set(StompHeader.Destination.getValue(), SetupTopic.Authenticate.getValue());
+    client.post(stringMessage(StompCommand.SEND, headers)).get(10, TimeUnit.SECONDS);
+  }
+
+  private static String body(int length) {
+    final char[] data = new char[length];
+    Arrays.fill(data, 'x');
+    return new String(data);
+  }
+
+  @Test
+  public void createFrame_nonAsciiBody() {
+    // GIVEN
+    final String body = "Temp °C €";
+    final byte[] utf8 = body.getBytes(StandardCharsets.UTF_8);
+    MultiValueMap<String, String> headers = new LinkedMultiValueMap<>(1);
+    headers.set(StompHeader.Destination.getValue(), "/setup/test");
+
+    // WHEN
+    StompFrame frame = client.createFrame(PooledByteBufAllocator.DEFAULT,
+        stringMessage(StompCommand.SEND, headers, body));
+
+    // THEN
+    try {
+      assertThat("Content length is UTF-8 byte count",
+          frame.headers().getAsString(StompHeaders.CONTENT_LENGTH),
+          is(equalTo(String.valueOf(utf8.length))));
+      assertThat("Body encoded as UTF-8", frame.content().toString(StandardCharsets.UTF_8),
+          is(equalTo(body)));
+      assertThat("Direct buffer used by default", frame.content().isDirect(), is(true));
+    } finally {
+      frame.release();
+    }
+  }
+
+  @Test
+  public void createFrame_heapBuffers() {
+    // GIVEN
+    client.setDirectBuffers(false);
+    MultiValueMap<String, String> headers = new LinkedMultiValueMap<>(1);
+    headers.set(StompHeader.Destination.getValue(), "/setup/test");
+
+    // WHEN
+    StompFrame frame = client.createFrame(PooledByteBufAllocator.DEFAULT,
+        stringMessage(StompCommand.SEND, headers, "Hello, été."));
+
+    // THEN
+    try {
+      assertThat("Heap buffer used", frame.content().isDirect(), is(false));
+      assertThat("Content length is UTF-8 byte count",
+          frame.headers().getAsString(StompHeaders.CONTENT_LENGTH), is(equalTo("13")));
+      assertThat("Body encoded as UTF-8", frame.content().toString(StandardCharsets.UTF_8),
+          is(equalTo("Hello, été.")));
+    } finally {
+      frame.release();
+    }
+  }
+
+  @Test
+  public void post_heapBuffers() throws Exception {
+    // GIVEN
+    client.setDirectBuffers(false);
+    server.setTopicHandler("/setup/test/echo", r -> r.getBody());
+    connectClient();
+    final CompletableFuture<String> reply = new CompletableFuture<>();
+    client.addMessageConsumer(m -> {
+      if (m.getCommand() == StompCommand.MESSAGE) {
+        reply.complete(m.getBody());
+      }
+    });
+
+    // WHEN
+    MultiValueMap<String, String> headers = new LinkedMultiValueMap<>(1);
+    headers.set(StompHeader.Destination.getValue(), "/setup/test/echo");
+    client.post(stringMessage(StompCommand.SEND, headers, "Hello, été."));
+
+    // THEN
+    assertThat("Heap buffer body echoed", reply.get(10, TimeUnit.SECONDS),
+        is(equalTo("Hello, été.")));
+  }
+
+  @Test
+  public void writable() throws Exception {
+    // WHEN
+    connectClient();
+
+    // THEN
+    assertThat("Connected client writable", client.isWritable(), is(true));
+    assertThat("Writable future completed", client.whenWritable().isDone(), is(true));
+  }
+
+  @Test
+  public void notWritable_notConnected() {
+    // WHEN
+    CompletableFuture<Void> f = client.whenWritable();
+
+    // THEN
+    assertThat("Disconnected client not writable", client.isWritable(), is(false));
+    assertThat("Writable future failed", f.isCompletedExceptionally(), is(true));
+  }
+
+  @Test
+  public void writeBufferWaterMark_inverted() {
+    // WHEN
+    assertThrows(IllegalArgumentException.class, () -> client.setWriteBufferWaterMark(2048, 1024));
+
+    // THEN
+    assertThat("Low water mark unchanged", client.getWriteBufferLowWaterMark(),
+        is(NettyStompClient.DEFAULT_WRITE_BUFFER_LOW_WATER_MARK));
+    assertThat("High water mark unchanged", client.getWriteBufferHighWaterMark(),
+        is(NettyStompClient.DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK));
+  }
+
+  @Test
+  public void backpressure() throws Exception {
+    // GIVEN
+    connectClient();
+    server.setAutoRead(false);
+
+    // WHEN
+    // post until the unread data overflows the socket buffers and the high water mark
+    MultiValueMap<String, String> headers = new LinkedMultiValueMap<>(1);
+    headers.set(StompHeader.Destination.getValue(), "/setup/test/sink");
+    final String body = body(64 * 1024);
+    CompletableFuture<Void> writable = null;
+    for (int count = 0; count < MAX_POSTS; count++) {
+      if (!client.isWritable()) {
+        // writable again once the socket has accepted the buffered data, until it is full
+        writable = client.whenWritable();
+        try {
+          writable.get(200, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+          break;
+        }
+      }
+      client.post(stringMessage(StompCommand.SEND, headers, body));
+    }
+    assertThat("Client stopped being writable", client.isWritable(), is(false));
+    assertThat("Writable future waiting while server paused", writable.isDone(), is(false));
+
+    server.setAutoRead(true);
+
+    // THEN
+    writable.get(10, TimeUnit.SECONDS);
+    assertThat("Client writable after server resumed", client.isWritable(), is(true));
+  }
+
+}
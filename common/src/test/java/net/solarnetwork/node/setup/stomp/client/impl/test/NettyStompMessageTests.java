@@ -0,0 +1,147 @@
+/* ==================================================================
+ * NettyStompMessageTests.java - 18/10/2026 11:34:09 AM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.MultiValueMap;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.stomp.DefaultStompFrame;
+import io.netty.handler.codec.stomp.StompCommand;
+import io.netty.handler.codec.stomp.StompFrame;
+import io.netty.handler.codec.stomp.StompHeaders;
+import net.solarnetwork.node.setup.stomp.client.domain.StompMessage;
+import net.solarnetwork.node.setup.stomp.client.impl.NettyStompMessage;
+
+/**
+ * Test cases for the {@link NettyStompMessage} class.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class NettyStompMessageTests {
+
+  private static StompFrame pooledFrame(String body) {
+    ByteBuf buf = PooledByteBufAllocator.DEFAULT.buffer();
+    ByteBufUtil.writeUtf8(buf, body);
+    DefaultStompFrame frame = new DefaultStompFrame(StompCommand.MESSAGE, buf);
+    frame.headers().set(StompHeaders.DESTINATION, "/setup/test");
+    return frame;
+  }
+
+  @Test
+  public void sharesFrameContent() {
+    // GIVEN
+    StompFrame frame = pooledFrame("Hello, world.");
+
+    // WHEN
+    NettyStompMessage<String> msg = NettyStompMessage.stringMessage(frame);
+
+    // THEN
+    assertThat("Content buffer shared with frame", msg.getContentBuffer(),
+        is(sameInstance(frame.content())));
+    assertThat("Body decoded", msg.getBody(), is("Hello, world."));
+    frame.release();
+  }
+
+  @Test
+  public void retainRelease() {
+    // GIVEN
+    StompFrame frame = pooledFrame("Hello, world.");
+    NettyStompMessage<String> msg = NettyStompMessage.stringMessage(frame);
+
+    // WHEN
+    try (NettyStompMessage<String> retained = msg.retain()) {
+      frame.release();
+
+      // THEN
+      assertThat("Retained message still readable", retained.getBody(), is("Hello, world."));
+    }
+    assertThat("Frame deallocated after close", frame.refCnt(), is(0));
+  }
+
+  @Test
+  public void detach() {
+    // GIVEN
+    StompFrame frame = pooledFrame("Hello, world.");
+    NettyStompMessage<String> msg = NettyStompMessage.stringMessage(frame);
+
+    // WHEN
+    StompMessage<String> detached = msg.detach();
+    msg.release();
+
+    // THEN
+    assertThat("Frame deallocated", frame.refCnt(), is(0));
+    assertThat("Detached body still readable", detached.getBody(), is("Hello, world."));
+    assertThat("Detached headers copied",
+        detached.getHeaders().getFirst(StompHeaders.DESTINATION.toString()), is("/setup/test"));
+  }
+
+  @Test
+  public void headersView() {
+    // GIVEN
+    StompFrame frame = pooledFrame("Hello, world.");
+    final String dest = frame.headers().getAsString(StompHeaders.DESTINATION);
+    NettyStompMessage<String> msg = NettyStompMessage.stringMessage(frame);
+
+    // WHEN
+    MultiValueMap<String, String> headers = msg.getHeaders();
+
+    // THEN
+    assertThat("Headers view cached", msg.getHeaders(), is(sameInstance(headers)));
+    assertThat("Header value served directly from frame",
+        headers.getFirst(StompHeaders.DESTINATION.toString()), is(sameInstance(dest)));
+    assertThat("Header materialized as list", headers.get(StompHeaders.DESTINATION.toString()),
+        contains(dest));
+    assertThrows(UnsupportedOperationException.class, () -> {
+      headers.set("foo", "bar");
+    }, "Headers view is read-only");
+    frame.release();
+  }
+
+  @Test
+  public void headersView_unescaped() {
+    // GIVEN
+    StompFrame frame = pooledFrame("");
+    frame.headers().set("message", "Time\\c 12\\c00");
+    NettyStompMessage<String> msg = NettyStompMessage.stringMessage(frame);
+
+    // WHEN
+    MultiValueMap<String, String> headers = msg.getHeaders();
+
+    // THEN
+    assertThat("Header value unescaped", headers.getFirst("message"), is("Time: 12:00"));
+    assertThat("Materialized header value unescaped", headers.get("message"),
+        contains("Time: 12:00"));
+    frame.release();
+  }
+
+}
@@ -0,0 +1,134 @@
+/* ==================================================================
+ * NettyWireLoggerTests.java - 18/10/2026 4:31:19 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.stomp.DefaultStompFrame;
+import io.netty.handler.codec.stomp.StompCommand;
+import io.netty.handler.codec.stomp.StompFrame;
+import io.netty.handler.codec.stomp.StompHeaders;
+import net.solarnetwork.node.setup.stomp.client.impl.NettyStompClient;
+import net.solarnetwork.node.setup.stomp.client.impl.NettyWireLogger;
+
+/**
+ * Test cases for the {@link NettyWireLogger} class.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class NettyWireLoggerTests {
+
+  private NettyWireLogger wireLogger;
+  private EmbeddedChannel channel;
+
+  /**
+   * Setup for test.
+   */
+  @BeforeEach
+  public void setup() {
+    wireLogger = new NettyWireLogger();
+    channel = new EmbeddedChannel();
+    channel.pipeline().addLast(NettyStompClient.CLIENT_HANDLER_NAME,
+        new ChannelInboundHandlerAdapter());
+  }
+
+  private static StompFrame frame(int n) {
+    DefaultStompFrame frame = new DefaultStompFrame(StompCommand.MESSAGE,
+        Unpooled.copiedBuffer("body " + n, NettyStompClient.UTF8));
+    frame.headers().set(StompHeaders.DESTINATION, "/setup/test");
+    return frame;
+  }
+
+  @Test
+  public void offByDefault() {
+    // WHEN
+    wireLogger.register(channel);
+
+    // THEN
+    assertThat("No wire handlers added", channel.pipeline().names(), hasSize(2));
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  public void captureToggle() {
+    // GIVEN
+    wireLogger.register(channel);
+
+    // WHEN
+    wireLogger.setMode(NettyWireLogger.Mode.Capture);
+    channel.runPendingTasks();
+    channel.writeInbound(frame(1));
+    wireLogger.setMode(NettyWireLogger.Mode.Off);
+    channel.runPendingTasks();
+    channel.writeInbound(frame(2));
+
+    // THEN
+    List<String> captured = wireLogger.capturedFrames();
+    assertThat("Only frame read while capturing recorded", captured, hasSize(1));
+    assertThat("Frame description", captured.get(0),
+        endsWith(">>> MESSAGE destination:/setup/test [6 bytes] body 1"));
+    assertThat("Capture handler removed", channel.pipeline().get("wireCapture"), is(nullValue()));
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  public void captureRingSampled() {
+    // GIVEN
+    wireLogger.setMode(NettyWireLogger.Mode.Capture);
+    wireLogger.setCaptureSize(2);
+    wireLogger.setSampleRate(2);
+    wireLogger.register(channel);
+    assertThat("Capture handler added", channel.pipeline().get("wireCapture"),
+        is(notNullValue()));
+
+    // WHEN
+    for (int i = 0; i < 8; i++) {
+      channel.writeInbound(frame(i));
+    }
+
+    // THEN
+    List<String> captured = wireLogger.capturedFrames();
+    assertThat("Last sampled frames retained, oldest first",
+        captured.stream().map(s -> s.substring(s.lastIndexOf(' ') + 1)).toArray(),
+        is(new Object[] { "4", "6" }));
+
+    wireLogger.clearCapturedFrames();
+    assertThat("Captured frames cleared", wireLogger.capturedFrames(), hasSize(0));
+    channel.finishAndReleaseAll();
+  }
+
+}
@@ -0,0 +1,189 @@
+/* ==================================================================
+ * QueuedMessageConsumerTests.java - 18/10/2026 5:49:27 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.stomp.DefaultStompFrame;
+import io.netty.handler.codec.stomp.StompCommand;
+import io.netty.handler.codec.stomp.StompFrame;
+import net.solarnetwork.node.setup.stomp.client.domain.StompMessage;
+import net.solarnetwork.node.setup.stomp.client.impl.NettyStompMessage;
+import net.solarnetwork.node.setup.stomp.client.impl.QueuedMessageConsumer;
+import net.solarnetwork.node.setup.stomp.client.impl.QueuedMessageConsumer.OverflowPolicy;
+
+/**
+ * Test cases for the {@link QueuedMessageConsumer} class.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class QueuedMessageConsumerTests {
+
+  private List<Runnable> tasks;
+  private List<String> delivered;
+
+  /**
+   * Setup for test.
+   */
+  @BeforeEach
+  public void setup() {
+    tasks = new ArrayList<>();
+    delivered = new ArrayList<>();
+  }
+
+  private QueuedMessageConsumer consumer(int capacity, OverflowPolicy policy) {
+    return new QueuedMessageConsumer(m -> delivered.add(m.getBody()), tasks::add, capacity,
+        policy);
+  }
+
+  private static StompFrame frame(String body) {
+    DefaultStompFrame frame = new DefaultStompFrame(StompCommand.MESSAGE,
+        PooledByteBufAllocator.DEFAULT.buffer());
+    ByteBufUtil.writeUtf8(frame.content(), body);
+    return frame;
+  }
+
+  private void accept(QueuedMessageConsumer c, StompFrame frame) {
+    StompMessage<String> msg = NettyStompMessage.stringMessage(frame);
+    try {
+      c.accept(msg);
+    } finally {
+      frame.release();
+    }
+  }
+
+  private void runTasks() {
+    while (!tasks.isEmpty()) {
+      tasks.remove(0).run();
+    }
+  }
+
+  @Test
+  public void retainedWhileQueued() {
+    // GIVEN
+    QueuedMessageConsumer c = consumer(4, OverflowPolicy.Block);
+    StompFrame f1 = frame("one");
+    StompFrame f2 = frame("two");
+
+    // WHEN
+    accept(c, f1);
+    accept(c, f2);
+
+    // THEN
+    assertThat("Messages retained while queued", f1.refCnt() + f2.refCnt(), is(2));
+    assertThat("Queue depth", c.getQueueDepth(), is(2));
+    assertThat("Single drain task scheduled", tasks, hasSize(1));
+
+    runTasks();
+    assertThat("Delivered in order", delivered, contains("one", "two"));
+    assertThat("Messages released after delivery", f1.refCnt() + f2.refCnt(), is(0));
+    assertThat("Queue drained", c.getQueueDepth(), is(0));
+    assertThat("Max queue depth", c.getMaxQueueDepth(), is(2));
+    assertThat("Delivered count", c.getDeliveredCount(), is(2L));
+  }
+
+  @Test
+  public void dropOldest() {
+    // GIVEN
+    QueuedMessageConsumer c = consumer(2, OverflowPolicy.DropOldest);
+    StompFrame f1 = frame("one");
+
+    // WHEN
+    accept(c, f1);
+    accept(c, frame("two"));
+    accept(c, frame("three"));
+    runTasks();
+
+    // THEN
+    assertThat("Oldest message dropped", delivered, contains("two", "three"));
+    assertThat("Dropped message released", f1.refCnt(), is(0));
+    assertThat("Dropped count", c.getDroppedCount(), is(1L));
+  }
+
+  @Test
+  public void fail() {
+    // GIVEN
+    QueuedMessageConsumer c = consumer(1, OverflowPolicy.Fail);
+    accept(c, frame("one"));
+    StompFrame f2 = frame("two");
+
+    // WHEN
+    assertThrows(RejectedExecutionException.class, () -> accept(c, f2));
+    runTasks();
+
+    // THEN
+    assertThat("Rejected message released", f2.refCnt(), is(0));
+    assertThat("Queued message delivered", delivered, contains("one"));
+    assertThat("Dropped count", c.getDroppedCount(), is(1L));
+  }
+
+  @Test
+  public void blockWithFlowControl() {
+    // GIVEN
+    List<String> flow = new ArrayList<>();
+    QueuedMessageConsumer c = new QueuedMessageConsumer(m -> delivered.add(m.getBody()),
+        tasks::add, 2, OverflowPolicy.Block, new QueuedMessageConsumer.FlowControl() {
+
+          @Override
+          public void pause() {
+            flow.add("pause");
+          }
+
+          @Override
+          public void resume() {
+            flow.add("resume");
+          }
+
+        });
+
+    // WHEN
+    accept(c, frame("one"));
+    accept(c, frame("two"));
+    accept(c, frame("three"));
+
+    // THEN
+    assertThat("Source paused once when queue full, without blocking", flow, contains("pause"));
+    assertThat("Message accepted while pausing queued", c.getQueueDepth(), is(3));
+    assertThat("Capacity is configured limit", c.getCapacity(), is(2));
+
+    runTasks();
+    assertThat("Source resumed once drained", flow, contains("pause", "resume"));
+    assertThat("All messages delivered", delivered, contains("one", "two", "three"));
+    assertThat("Nothing dropped", c.getDroppedCount(), is(0L));
+  }
+
+}
@@ -0,0 +1,209 @@
+/* ==================================================================
+ * SetupClientSessionPoolTests.java - 18/10/2026 8:58:03 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import net.solarnetwork.node.setup.stomp.client.impl.SetupClientSessionPool;
+import net.solarnetwork.node.setup.stomp.client.service.SetupClientService;
+
+/**
+ * Test cases for the {@link SetupClientSessionPool} class.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+public class SetupClientSessionPoolTests {
+
+  private static final String HOST = "localhost";
+  private static final int PORT = 8780;
+  private static final String USER = "foo";
+  private static final String PASS = "bar";
+
+  @Mock
+  private SetupClientService session1;
+
+  @Mock
+  private SetupClientService session2;
+
+  private Deque<SetupClientService> created;
+  private SetupClientSessionPool pool;
+
+  /**
+   * Setup for test.
+   */
+  @BeforeEach
+  public void setup() {
+    created = new ArrayDeque<>(Arrays.asList(session1, session2));
+    pool = new SetupClientSessionPool(created::poll);
+    pool.setIdleTimeoutMillis(0);
+  }
+
+  @Test
+  public void borrow_reuseIdle() {
+    // GIVEN
+    given(session1.isConnected()).willReturn(true);
+
+    // WHEN
+    SetupClientService s1 = pool.borrow(HOST, PORT, USER, PASS);
+    pool.release(s1);
+    SetupClientService s2 = pool.borrow(HOST, PORT, USER, PASS);
+
+    // THEN
+    assertThat("First session created", s1, is(sameInstance(session1)));
+    assertThat("Idle session reused", s2, is(sameInstance(session1)));
+    verify(session1, times(1)).connect(HOST, PORT, USER, PASS);
+    assertThat("Borrowed count", pool.getBorrowedCount(), is(1));
+    assertThat("Idle count", pool.getIdleCount(), is(0));
+  }
+
+  @Test
+  public void borrow_healthCheckFails() {
+    // GIVEN
+    given(session1.isConnected()).willReturn(true, false);
+
+    // WHEN
+    SetupClientService s1 = pool.borrow(HOST, PORT, USER, PASS);
+    pool.release(s1);
+    SetupClientService s2 = pool.borrow(HOST, PORT, USER, PASS);
+
+    // THEN
+    assertThat("Disconnected idle session not reused", s2, is(sameInstance(session2)));
+    verify(session1).disconnect();
+    verify(session2).connect(HOST, PORT, USER, PASS);
+  }
+
+  @Test
+  public void borrow_differentPassword() {
+    // GIVEN
+    given(session1.isConnected()).willReturn(true);
+
+    // WHEN
+    SetupClientService s1 = pool.borrow(HOST, PORT, USER, PASS);
+    pool.release(s1);
+    SetupClientService s2 = pool.borrow(HOST, PORT, USER, "not.bar");
+
+    // THEN
+    assertThat("Session for different password not reused", s2, is(sameInstance(session2)));
+    assertThat("Idle session kept", pool.getIdleCount(), is(1));
+  }
+
+  @Test
+  public void borrowAsync_maxPerKey() throws Exception {
+    // GIVEN
+    pool.setMaxPerKey(1);
+    pool.borrow(HOST, PORT, USER, PASS);
+
+    // WHEN
+    CompletableFuture<SetupClientService> result = pool.borrowAsync(HOST, PORT, USER, PASS)
+        .toCompletableFuture();
+
+    // THEN
+    ExecutionException e = assertThrows(ExecutionException.class, () -> result.get());
+    assertThat("Limit reached", e.getCause(), is(instanceOf(IllegalStateException.class)));
+  }
+
+  @Test
+  public void borrowAsync_closedWhileConnecting() throws Exception {
+    // GIVEN
+    CompletableFuture<Void> connecting = new CompletableFuture<>();
+    given(session1.connectAsync(HOST, PORT, USER, PASS)).willReturn(connecting);
+
+    // WHEN
+    CompletableFuture<SetupClientService> result = pool.borrowAsync(HOST, PORT, USER, PASS)
+        .toCompletableFuture();
+    pool.close();
+    connecting.complete(null);
+
+    // THEN
+    ExecutionException e = assertThrows(ExecutionException.class,
+        () -> result.get(1, TimeUnit.MINUTES));
+    assertThat("Pool closed", e.getCause(), is(instanceOf(IllegalStateException.class)));
+    verify(session1).disconnect();
+    assertThat("Borrowed count", pool.getBorrowedCount(), is(0));
+  }
+
+  @Test
+  public void borrow_maxPerKey_waitForRelease() throws Exception {
+    // GIVEN
+    pool.setMaxPerKey(1);
+    given(session1.isConnected()).willReturn(true);
+    SetupClientService s1 = pool.borrow(HOST, PORT, USER, PASS);
+
+    // WHEN
+    Thread t = new Thread(() -> {
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        // ignore
+      }
+      pool.release(s1);
+    });
+    t.start();
+    SetupClientService s2 = pool.borrow(HOST, PORT, USER, PASS);
+    t.join();
+
+    // THEN
+    assertThat("Released session borrowed", s2, is(sameInstance(session1)));
+  }
+
+  @Test
+  public void evictIdle() throws Exception {
+    // GIVEN
+    pool.setIdleTimeoutMillis(1);
+    given(session1.isConnected()).willReturn(true);
+    pool.release(pool.borrow(HOST, PORT, USER, PASS));
+    Thread.sleep(10);
+
+    // WHEN
+    int count = pool.evictIdle();
+
+    // THEN
+    assertThat("Idle session evicted", count, is(1));
+    assertThat("Idle count", pool.getIdleCount(), is(0));
+    verify(session1).disconnect();
+    pool.close();
+  }
+
+}
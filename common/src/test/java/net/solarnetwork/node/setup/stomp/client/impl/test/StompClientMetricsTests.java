@@ -0,0 +1,204 @@
+/* ==================================================================
+ * StompClientMetricsTests.java - 18/10/2026 10:52:09 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.stomp.DefaultStompFrame;
+import io.netty.handler.codec.stomp.StompCommand;
+import io.netty.handler.codec.stomp.StompSubframeDecoder;
+import io.netty.handler.codec.stomp.StompSubframeEncoder;
+import net.solarnetwork.node.setup.stomp.client.domain.LatencySummary;
+import net.solarnetwork.node.setup.stomp.client.impl.NettyStompClient;
+import net.solarnetwork.node.setup.stomp.client.impl.StompClientMetrics;
+import net.solarnetwork.node.setup.stomp.client.impl.StompClientMetrics.ConnectPhase;
+import net.solarnetwork.node.setup.stomp.client.impl.StompClientMetrics.ConnectTimer;
+
+/**
+ * Test cases for the {@link StompClientMetrics} class.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class StompClientMetricsTests {
+
+  private StompClientMetrics metrics;
+
+  /**
+   * Setup for test.
+   */
+  @BeforeEach
+  public void setup() {
+    metrics = new StompClientMetrics();
+  }
+
+  @Test
+  public void request_success() {
+    // GIVEN
+    final long start = metrics.requestStarted();
+
+    // WHEN
+    long inFlight = metrics.getInFlightRequests();
+    metrics.requestCompleted("/setup/datum/latest", start, null);
+
+    // THEN
+    assertThat("In flight while awaiting response", inFlight, is(1L));
+    assertThat("No longer in flight", metrics.getInFlightRequests(), is(0L));
+    assertThat("Request counted", metrics.getRequestCount(), is(1L));
+    assertThat("No errors", metrics.getRequestErrors(), is(0L));
+    Map<String, LatencySummary> latencies = metrics.getRequestLatencies();
+    assertThat("Latency tracked by destination", latencies.keySet(),
+        contains("/setup/datum/latest"));
+    assertThat("Latency recorded", latencies.get("/setup/datum/latest").getCount(), is(1L));
+  }
+
+  @Test
+  public void request_error() {
+    // WHEN
+    metrics.requestCompleted("/foo", metrics.requestStarted(), new IOException("Boom"));
+
+    // THEN
+    assertThat("Request counted", metrics.getRequestCount(), is(1L));
+    assertThat("Error counted", metrics.getRequestErrors(), is(1L));
+    assertThat("Latency not recorded for failed request", metrics.getRequestLatencies().isEmpty(),
+        is(true));
+  }
+
+  @Test
+  public void request_maxDestinations() {
+    // GIVEN
+    metrics.setMaxDestinations(1);
+
+    // WHEN
+    metrics.requestCompleted("/foo", metrics.requestStarted(), null);
+    metrics.requestCompleted("/bar", metrics.requestStarted(), null);
+    metrics.requestCompleted("/bim", metrics.requestStarted(), null);
+
+    // THEN
+    Map<String, LatencySummary> latencies = metrics.getRequestLatencies();
+    assertThat("Further destinations tracked together", latencies.keySet(),
+        contains(StompClientMetrics.OTHER_DESTINATIONS, "/foo"));
+    assertThat("Other count", latencies.get(StompClientMetrics.OTHER_DESTINATIONS).getCount(),
+        is(2L));
+  }
+
+  @Test
+  public void connectPhases() {
+    // GIVEN
+    ConnectTimer timer = metrics.connectStarted();
+
+    // WHEN
+    for (ConnectPhase phase : ConnectPhase.values()) {
+      timer.phaseCompleted(phase);
+    }
+    metrics.connectStarted().failed();
+
+    // THEN
+    for (LatencySummary s : metrics.getConnectPhaseLatencies().values()) {
+      assertThat("Phase recorded", s.getCount(), is(1L));
+    }
+    assertThat("Failure counted", metrics.getConnectFailures(), is(1L));
+  }
+
+  @Test
+  public void register_countFramesAndBytes() {
+    // GIVEN
+    EmbeddedChannel channel = new EmbeddedChannel(new StompSubframeDecoder(),
+        new StompSubframeEncoder());
+    channel.pipeline().addLast(NettyStompClient.CLIENT_HANDLER_NAME,
+        new ChannelInboundHandlerAdapter());
+    metrics.register(channel);
+    final byte[] data = "ERROR\nmessage:nope\n\n\0".getBytes();
+
+    // WHEN
+    channel.writeInbound(Unpooled.copiedBuffer(data));
+    channel.writeOutbound(new DefaultStompFrame(StompCommand.DISCONNECT));
+
+    // THEN
+    assertThat("Inbound frame counted", metrics.getFramesIn(), is(1L));
+    assertThat("Inbound ERROR frame counted", metrics.getErrorFrames(), is(1L));
+    assertThat("Inbound bytes counted", metrics.getBytesIn(), is((long) data.length));
+    assertThat("Outbound frame counted", metrics.getFramesOut(), is(1L));
+    assertThat("Outbound bytes counted", metrics.getBytesOut(), is(greaterThan(0L)));
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  public void reset() {
+    // GIVEN
+    metrics.requestStarted();
+    metrics.requestCompleted("/foo", metrics.requestStarted(), null);
+    metrics.connectionLost();
+
+    // WHEN
+    metrics.reset();
+
+    // THEN
+    assertThat("Request count reset", metrics.getRequestCount(), is(0L));
+    assertThat("Connections lost reset", metrics.getConnectionsLost(), is(0L));
+    assertThat("Latencies reset", metrics.getRequestLatencies().isEmpty(), is(true));
+    assertThat("In-flight count not reset", metrics.getInFlightRequests(), is(1L));
+  }
+
+  @Test
+  public void registerMBean() throws Exception {
+    // GIVEN
+    final String name = StompClientMetrics.DEFAULT_OBJECT_NAME + ",name=test";
+    metrics.setObjectName(name);
+    metrics.requestCompleted("/foo", metrics.requestStarted(), null);
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    // WHEN
+    metrics.registerMBean();
+    try {
+      // THEN
+      Object count = server.getAttribute(new ObjectName(name), "RequestCount");
+      assertThat("Attribute available via JMX", count, is(1L));
+      Object latencies = server.getAttribute(new ObjectName(name), "RequestLatencies");
+      assertThat("Latencies available via JMX", latencies != null, is(true));
+    } finally {
+      metrics.unregisterMBean();
+    }
+    assertThat("Unregistered", server.isRegistered(new ObjectName(name)), is(false));
+    assertThat("Latency recorded", metrics.getRequestLatencies().get("/foo").getMax(),
+        is(greaterThanOrEqualTo(0L)));
+  }
+
+}
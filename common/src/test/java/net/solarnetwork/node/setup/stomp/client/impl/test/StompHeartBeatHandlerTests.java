@@ -0,0 +1,162 @@
+/* ==================================================================
+ * StompHeartBeatHandlerTests.java - 18/10/2026 7:31:08 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.stomp.DefaultStompFrame;
+import io.netty.handler.codec.stomp.StompCommand;
+import io.netty.handler.codec.stomp.StompFrame;
+import io.netty.handler.codec.stomp.StompHeaders;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import net.solarnetwork.node.setup.stomp.client.impl.StompHeartBeatHandler;
+
+/**
+ * Test cases for the {@link StompHeartBeatHandler} class.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class StompHeartBeatHandlerTests {
+
+  private StompHeartBeatHandler handler;
+  private EmbeddedChannel channel;
+
+  /**
+   * Setup for test.
+   */
+  @BeforeEach
+  public void setup() {
+    handler = new StompHeartBeatHandler(5000, 10000);
+    channel = new EmbeddedChannel(handler);
+  }
+
+  private StompFrame connected(String heartBeat) {
+    DefaultStompFrame f = new DefaultStompFrame(StompCommand.CONNECTED);
+    if (heartBeat != null) {
+      f.headers().set(StompHeaders.HEART_BEAT, heartBeat);
+    }
+    return f;
+  }
+
+  @Test
+  public void connect_addHeader() {
+    // WHEN
+    channel.writeOutbound(new DefaultStompFrame(StompCommand.CONNECT));
+
+    // THEN
+    StompFrame f = channel.readOutbound();
+    assertThat("Heart-beat header added", f.headers().getAsString(StompHeaders.HEART_BEAT),
+        is("5000,10000"));
+  }
+
+  @Test
+  public void connect_preserveHeader() {
+    // GIVEN
+    DefaultStompFrame msg = new DefaultStompFrame(StompCommand.CONNECT);
+    msg.headers().set(StompHeaders.HEART_BEAT, "0,0");
+
+    // WHEN
+    channel.writeOutbound(msg);
+
+    // THEN
+    StompFrame f = channel.readOutbound();
+    assertThat("Heart-beat header preserved", f.headers().getAsString(StompHeaders.HEART_BEAT),
+        is("0,0"));
+  }
+
+  @Test
+  public void negotiate() {
+    // GIVEN
+    channel.writeOutbound(new DefaultStompFrame(StompCommand.CONNECT));
+    channel.readOutbound();
+
+    // WHEN
+    channel.writeInbound(connected("20000,1000"));
+
+    // THEN
+    assertThat("Send interval is max of client send and server receive",
+        handler.getNegotiatedSendMillis(), is(5000L));
+    assertThat("Receive interval is max of client receive and server send",
+        handler.getNegotiatedReceiveMillis(), is(20000L));
+    assertThat("Round trip time measured", handler.getConnectRoundTripMillis(),
+        greaterThanOrEqualTo(0L));
+    assertThat("Idle handler added",
+        channel.pipeline().get(StompHeartBeatHandler.IDLE_HANDLER_NAME),
+        is(instanceOf(IdleStateHandler.class)));
+    assertThat("CONNECTED frame passed on", channel.readInbound(), is(notNullValue()));
+  }
+
+  @Test
+  public void negotiate_serverDisabled() {
+    // WHEN
+    channel.writeInbound(connected(null));
+
+    // THEN
+    assertThat("Send disabled", handler.getNegotiatedSendMillis(), is(0L));
+    assertThat("Receive disabled", handler.getNegotiatedReceiveMillis(), is(0L));
+    assertThat("No idle handler", channel.pipeline().get(StompHeartBeatHandler.IDLE_HANDLER_NAME),
+        is(nullValue()));
+  }
+
+  @Test
+  public void writerIdle_sendHeartBeat() {
+    // GIVEN
+    channel.writeInbound(connected("1000,1000"));
+
+    // WHEN
+    channel.pipeline().fireUserEventTriggered(IdleStateEvent.WRITER_IDLE_STATE_EVENT);
+
+    // THEN
+    ByteBuf buf = channel.readOutbound();
+    assertThat("Heart-beat is single EOL", buf.readableBytes(), is(1));
+    assertThat("Heart-beat is single EOL", buf.getByte(buf.readerIndex()), is((byte) '\n'));
+    assertThat("Channel remains open", channel.isOpen(), is(true));
+  }
+
+  @Test
+  public void readerIdle_close() {
+    // GIVEN
+    channel.writeInbound(connected("1000,1000"));
+
+    // WHEN
+    channel.pipeline().fireUserEventTriggered(IdleStateEvent.READER_IDLE_STATE_EVENT);
+
+    // THEN
+    assertThat("Channel closed", channel.isOpen(), is(false));
+    assertThat("Close cause provided", channel.attr(StompHeartBeatHandler.CLOSE_CAUSE).get(),
+        is(notNullValue()));
+  }
+
+}
@@ -0,0 +1,131 @@
+/* ==================================================================
+ * StompSetupClientHandlerTests.java - 18/10/2026 2:12:41 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.stomp.StompSubframeDecoder;
+import net.solarnetwork.node.setup.stomp.client.domain.StompMessage;
+import net.solarnetwork.node.setup.stomp.client.impl.StompSetupClientHandler;
+import net.solarnetwork.node.setup.stomp.client.service.StompFrameStreamConsumer;
+
+/**
+ * Test cases for the {@link StompSetupClientHandler} class.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class StompSetupClientHandlerTests {
+
+  private static final String BODY = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+  private static byte[] frame(String destination) {
+    String s = "MESSAGE\ndestination:" + destination + "\ncontent-length:" + BODY.length()
+        + "\n\n" + BODY + "\0";
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static class TestStreamConsumer implements StompFrameStreamConsumer {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private int chunks;
+    private boolean last;
+
+    @Override
+    public boolean acceptFrame(StompMessage<?> frame) {
+      return "/setup/stream".equals(frame.getHeaders().getFirst("destination"));
+    }
+
+    @Override
+    public void frameContent(StompMessage<?> frame, ByteBuffer content, boolean last) {
+      byte[] data = new byte[content.remaining()];
+      content.get(data);
+      out.write(data, 0, data.length);
+      chunks++;
+      this.last = last;
+    }
+  }
+
+  @Test
+  public void streamAcceptedFrame() {
+    // GIVEN
+    List<StompMessage<String>> messages = new ArrayList<>();
+    Set<Consumer<StompMessage<String>>> consumers = new CopyOnWriteArraySet<>();
+    consumers.add(messages::add);
+    TestStreamConsumer sc = new TestStreamConsumer();
+    Set<StompFrameStreamConsumer> streamConsumers = new CopyOnWriteArraySet<>();
+    streamConsumers.add(sc);
+    EmbeddedChannel ch = new EmbeddedChannel(new StompSubframeDecoder(1024, 8),
+        new StompSetupClientHandler(consumers, streamConsumers, 16));
+
+    // WHEN
+    ch.writeInbound(Unpooled.wrappedBuffer(frame("/setup/stream")));
+
+    // THEN
+    assertThat("Frame not passed to message consumers", messages, hasSize(0));
+    assertThat("Content streamed in chunks", sc.chunks, is(greaterThan(1)));
+    assertThat("Last chunk signaled", sc.last, is(true));
+    assertThat("Streamed content", new String(sc.out.toByteArray(), StandardCharsets.UTF_8),
+        is(BODY));
+    ch.finishAndReleaseAll();
+  }
+
+  @Test
+  public void aggregateUnacceptedFrame() {
+    // GIVEN
+    List<String> bodies = new ArrayList<>();
+    Set<Consumer<StompMessage<String>>> consumers = new CopyOnWriteArraySet<>();
+    consumers.add(m -> bodies.add(m.getBody()));
+    TestStreamConsumer sc = new TestStreamConsumer();
+    Set<StompFrameStreamConsumer> streamConsumers = new CopyOnWriteArraySet<>();
+    streamConsumers.add(sc);
+    EmbeddedChannel ch = new EmbeddedChannel(new StompSubframeDecoder(1024, 8),
+        new StompSetupClientHandler(consumers, streamConsumers, 1024));
+
+    // WHEN
+    ch.writeInbound(Unpooled.wrappedBuffer(frame("/setup/other")));
+
+    // THEN
+    assertThat("Nothing streamed", sc.chunks, is(0));
+    assertThat("Aggregated frame passed to message consumers", bodies, hasSize(1));
+    assertThat("Aggregated content", bodies.get(0), is(BODY));
+    ch.finishAndReleaseAll();
+  }
+
+}
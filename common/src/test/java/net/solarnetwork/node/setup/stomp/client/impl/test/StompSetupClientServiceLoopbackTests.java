@@ -0,0 +1,231 @@
+/* ==================================================================
+ * StompSetupClientServiceLoopbackTests.java - 18/10/2026 11:58:44 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.solarnetwork.codec.JsonUtils;
+import net.solarnetwork.domain.datum.Datum;
+import net.solarnetwork.node.setup.stomp.SetupHeader;
+import net.solarnetwork.node.setup.stomp.SetupStatus;
+import net.solarnetwork.node.setup.stomp.SetupTopic;
+import net.solarnetwork.node.setup.stomp.client.domain.Command;
+import net.solarnetwork.node.setup.stomp.client.domain.Message;
+import net.solarnetwork.node.setup.stomp.client.impl.NettyStompSetupClientFactory;
+import net.solarnetwork.node.setup.stomp.client.impl.StompSetupClientService;
+import net.solarnetwork.node.setup.stomp.client.test.StompSetupTestServer;
+
+/**
+ * Test cases for the {@link StompSetupClientService} class, connected to a
+ * {@link StompSetupTestServer} over the loopback interface.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class StompSetupClientServiceLoopbackTests {
+
+  private static final String ECHO_TOPIC = "/setup/test/echo";
+
+  private StompSetupTestServer server;
+  private NettyStompSetupClientFactory clientFactory;
+  private StompSetupClientService service;
+
+  /**
+   * Setup for test.
+   * 
+   * @throws Exception
+   *           if any error occurs
+   */
+  @BeforeEach
+  public void setup() throws Exception {
+    server = new StompSetupTestServer();
+    server.setTopicHandler(ECHO_TOPIC, r -> r.getBody());
+    server.start();
+    clientFactory = new NettyStompSetupClientFactory(1);
+    service = new StompSetupClientService(clientFactory);
+    service.setObjectMapper(JsonUtils.newDatumObjectMapper());
+    service.setTimeoutSeconds(10);
+  }
+
+  /**
+   * Tear down after test.
+   */
+  @AfterEach
+  public void teardown() {
+    service.disconnect();
+    clientFactory.shutdown();
+    server.stop();
+  }
+
+  private void connectClient() {
+    service.connect(server.getHost(), server.getPort(), StompSetupTestServer.DEFAULT_USERNAME,
+        StompSetupTestServer.DEFAULT_PASSWORD);
+  }
+
+  @Test
+  public void connect() {
+    // WHEN
+    connectClient();
+
+    // THEN
+    assertThat("Connected", service.isConnected(), is(true));
+
+    // a round trip ensures the server has handled the authentication request sent before it
+    service.executeCommand(ECHO_TOPIC, null, null);
+    assertThat("Server authenticated client", server.getAuthenticationCount(), is(equalTo(1L)));
+  }
+
+  @Test
+  public void connect_badPassword() {
+    // WHEN
+    assertThrows(RuntimeException.class, () -> {
+      service.connect(server.getHost(), server.getPort(), StompSetupTestServer.DEFAULT_USERNAME,
+          "not.the.password");
+      service.executeCommand(ECHO_TOPIC, null, "Hello");
+    });
+
+    // THEN
+    assertThat("Server did not authenticate client", server.getAuthenticationCount(),
+        is(equalTo(0L)));
+  }
+
+  @Test
+  public void executeCommand() {
+    // GIVEN
+    connectClient();
+
+    // WHEN
+    Message<String> result = service.executeCommand(ECHO_TOPIC, null, "Hello, world.");
+
+    // THEN
+    assertThat("Response body echoed", result.getBody(), is(equalTo("Hello, world.")));
+    assertThat("Response status OK",
+        result.getHeaders().getFirst(SetupHeader.Status.getValue()),
+        is(equalTo(String.valueOf(SetupStatus.Ok.getCode()))));
+  }
+
+  @Test
+  public void executeCommand_notFound() {
+    // GIVEN
+    connectClient();
+
+    // WHEN
+    Message<String> result = service.executeCommand("/setup/test/nope", null, null);
+
+    // THEN
+    assertThat("Response status not found",
+        result.getHeaders().getFirst(SetupHeader.Status.getValue()),
+        is(equalTo(String.valueOf(SetupStatus.NotFound.getCode()))));
+  }
+
+  @Test
+  public void executeCommand_payload() {
+    // GIVEN
+    final int len = 256 * 1024;
+    server.setTopicHandler(ECHO_TOPIC, StompSetupTestServer.payloadHandler(len));
+    connectClient();
+
+    // WHEN
+    Message<String> result = service.executeCommand(ECHO_TOPIC, null, null);
+
+    // THEN
+    assertThat("Response payload length", result.getBody().length(), is(equalTo(len)));
+  }
+
+  @Test
+  public void executeCommand_concurrent() throws Exception {
+    // GIVEN
+    final int count = 200;
+    server.setLatencyMillis(20);
+    connectClient();
+
+    // WHEN
+    List<CompletableFuture<Message<String>>> futures = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      futures.add(service.executeCommandAsync(ECHO_TOPIC, null, String.valueOf(i))
+          .toCompletableFuture());
+    }
+
+    // THEN
+    for (int i = 0; i < count; i++) {
+      Message<String> result = futures.get(i).get(10, TimeUnit.SECONDS);
+      assertThat("Response correlated to request " + i, result.getBody(),
+          is(equalTo(String.valueOf(i))));
+    }
+    assertThat("Server request count", server.getRequestCount(), is(equalTo((long) count)));
+  }
+
+  @Test
+  public void executeBatch() {
+    // GIVEN
+    final int count = 50;
+    server.setLatencyMillis(20);
+    connectClient();
+    List<Command> commands = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      commands.add(new Command(ECHO_TOPIC, null, String.valueOf(i)));
+    }
+
+    // WHEN
+    List<Message<String>> result = service.executeBatch(commands);
+
+    // THEN
+    assertThat("Result for each command", result, hasSize(count));
+    for (int i = 0; i < count; i++) {
+      assertThat("Result in command order", result.get(i).getBody(),
+          is(equalTo(String.valueOf(i))));
+    }
+    assertThat("Server request count", server.getRequestCount(), is(equalTo((long) count)));
+  }
+
+  @Test
+  public void latestDatum() throws Exception {
+    // GIVEN
+    server.setTopicHandler(SetupTopic.DatumLatest.getValue(),
+        StompSetupTestServer.datumHandler(100));
+    connectClient();
+
+    // WHEN
+    Collection<Datum> result = service.latestDatum(null);
+
+    // THEN
+    assertThat("All datum decoded", result, hasSize(100));
+    assertThat("First datum source", result.iterator().next().getSourceId(),
+        is(equalTo("/test/meter/0")));
+  }
+
+}
@@ -0,0 +1,193 @@
+/* ==================================================================
+ * StompSetupFleetServiceTests.java - 18/10/2026 10:26:51 AM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.impl.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.solarnetwork.node.setup.stomp.client.domain.Message;
+import net.solarnetwork.node.setup.stomp.client.domain.NodeResult;
+import net.solarnetwork.node.setup.stomp.client.domain.SetupNodeInfo;
+import net.solarnetwork.node.setup.stomp.client.impl.StompSetupFleetService;
+import net.solarnetwork.node.setup.stomp.client.service.SetupClientService;
+import net.solarnetwork.node.setup.stomp.client.service.StompSetupClientFactory;
+
+/**
+ * Test cases for the {@link StompSetupFleetService} class.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class StompSetupFleetServiceTests {
+
+  private Map<SetupNodeInfo, SetupClientService> sessions;
+  private Map<SetupNodeInfo, CompletableFuture<Void>> connectFutures;
+  private StompSetupFleetService service;
+
+  /**
+   * Setup for test.
+   */
+  @BeforeEach
+  public void setup() {
+    sessions = new ConcurrentHashMap<>();
+    connectFutures = new ConcurrentHashMap<>();
+    service = new StompSetupFleetService(mock(StompSetupClientFactory.class)) {
+
+      @Override
+      protected SetupClientService createSession(SetupNodeInfo node) {
+        SetupClientService s = mock(SetupClientService.class);
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        connectFutures.put(node, f);
+        given(s.connectAsync(anyString(), anyInt(), anyString(), anyString())).willReturn(f);
+        given(s.isConnected()).willReturn(true);
+        sessions.put(node, s);
+        return s;
+      }
+
+    };
+  }
+
+  @AfterEach
+  public void teardown() {
+    service.shutdown();
+  }
+
+  private static List<SetupNodeInfo> nodes(int count) {
+    List<SetupNodeInfo> nodes = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      nodes.add(new SetupNodeInfo("node-" + i, 8780, "user", "pass"));
+    }
+    return nodes;
+  }
+
+  @Test
+  public void connect_boundedParallelism() throws Exception {
+    // GIVEN
+    service.setMaxParallelism(2);
+    List<SetupNodeInfo> nodes = nodes(5);
+    List<NodeResult<Void>> results = new CopyOnWriteArrayList<>();
+
+    // WHEN
+    final CompletableFuture<Void> done = service.connect(nodes, results::add).toCompletableFuture();
+
+    // THEN
+    assertThat("Only 2 connections started", connectFutures.keySet(),
+        containsInAnyOrder(nodes.get(0), nodes.get(1)));
+
+    connectFutures.get(nodes.get(1)).complete(null);
+    assertThat("Completed node result streamed immediately", results, hasSize(1));
+    assertThat("Next node started when slot freed", connectFutures.keySet(),
+        containsInAnyOrder(nodes.get(0), nodes.get(1), nodes.get(2)));
+
+    for (SetupNodeInfo node : nodes) {
+      connectFutures.get(node).complete(null);
+    }
+    done.get(1, TimeUnit.MINUTES);
+    assertThat("All nodes produced a result", results, hasSize(5));
+    assertThat("All nodes connected", service.getConnectedNodes(), hasSize(5));
+  }
+
+  @Test
+  public void connect_timeout() throws Exception {
+    // GIVEN
+    service.setTimeoutSeconds(1);
+    List<SetupNodeInfo> nodes = nodes(1);
+    List<NodeResult<Void>> results = new CopyOnWriteArrayList<>();
+
+    // WHEN
+    service.connect(nodes, results::add).toCompletableFuture().get(1, TimeUnit.MINUTES);
+
+    // THEN
+    assertThat("Node produced a result", results, hasSize(1));
+    assertThat("Node timed out", results.get(0).getError(),
+        is(instanceOf(TimeoutException.class)));
+    // results are reported before the abandoned attempt is cleaned up
+    verify(sessions.get(nodes.get(0)), timeout(1000)).disconnect();
+    assertThat("Connection attempt abandoned", connectFutures.get(nodes.get(0)).isCancelled(),
+        is(true));
+    assertThat("Node not connected", service.getConnectedNodes(), hasSize(0));
+  }
+
+  @Test
+  public void executeCommand_slowNode() throws Exception {
+    // GIVEN
+    List<SetupNodeInfo> nodes = nodes(2);
+    service.connect(nodes, r -> {
+    });
+    for (CompletableFuture<Void> f : connectFutures.values()) {
+      f.complete(null);
+    }
+
+    @SuppressWarnings("unchecked")
+    Message<String> reply = mock(Message.class);
+    given(sessions.get(nodes.get(0)).executeCommandAsync(anyString(), any(), any()))
+        .willReturn(new CompletableFuture<>());
+    given(sessions.get(nodes.get(1)).executeCommandAsync(anyString(), any(), any()))
+        .willReturn(CompletableFuture.completedFuture(reply));
+
+    service.setTimeoutSeconds(1);
+    List<NodeResult<Message<String>>> results = new CopyOnWriteArrayList<>();
+
+    // WHEN
+    CompletableFuture<Void> done = service
+        .executeCommand("/setup/test", null, null, results::add).toCompletableFuture();
+
+    // THEN
+    assertThat("Fast node result available while slow node outstanding", results, hasSize(1));
+    assertThat("Fast node result", results.get(0).getResult(), is(reply));
+
+    done.get(1, TimeUnit.MINUTES);
+    assertThat("Slow node timed out", results, hasSize(2));
+    assertThat("Results in completion order",
+        results.stream().map(NodeResult::getNode).collect(Collectors.toList()),
+        contains(nodes.get(1), nodes.get(0)));
+    assertThat("Slow node error", results.get(1).getError(),
+        is(instanceOf(TimeoutException.class)));
+  }
+
+}
@@ -0,0 +1,144 @@
+/* ==================================================================
+ * BcryptSecretCacheTests.java - 18/10/2026 9:44:12 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.util.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import net.solarnetwork.node.setup.stomp.client.util.BcryptSecretCache;
+
+/**
+ * Test cases for the {@link BcryptSecretCache} class.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class BcryptSecretCacheTests {
+
+  private String salt;
+  private List<Runnable> tasks;
+  private BcryptSecretCache cache;
+
+  /**
+   * Setup for test.
+   */
+  @BeforeEach
+  public void setup() {
+    salt = BCrypt.gensalt(4);
+    tasks = new ArrayList<>();
+    cache = new BcryptSecretCache(tasks::add, 2);
+  }
+
+  private void runTasks() {
+    for (Runnable r : tasks) {
+      r.run();
+    }
+    tasks.clear();
+  }
+
+  @Test
+  public void derive() throws Exception {
+    // WHEN
+    CompletableFuture<String> result = cache.secret("foo", salt, "bar");
+
+    // THEN
+    assertThat("Not derived on calling thread", result.isDone(), is(false));
+    runTasks();
+    assertThat("Secret derived", result.get(),
+        is(BcryptSecretCache.deriveSecret("bar", salt)));
+  }
+
+  @Test
+  public void cached() throws Exception {
+    // GIVEN
+    CompletableFuture<String> first = cache.secret("foo", salt, "bar");
+
+    // WHEN
+    CompletableFuture<String> second = cache.secret("foo", salt, "bar");
+
+    // THEN
+    assertThat("Concurrent request shares derivation", second, is(sameInstance(first)));
+    assertThat("Derived once", tasks.size(), is(1));
+    runTasks();
+    assertThat("Cached after derivation", cache.secret("foo", salt, "bar"),
+        is(sameInstance(first)));
+    assertThat("Not derived again", tasks.size(), is(0));
+  }
+
+  @Test
+  public void differentPassword() throws Exception {
+    // GIVEN
+    CompletableFuture<String> first = cache.secret("foo", salt, "bar");
+
+    // WHEN
+    CompletableFuture<String> second = cache.secret("foo", salt, "not.bar");
+    runTasks();
+
+    // THEN
+    assertThat("Different password derived separately", second.get(),
+        is(not(equalTo(first.get()))));
+    assertThat("Both cached", cache.size(), is(2));
+  }
+
+  @Test
+  public void maximumSize() {
+    // WHEN
+    final CompletableFuture<String> first = cache.secret("a", salt, "bar");
+    cache.secret("b", salt, "bar");
+    cache.secret("c", salt, "bar");
+    runTasks();
+
+    // THEN
+    assertThat("Cache bounded", cache.size(), is(2));
+    assertThat("Least recently used discarded", cache.secret("a", salt, "bar"),
+        is(not(sameInstance(first))));
+  }
+
+  @Test
+  public void rejected_notCached() {
+    // GIVEN
+    cache = new BcryptSecretCache(r -> {
+      throw new RejectedExecutionException("Full");
+    }, 2);
+
+    // WHEN
+    CompletableFuture<String> result = cache.secret("foo", salt, "bar");
+
+    // THEN
+    assertThat("Failed", result.isCompletedExceptionally(), is(true));
+    assertThat("Failure not cached", cache.size(), is(0));
+  }
+
+}
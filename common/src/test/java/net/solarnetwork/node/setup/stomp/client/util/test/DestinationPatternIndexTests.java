@@ -0,0 +1,105 @@
+/* ==================================================================
+ * DestinationPatternIndexTests.java - 18/10/2026 6:40:12 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.util.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContainingInAnyOrder;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.AntPathMatcher;
+
+import net.solarnetwork.node.setup.stomp.client.util.DestinationPatternIndex;
+
+/**
+ * Test cases for the {@link DestinationPatternIndex} class.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class DestinationPatternIndexTests {
+
+  private static final String[] PATTERNS = new String[] { "/setup/datum/latest", "/setup/*/latest",
+      "/setup/**", "/setup/datum/**", "/setup/**/latest", "/setup/da?um/*", "/setup/d*/l*",
+      "/setup/{topic}", "/other/**", "/**" };
+
+  private static final String[] DESTINATIONS = new String[] { "/setup/datum/latest", "/setup",
+      "/setup/datum", "/setup/datum/latest/more", "/setup/a/b/latest", "/setup/control/latest",
+      "/other", "/setup/datum/l", "/nope/datum" };
+
+  private DestinationPatternIndex<String> index;
+
+  /**
+   * Setup for test.
+   */
+  @BeforeEach
+  public void setup() {
+    index = new DestinationPatternIndex<>();
+  }
+
+  @Test
+  public void emptyIndex() {
+    assertThat("Empty index matches nothing", index.match("/setup/datum"), is(empty()));
+  }
+
+  @Test
+  public void matchesAntPathMatcher() {
+    // GIVEN
+    for (String p : PATTERNS) {
+      index.add(p, p);
+    }
+    AntPathMatcher matcher = new AntPathMatcher();
+
+    for (String dest : DESTINATIONS) {
+      // WHEN
+      Object[] result = index.match(dest).toArray();
+
+      // THEN
+      Object[] expected = Arrays.stream(PATTERNS).filter(p -> matcher.match(p, dest))
+          .toArray();
+      assertThat("Matches for " + dest + " same as AntPathMatcher", result,
+          is(arrayContainingInAnyOrder(expected)));
+    }
+  }
+
+  @Test
+  public void removeAll() {
+    // GIVEN
+    index.add("/setup/**", "a");
+    index.add("/setup/datum", "a");
+    index.add("/setup/datum", "b");
+
+    // WHEN
+    index.removeAll("a");
+
+    // THEN
+    assertThat("Only remaining value matched", index.match("/setup/datum"),
+        containsInAnyOrder("b"));
+  }
+
+}
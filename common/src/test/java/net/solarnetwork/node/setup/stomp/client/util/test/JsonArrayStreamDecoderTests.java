@@ -0,0 +1,163 @@
+/* ==================================================================
+ * JsonArrayStreamDecoderTests.java - 18/10/2026 3:05:52 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.util.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.solarnetwork.node.setup.stomp.client.util.JsonArrayStreamDecoder;
+
+/**
+ * Test cases for the {@link JsonArrayStreamDecoder} class.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class JsonArrayStreamDecoderTests {
+
+  private static final String JSON = "[{\"name\":\"a\",\"tags\":[\"x\",{\"y\":1}]},42,"
+      + "[{\"name\":\"skip\"}],{\"name\":\"b\",\"tags\":[]},{\"name\":\"c\"}]";
+
+  /**
+   * A simple element type.
+   */
+  public static class Item {
+
+    private String name;
+    private List<Object> tags;
+
+    /**
+     * Get the name.
+     * 
+     * @return the name
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Set the name.
+     * 
+     * @param name
+     *          the name to set
+     */
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Get the tags.
+     * 
+     * @return the tags
+     */
+    public List<Object> getTags() {
+      return tags;
+    }
+
+    /**
+     * Set the tags.
+     * 
+     * @param tags
+     *          the tags to set
+     */
+    public void setTags(List<Object> tags) {
+      this.tags = tags;
+    }
+  }
+
+  private static List<String> names(List<Item> items) {
+    return items.stream().map(Item::getName).collect(Collectors.toList());
+  }
+
+  @Test
+  public void decodeStream() throws Exception {
+    // GIVEN
+    JsonArrayStreamDecoder<Item> decoder = new JsonArrayStreamDecoder<>(new ObjectMapper(),
+        Item.class);
+    List<Item> result = new ArrayList<>();
+
+    // WHEN
+    int count = decoder.decode(new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8)),
+        result::add);
+
+    // THEN
+    assertThat("Object elements decoded", count, is(3));
+    assertThat("Element values", names(result), contains("a", "b", "c"));
+    assertThat("Nested values decoded", result.get(0).getTags(), hasSize(2));
+  }
+
+  @Test
+  public void feedChunks() throws Exception {
+    // GIVEN
+    JsonArrayStreamDecoder<Item> decoder = new JsonArrayStreamDecoder<>(new ObjectMapper(),
+        Item.class);
+    List<Item> result = new ArrayList<>();
+    JsonArrayStreamDecoder<Item>.Feeder feeder = decoder.newFeeder(result::add);
+    byte[] data = JSON.getBytes(StandardCharsets.UTF_8);
+
+    // WHEN
+    List<Integer> countsAfterChunk = new ArrayList<>();
+    for (int i = 0; i < data.length; i += 5) {
+      ByteBuffer chunk = ByteBuffer.allocateDirect(Math.min(5, data.length - i));
+      chunk.put(data, i, chunk.remaining()).flip();
+      feeder.feed(chunk);
+      countsAfterChunk.add(result.size());
+    }
+    int count = feeder.end();
+
+    // THEN
+    assertThat("Object elements decoded", count, is(3));
+    assertThat("Element values", names(result), contains("a", "b", "c"));
+    assertThat("First element available before end of input", countsAfterChunk.get(6), is(1));
+  }
+
+  @Test
+  public void notArray() throws Exception {
+    // GIVEN
+    JsonArrayStreamDecoder<Item> decoder = new JsonArrayStreamDecoder<>(new ObjectMapper(),
+        Item.class);
+    List<Item> result = new ArrayList<>();
+    JsonArrayStreamDecoder<Item>.Feeder feeder = decoder.newFeeder(result::add);
+
+    // WHEN
+    feeder.feed(ByteBuffer.wrap("{\"name\":\"a\"}".getBytes(StandardCharsets.UTF_8)));
+    int count = feeder.end();
+
+    // THEN
+    assertThat("Non-array document ignored", count, is(0));
+  }
+
+}
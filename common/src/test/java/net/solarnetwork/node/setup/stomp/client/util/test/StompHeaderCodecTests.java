@@ -0,0 +1,97 @@
+/* ==================================================================
+ * StompHeaderCodecTests.java - 18/10/2026 1:52:20 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.util.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.solarnetwork.node.setup.stomp.client.util.StompHeaderCodec;
+
+/**
+ * Test cases for the {@link StompHeaderCodec} class.
+ * 
+ * @author matt
+ * @version 1.0
+ */
+public class StompHeaderCodecTests {
+
+  @Test
+  public void escape_null() {
+    assertThat("Null passes through", StompHeaderCodec.escape(null), nullValue());
+  }
+
+  @Test
+  public void escape_nothingToEscape() {
+    String s = "/setup/datum/latest";
+    assertThat("Same instance returned", StompHeaderCodec.escape(s), sameInstance(s));
+  }
+
+  @Test
+  public void escape_all() {
+    assertThat("All STOMP 1.2 escapes applied", StompHeaderCodec.escape("a\\b\rc\nd:e"),
+        equalTo("a\\\\b\\rc\\nd\\ce"));
+  }
+
+  @Test
+  public void escape_leadingAndTrailing() {
+    assertThat("Escapes at boundaries", StompHeaderCodec.escape(":x:"), equalTo("\\cx\\c"));
+  }
+
+  @Test
+  public void unescape_nothingToUnescape() {
+    String s = "2021-08-17T14:28:12Z";
+    assertThat("Same instance returned", StompHeaderCodec.unescape(s), sameInstance(s));
+  }
+
+  @Test
+  public void unescape_all() {
+    assertThat("All STOMP 1.2 escapes decoded", StompHeaderCodec.unescape("a\\\\b\\rc\\nd\\ce"),
+        equalTo("a\\b\rc\nd:e"));
+  }
+
+  @Test
+  public void roundTrip() {
+    String s = "SNS Credential=foo,SignedHeaders=date:host,Signature=\\abc\r\n";
+    assertThat("Round trip", StompHeaderCodec.unescape(StompHeaderCodec.escape(s)), equalTo(s));
+  }
+
+  @Test
+  public void unescape_undefinedEscape() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> {
+      StompHeaderCodec.unescape("a\\tb");
+    }, "Undefined escape sequences are a protocol error.");
+  }
+
+  @Test
+  public void unescape_incompleteEscape() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> {
+      StompHeaderCodec.unescape("ab\\");
+    }, "Trailing backslash is a protocol error.");
+  }
+
+}
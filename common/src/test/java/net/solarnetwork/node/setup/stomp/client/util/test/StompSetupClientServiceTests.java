@@ -24,25 +24,44 @@ package net.solarnetwork.node.setup.stomp.client.util.test;
 
 import static net.solarnetwork.node.setup.stomp.client.domain.BasicStompMessage.stringMessage;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.matchesPattern;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 
+import java.io.IOException;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -59,6 +78,9 @@ import org.springframework.util.MultiValueMap;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
 import net.solarnetwork.codec.JsonUtils;
 import net.solarnetwork.domain.datum.Datum;
 import net.solarnetwork.domain.datum.DatumSamples;
@@ -67,10 +89,15 @@ import net.solarnetwork.node.setup.stomp.SetupHeader;
 import net.solarnetwork.node.setup.stomp.SetupTopic;
 import net.solarnetwork.node.setup.stomp.StompCommand;
 import net.solarnetwork.node.setup.stomp.StompHeader;
+import net.solarnetwork.node.setup.stomp.client.domain.Command;
+import net.solarnetwork.node.setup.stomp.client.domain.LatencySummary;
+import net.solarnetwork.node.setup.stomp.client.domain.Message;
 import net.solarnetwork.node.setup.stomp.client.domain.StompMessage;
+import net.solarnetwork.node.setup.stomp.client.impl.StompClientMetrics;
 import net.solarnetwork.node.setup.stomp.client.impl.StompSetupClientService;
 import net.solarnetwork.node.setup.stomp.client.service.StompSetupClient;
 import net.solarnetwork.node.setup.stomp.client.service.StompSetupClientFactory;
+import net.solarnetwork.node.setup.stomp.client.service.Subscription;
 
 /**
  * Test cases for the {@link StompSetupClientService} class.
@@ -93,6 +120,18 @@ public class StompSetupClientServiceTests {
   @Captor
   private ArgumentCaptor<StompMessage<String>> postCaptor;
 
+  @Captor
+  private ArgumentCaptor<Consumer<Throwable>> closeListenerCaptor;
+
+  @Mock
+  private Timer requestTimer;
+
+  @Mock
+  private Timeout requestTimeout;
+
+  @Captor
+  private ArgumentCaptor<TimerTask> timerTaskCaptor;
+
   private ObjectMapper mapper;
   private StompSetupClientService service;
 
@@ -106,7 +145,6 @@ public class StompSetupClientServiceTests {
     service.setObjectMapper(mapper);
   }
 
-  @SuppressWarnings({ "rawtypes", "unchecked" })
   @Test
   public void connect() {
     // GIVEN
@@ -116,7 +154,7 @@ public class StompSetupClientServiceTests {
 
     client.addMessageConsumer(service);
 
-    Future doneFuture = CompletableFuture.completedFuture(null);
+    CompletableFuture<Void> doneFuture = CompletableFuture.completedFuture(null);
     given(client.connect()).willReturn(doneFuture);
 
     // the service is a consumer of messages from the client
@@ -125,10 +163,10 @@ public class StompSetupClientServiceTests {
     // post CONNECT message followed by SEND:/setup/authenticate message
     // followed by SUBSCRIBE:/setup/**
     String salt = BCrypt.gensalt();
-    given(client.post(postCaptor.capture())).willAnswer(new Answer<Future<?>>() {
+    given(client.post(postCaptor.capture())).willAnswer(new Answer<CompletableFuture<Void>>() {
 
       @Override
-      public Future<?> answer(InvocationOnMock invocation) throws Throwable {
+      public CompletableFuture<Void> answer(InvocationOnMock invocation) throws Throwable {
         // "async" CONNECTED message reply
         MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
         headers.add(SetupHeader.AuthHash.getValue(), "bcrypt");
@@ -175,7 +213,42 @@ public class StompSetupClientServiceTests {
     assertThat("ID header", subMessage.getHeaders().getFirst(StompHeader.Id.getValue()), is("0"));
   }
 
-  @SuppressWarnings({ "rawtypes" })
+  @Test
+  public void connect_timeout() {
+    // GIVEN
+    service.setTimeoutSeconds(1);
+    given(clientFactory.createClient("localhost", 1234)).willReturn(client);
+    given(client.connect()).willReturn(CompletableFuture.completedFuture(null));
+
+    // CONNECTED reply never arrives
+    given(client.post(any())).willReturn(CompletableFuture.completedFuture(null));
+
+    // WHEN
+    assertThrows(RuntimeException.class, () -> {
+      service.connect("localhost", 1234, "foo", "bar");
+    });
+
+    // THEN
+    verify(client).disconnect();
+    assertThat("Service not connected", service.isConnected(), is(false));
+  }
+
+  @Test
+  public void connectAsync_cancel() {
+    // GIVEN
+    given(clientFactory.createClient("localhost", 1234)).willReturn(client);
+    given(client.connect()).willReturn(new CompletableFuture<>());
+
+    // WHEN
+    CompletableFuture<Void> result = service.connectAsync("localhost", 1234, "foo", "bar")
+        .toCompletableFuture();
+    result.cancel(false);
+
+    // THEN
+    verify(client).disconnect();
+    assertThat("Service not connected", service.isConnected(), is(false));
+  }
+
   @Test
   public void latestDatum() {
     // GIVEN
@@ -199,11 +272,11 @@ public class StompSetupClientServiceTests {
     datum.add(
         new net.solarnetwork.domain.datum.GeneralDatum("s2", date.toInstant(ZoneOffset.UTC), s));
 
-    Future doneFuture = CompletableFuture.completedFuture(null);
-    given(client.post(postCaptor.capture())).willAnswer(new Answer<Future<?>>() {
+    CompletableFuture<Void> doneFuture = CompletableFuture.completedFuture(null);
+    given(client.post(postCaptor.capture())).willAnswer(new Answer<CompletableFuture<Void>>() {
 
       @Override
-      public Future<?> answer(InvocationOnMock invocation) throws Throwable {
+      public CompletableFuture<Void> answer(InvocationOnMock invocation) throws Throwable {
         final String json = mapper.writeValueAsString(datum);
         MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
         headers.add(StompHeader.Destination.getValue(), SetupTopic.DatumLatest.getValue());
@@ -224,4 +297,571 @@ public class StompSetupClientServiceTests {
     assertThat("Two datum returned", result, hasSize(2));
   }
 
+  @Test
+  public void executeCommand_multiplexed() throws Exception {
+    // GIVEN
+    connect(); // get service into connected state
+    reset(client, clientFactory);
+
+    given(client.isConnected()).willReturn(true);
+
+    // post two SEND:/setup/test messages without replying
+    final List<StompMessage<String>> posted = new CopyOnWriteArrayList<>();
+    CompletableFuture<Void> doneFuture = CompletableFuture.completedFuture(null);
+    given(client.post(postCaptor.capture())).willAnswer(new Answer<CompletableFuture<Void>>() {
+
+      @Override
+      public CompletableFuture<Void> answer(InvocationOnMock invocation) throws Throwable {
+        posted.add(invocation.getArgument(0));
+        return doneFuture;
+      }
+    });
+
+    // WHEN
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<Message<String>> result1 = executor
+          .submit(() -> service.executeCommand("/setup/test", null, "one"));
+      final Future<Message<String>> result2 = executor
+          .submit(() -> service.executeCommand("/setup/test", null, "two"));
+      while (posted.size() < 2) {
+        Thread.sleep(10);
+      }
+
+      // reply in reverse order, echoing each request ID
+      for (int i = posted.size() - 1; i >= 0; i--) {
+        StompMessage<String> req = posted.get(i);
+        MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+        headers.add(StompHeader.Destination.getValue(), "/setup/test");
+        headers.add(StompSetupClientService.REQUEST_ID_HEADER,
+            req.getHeaders().getFirst(StompSetupClientService.REQUEST_ID_HEADER));
+        service.accept(stringMessage(StompCommand.MESSAGE, headers, "re: " + req.getBody()));
+      }
+
+      // THEN
+      assertThat("Request IDs are unique",
+          posted.get(0).getHeaders().getFirst(StompSetupClientService.REQUEST_ID_HEADER),
+          is(not(equalTo(
+              posted.get(1).getHeaders().getFirst(StompSetupClientService.REQUEST_ID_HEADER)))));
+      assertThat("First reply routed by request ID", result1.get(1, TimeUnit.MINUTES).getBody(),
+          is("re: one"));
+      assertThat("Second reply routed by request ID", result2.get(1, TimeUnit.MINUTES).getBody(),
+          is("re: two"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void executeCommandAsync() throws Exception {
+    // GIVEN
+    connect(); // get service into connected state
+    reset(client, clientFactory);
+
+    given(client.isConnected()).willReturn(true);
+    given(client.post(postCaptor.capture())).willReturn(CompletableFuture.completedFuture(null));
+
+    // WHEN
+    CompletableFuture<Message<String>> result = service
+        .executeCommandAsync("/setup/test", null, null).toCompletableFuture();
+
+    // THEN
+    assertThat("Result not available until reply received", result.isDone(), is(false));
+
+    StompMessage<String> req = postCaptor.getValue();
+    MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+    headers.add(StompHeader.Destination.getValue(), "/setup/test");
+    headers.add(StompSetupClientService.REQUEST_ID_HEADER,
+        req.getHeaders().getFirst(StompSetupClientService.REQUEST_ID_HEADER));
+    StompMessage<String> reply = stringMessage(StompCommand.MESSAGE, headers, "OK");
+    service.accept(reply);
+
+    assertThat("Result completed by reply", result.isDone(), is(true));
+    assertThat("Result is reply", result.get(), is(sameInstance(reply)));
+  }
+
+  @Test
+  public void executeCommandAsync_deadline() throws Exception {
+    // GIVEN
+    connect(); // get service into connected state
+    reset(client, clientFactory);
+    service.setRequestTimer(requestTimer);
+
+    given(client.isConnected()).willReturn(true);
+    given(client.post(postCaptor.capture())).willReturn(CompletableFuture.completedFuture(null));
+    given(requestTimer.newTimeout(timerTaskCaptor.capture(), eq(service.getTimeoutSeconds()),
+        eq(TimeUnit.SECONDS))).willReturn(requestTimeout);
+
+    // WHEN
+    CompletableFuture<Message<String>> result = service
+        .executeCommandAsync("/setup/test", null, null).toCompletableFuture();
+    timerTaskCaptor.getValue().run(requestTimeout);
+
+    // THEN
+    assertThat("Result completed by deadline", result.isCompletedExceptionally(), is(true));
+    ExecutionException e = assertThrows(ExecutionException.class, () -> result.get());
+    assertThat("Failed from timeout", e.getCause(), is(instanceOf(TimeoutException.class)));
+
+    // a late reply is no longer correlated to the request
+    StompMessage<String> req = postCaptor.getValue();
+    MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+    headers.add(StompHeader.Destination.getValue(), "/setup/test");
+    headers.add(StompSetupClientService.REQUEST_ID_HEADER,
+        req.getHeaders().getFirst(StompSetupClientService.REQUEST_ID_HEADER));
+    service.accept(stringMessage(StompCommand.MESSAGE, headers, "OK"));
+    assertThat("Result still failed", result.isCompletedExceptionally(), is(true));
+  }
+
+  @Test
+  public void executeCommandAsync_cancel() throws Exception {
+    // GIVEN
+    connect(); // get service into connected state
+    reset(client, clientFactory);
+    service.setRequestTimer(requestTimer);
+
+    given(client.isConnected()).willReturn(true);
+    given(client.post(any())).willReturn(CompletableFuture.completedFuture(null));
+    given(requestTimer.newTimeout(any(), eq(service.getTimeoutSeconds()), eq(TimeUnit.SECONDS)))
+        .willReturn(requestTimeout);
+
+    // WHEN
+    CompletableFuture<Message<String>> result = service
+        .executeCommandAsync("/setup/test", null, null).toCompletableFuture();
+    result.cancel(false);
+
+    // THEN
+    assertThat("Result cancelled", result.isCancelled(), is(true));
+    verify(requestTimeout).cancel();
+  }
+
+  @Test
+  public void latestDatumAsync_cancel() throws Exception {
+    // GIVEN
+    connect(); // get service into connected state
+    reset(client, clientFactory);
+    service.setRequestTimer(requestTimer);
+
+    given(client.isConnected()).willReturn(true);
+    given(client.post(postCaptor.capture())).willReturn(CompletableFuture.completedFuture(null));
+    given(requestTimer.newTimeout(any(), eq(service.getTimeoutSeconds()), eq(TimeUnit.SECONDS)))
+        .willReturn(requestTimeout);
+
+    // WHEN
+    CompletableFuture<Collection<Datum>> result = service.latestDatumAsync(null)
+        .toCompletableFuture();
+    result.cancel(false);
+
+    // THEN
+    assertThat("Result cancelled", result.isCancelled(), is(true));
+    verify(requestTimeout).cancel();
+
+    // a late reply is no longer correlated to the request, so is not decoded as its result
+    StompMessage<String> req = postCaptor.getValue();
+    MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+    headers.add(StompHeader.Destination.getValue(), SetupTopic.DatumLatest.getValue());
+    headers.add(StompSetupClientService.REQUEST_ID_HEADER,
+        req.getHeaders().getFirst(StompSetupClientService.REQUEST_ID_HEADER));
+    service.accept(stringMessage(StompCommand.MESSAGE, headers, "not JSON"));
+    assertThat("Result still cancelled", result.isCancelled(), is(true));
+  }
+
+  @Test
+  public void executeBatchAsync() throws Exception {
+    // GIVEN
+    connect(); // get service into connected state
+    reset(client, clientFactory);
+
+    given(client.isConnected()).willReturn(true);
+    final List<List<StompMessage<String>>> posted = new ArrayList<>();
+    given(client.postAll(any())).willAnswer(invocation -> {
+      posted.add(invocation.getArgument(0));
+      return CompletableFuture.completedFuture(null);
+    });
+
+    // WHEN
+    List<CompletionStage<Message<String>>> result = service.executeBatchAsync(
+        Arrays.asList(new Command("/setup/test/1"), new Command("/setup/test/2", null, "two"),
+            new Command("/setup/test/3")));
+
+    // THEN
+    assertThat("Stage returned for each command", result, hasSize(3));
+    assertThat("All commands posted together", posted, hasSize(1));
+    List<StompMessage<String>> reqs = posted.get(0);
+    assertThat("Message posted for each command", reqs, hasSize(3));
+    assertThat("Commands posted in order",
+        reqs.stream().map(m -> m.getHeaders().getFirst(StompHeader.Destination.getValue()))
+            .collect(Collectors.toList()),
+        contains("/setup/test/1", "/setup/test/2", "/setup/test/3"));
+    assertThat("Body posted", reqs.get(1).getBody(), is("two"));
+
+    // reply out of order
+    List<StompMessage<String>> replies = new ArrayList<>();
+    for (int i = reqs.size() - 1; i >= 0; i--) {
+      MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+      headers.add(StompHeader.Destination.getValue(),
+          reqs.get(i).getHeaders().getFirst(StompHeader.Destination.getValue()));
+      headers.add(StompSetupClientService.REQUEST_ID_HEADER,
+          reqs.get(i).getHeaders().getFirst(StompSetupClientService.REQUEST_ID_HEADER));
+      StompMessage<String> reply = stringMessage(StompCommand.MESSAGE, headers, "OK " + i);
+      replies.add(0, reply);
+      service.accept(reply);
+      assertThat("Result completed by reply", result.get(i).toCompletableFuture().isDone(),
+          is(true));
+    }
+    for (int i = 0; i < reqs.size(); i++) {
+      assertThat("Result is correlated reply", result.get(i).toCompletableFuture().get(),
+          is(sameInstance(replies.get(i))));
+    }
+  }
+
+  @Test
+  public void executeBatchAsync_postFailed() throws Exception {
+    // GIVEN
+    connect(); // get service into connected state
+    reset(client, clientFactory);
+
+    given(client.isConnected()).willReturn(true);
+    IOException err = new IOException("Channel is closed!");
+    CompletableFuture<Void> postResult = new CompletableFuture<>();
+    postResult.completeExceptionally(err);
+    given(client.postAll(any())).willReturn(postResult);
+
+    // WHEN
+    List<CompletionStage<Message<String>>> result = service.executeBatchAsync(
+        Arrays.asList(new Command("/setup/test/1"), new Command("/setup/test/2")));
+
+    // THEN
+    for (CompletionStage<Message<String>> stage : result) {
+      ExecutionException e = assertThrows(ExecutionException.class,
+          () -> stage.toCompletableFuture().get());
+      assertThat("Each command failed with post error", e.getCause(), is(sameInstance(err)));
+    }
+  }
+
+  @Test
+  public void connectionLost_failPendingRequests() throws Exception {
+    // GIVEN
+    connect(); // get service into connected state
+    verify(client).addCloseListener(closeListenerCaptor.capture());
+    reset(client, clientFactory);
+
+    given(client.isConnected()).willReturn(true);
+    given(client.post(postCaptor.capture())).willReturn(CompletableFuture.completedFuture(null));
+
+    CompletableFuture<Message<String>> result = service
+        .executeCommandAsync("/setup/test", null, null).toCompletableFuture();
+
+    // WHEN
+    IOException cause = new IOException("No heart-beat received.");
+    closeListenerCaptor.getValue().accept(cause);
+
+    // THEN
+    assertThat("Request failed without waiting for timeout", result.isCompletedExceptionally(),
+        is(true));
+    ExecutionException e = assertThrows(ExecutionException.class, () -> result.get());
+    assertThat("Failed with IOException", e.getCause(), is(instanceOf(IOException.class)));
+    assertThat("Close cause provided", e.getCause().getCause(), is(sameInstance(cause)));
+    assertThat("Service no longer connected", service.isConnected(), is(false));
+  }
+
+  @Test
+  public void metrics() throws Exception {
+    // GIVEN
+    StompClientMetrics metrics = new StompClientMetrics();
+    service.setMetrics(metrics);
+    connect(); // get service into connected state
+    verify(client).addCloseListener(closeListenerCaptor.capture());
+    reset(client, clientFactory);
+
+    given(client.isConnected()).willReturn(true);
+    given(client.post(postCaptor.capture())).willReturn(CompletableFuture.completedFuture(null));
+
+    // WHEN
+    final CompletableFuture<Message<String>> result = service
+        .executeCommandAsync("/setup/test", null, null).toCompletableFuture();
+    final long inFlight = metrics.getInFlightRequests();
+    MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+    headers.add(StompHeader.Destination.getValue(), "/setup/test");
+    headers.add(StompSetupClientService.REQUEST_ID_HEADER, postCaptor.getValue().getHeaders()
+        .getFirst(StompSetupClientService.REQUEST_ID_HEADER));
+    service.accept(stringMessage(StompCommand.MESSAGE, headers, "OK"));
+    closeListenerCaptor.getValue().accept(new IOException("No heart-beat received."));
+
+    // THEN
+    assertThat("Request completed", result.isDone(), is(true));
+    assertThat("Request in flight until reply received", inFlight, is(1L));
+    assertThat("Request no longer in flight", metrics.getInFlightRequests(), is(0L));
+    assertThat("Request latency recorded by destination",
+        metrics.getRequestLatencies().get("/setup/test").getCount(), is(1L));
+    for (LatencySummary phase : metrics.getConnectPhaseLatencies().values()) {
+      assertThat("Connect phase recorded", phase.getCount(), is(1L));
+    }
+    assertThat("Connection loss counted", metrics.getConnectionsLost(), is(1L));
+  }
+
+  @Test
+  public void connectionLost_reconnectAndRequeue() throws Exception {
+    // GIVEN
+    service.setAutoReconnect(true);
+    service.setInFlightPolicy(StompSetupClientService.InFlightPolicy.Requeue);
+    service.setReconnectInitialDelayMillis(1);
+    service.setReconnectMaxDelayMillis(5);
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    service.setReconnectScheduler(scheduler);
+
+    connect(); // get service into connected state
+    verify(client).addCloseListener(closeListenerCaptor.capture());
+    reset(client, clientFactory);
+
+    given(clientFactory.createClient("localhost", 1234)).willReturn(client);
+    given(client.connect()).willReturn(CompletableFuture.completedFuture(null));
+    given(client.isConnected()).willReturn(true);
+
+    final String salt = BCrypt.gensalt();
+    final List<StompMessage<String>> posted = new CopyOnWriteArrayList<>();
+    given(client.post(postCaptor.capture())).willAnswer(new Answer<CompletableFuture<Void>>() {
+
+      @Override
+      public CompletableFuture<Void> answer(InvocationOnMock invocation) throws Throwable {
+        StompMessage<String> msg = invocation.getArgument(0);
+        posted.add(msg);
+        if (msg.getCommand() == StompCommand.CONNECT) {
+          MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+          headers.add(SetupHeader.AuthHash.getValue(), "bcrypt");
+          headers.add("auth-hash-param-salt", salt);
+          service.accept(stringMessage(StompCommand.CONNECTED, headers));
+        }
+        return CompletableFuture.completedFuture(null);
+      }
+    });
+
+    CompletableFuture<Message<String>> result = service
+        .executeCommandAsync("/setup/test", null, null).toCompletableFuture();
+    final String requestId = posted.get(0).getHeaders()
+        .getFirst(StompSetupClientService.REQUEST_ID_HEADER);
+
+    try {
+      // WHEN
+      closeListenerCaptor.getValue().accept(new IOException("No heart-beat received."));
+
+      // THEN
+      assertThat("Request not failed", result.isDone(), is(false));
+
+      // wait for handshake to complete and request to be sent again
+      long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+      while (posted.size() < 5 && System.currentTimeMillis() < end) {
+        Thread.sleep(10);
+      }
+      List<StompCommand> commands = posted.stream().map(StompMessage::getCommand)
+          .collect(Collectors.toList());
+      assertThat("Handshake repeated then request sent again", commands,
+          contains(StompCommand.SEND, StompCommand.CONNECT, StompCommand.SEND,
+              StompCommand.SUBSCRIBE, StompCommand.SEND));
+      StompMessage<String> resent = posted.get(4);
+      assertThat("Request resent with same ID",
+          resent.getHeaders().getFirst(StompSetupClientService.REQUEST_ID_HEADER),
+          is(requestId));
+
+      MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+      headers.add(StompHeader.Destination.getValue(), "/setup/test");
+      headers.add(StompSetupClientService.REQUEST_ID_HEADER, requestId);
+      StompMessage<String> reply = stringMessage(StompCommand.MESSAGE, headers, "OK");
+      service.accept(reply);
+
+      assertThat("Result is reply", result.get(1, TimeUnit.MINUTES), is(sameInstance(reply)));
+      assertThat("Service reconnected", service.isConnected(), is(true));
+    } finally {
+      service.disconnect();
+      scheduler.shutdownNow();
+    }
+  }
+
+  @Test
+  public void connectionLost_requeueDuringHandshake() throws Exception {
+    // GIVEN
+    service.setAutoReconnect(true);
+    service.setInFlightPolicy(StompSetupClientService.InFlightPolicy.Requeue);
+    service.setReconnectInitialDelayMillis(1);
+    service.setReconnectMaxDelayMillis(5);
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    service.setReconnectScheduler(scheduler);
+
+    connect(); // get service into connected state
+    verify(client).addCloseListener(closeListenerCaptor.capture());
+    reset(client, clientFactory);
+
+    given(clientFactory.createClient("localhost", 1234)).willReturn(client);
+    given(client.connect()).willReturn(CompletableFuture.completedFuture(null));
+    given(client.isConnected()).willReturn(true);
+
+    // the CONNECTED reply is withheld, so the handshake stalls after the TCP connection is up
+    final List<StompMessage<String>> posted = new CopyOnWriteArrayList<>();
+    given(client.post(any())).willAnswer(new Answer<CompletableFuture<Void>>() {
+
+      @Override
+      public CompletableFuture<Void> answer(InvocationOnMock invocation) throws Throwable {
+        posted.add(invocation.getArgument(0));
+        return CompletableFuture.completedFuture(null);
+      }
+    });
+
+    try {
+      // WHEN
+      closeListenerCaptor.getValue().accept(new IOException("No heart-beat received."));
+      verify(client, timeout(10_000)).post(any());
+      CompletableFuture<Message<String>> result = service
+          .executeCommandAsync("/setup/test", null, null).toCompletableFuture();
+
+      // THEN
+      assertThat("Service not connected during handshake", service.isConnected(), is(false));
+      assertThat("Request queued, not sent ahead of handshake",
+          posted.stream().map(StompMessage::getCommand).collect(Collectors.toList()),
+          contains(StompCommand.CONNECT));
+      assertThat("Request not failed", result.isDone(), is(false));
+
+      MultiValueMap<String, String> connHeaders = new LinkedMultiValueMap<>();
+      connHeaders.add(SetupHeader.AuthHash.getValue(), "bcrypt");
+      connHeaders.add("auth-hash-param-salt", BCrypt.gensalt());
+      service.accept(stringMessage(StompCommand.CONNECTED, connHeaders));
+
+      long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+      while (posted.size() < 4 && System.currentTimeMillis() < end) {
+        Thread.sleep(10);
+      }
+      List<StompCommand> commands = posted.stream().map(StompMessage::getCommand)
+          .collect(Collectors.toList());
+      assertThat("Request sent after handshake completed", commands, contains(StompCommand.CONNECT,
+          StompCommand.SEND, StompCommand.SUBSCRIBE, StompCommand.SEND));
+      assertThat("Request sent to destination",
+          posted.get(3).getHeaders().getFirst(StompHeader.Destination.getValue()),
+          is("/setup/test"));
+      assertThat("Service connected", service.isConnected(), is(true));
+    } finally {
+      service.disconnect();
+      scheduler.shutdownNow();
+    }
+  }
+
+  @Test
+  public void connectionLost_disconnectWhileReconnecting() throws Exception {
+    // GIVEN
+    service.setAutoReconnect(true);
+    service.setReconnectInitialDelayMillis(1);
+    service.setReconnectMaxDelayMillis(5);
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    service.setReconnectScheduler(scheduler);
+
+    connect(); // get service into connected state
+    verify(client).addCloseListener(closeListenerCaptor.capture());
+    reset(client, clientFactory);
+
+    final CompletableFuture<Void> tcp = new CompletableFuture<>();
+    given(clientFactory.createClient("localhost", 1234)).willReturn(client);
+    given(client.connect()).willReturn(tcp);
+
+    try {
+      // WHEN
+      closeListenerCaptor.getValue().accept(new IOException("No heart-beat received."));
+      verify(client, timeout(10_000)).connect();
+      service.disconnect();
+      tcp.complete(null);
+
+      // THEN
+      verify(client, timeout(10_000).atLeastOnce()).disconnect();
+      Thread.sleep(100);
+      verify(clientFactory).createClient("localhost", 1234);
+      assertThat("Service not connected", service.isConnected(), is(false));
+    } finally {
+      scheduler.shutdownNow();
+    }
+  }
+
+  @Test
+  public void subscribeDatum() throws Exception {
+    // GIVEN
+    Instant date = LocalDateTime.of(2021, 8, 17, 14, 28, 12).toInstant(ZoneOffset.UTC);
+    List<GeneralDatum> datum = new ArrayList<>();
+    for (String sourceId : new String[] { "/s/1", "/t/1", "/s/2" }) {
+      DatumSamples s = new DatumSamples();
+      s.putInstantaneousSampleValue("a", 1);
+      datum.add(new GeneralDatum(sourceId, date, s));
+    }
+    MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+    headers.add(StompHeader.Destination.getValue(), "/setup/datum/stream");
+    StompMessage<String> pushed = stringMessage(StompCommand.MESSAGE, headers,
+        mapper.writeValueAsString(datum));
+
+    List<Datum> received = new ArrayList<>();
+
+    // WHEN
+    Subscription sub = service.subscribeDatum(Collections.singleton("/s/*"), received::add);
+    service.accept(pushed);
+    sub.unsubscribe();
+    service.accept(pushed);
+
+    // THEN
+    assertThat("Subscription no longer active", sub.isActive(), is(false));
+    assertThat("Only datum matching filter received while subscribed",
+        received.stream().map(Datum::getSourceId).collect(Collectors.toList()),
+        contains("/s/1", "/s/2"));
+  }
+
+  @Test
+  public void executeCommandAsync_noRequestId() throws Exception {
+    // GIVEN
+    connect(); // get service into connected state
+    reset(client, clientFactory);
+
+    given(client.isConnected()).willReturn(true);
+    given(client.post(any())).willReturn(CompletableFuture.completedFuture(null));
+
+    // WHEN
+    final CompletableFuture<Message<String>> result1 = service
+        .executeCommandAsync("/setup/test", null, null).toCompletableFuture();
+    final CompletableFuture<Message<String>> result2 = service
+        .executeCommandAsync("/setup/test", null, null).toCompletableFuture();
+    MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+    headers.add(StompHeader.Destination.getValue(), "/setup/test");
+    StompMessage<String> reply1 = stringMessage(StompCommand.MESSAGE, headers, "1");
+    StompMessage<String> reply2 = stringMessage(StompCommand.MESSAGE, headers, "2");
+    service.accept(reply1);
+    service.accept(reply2);
+
+    // THEN
+    assertThat("First reply to oldest request", result1.get(), is(sameInstance(reply1)));
+    assertThat("Second reply to next request", result2.get(), is(sameInstance(reply2)));
+  }
+
+  @Test
+  public void subscribeDatum_pendingRequest() throws Exception {
+    // GIVEN
+    connect(); // get service into connected state
+    reset(client, clientFactory);
+
+    given(client.isConnected()).willReturn(true);
+    given(client.post(any())).willReturn(CompletableFuture.completedFuture(null));
+
+    Instant date = LocalDateTime.of(2021, 8, 17, 14, 28, 12).toInstant(ZoneOffset.UTC);
+    DatumSamples s = new DatumSamples();
+    s.putInstantaneousSampleValue("a", 1);
+    List<GeneralDatum> datum = Collections.singletonList(new GeneralDatum("/s/1", date, s));
+    MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+    headers.add(StompHeader.Destination.getValue(), "/setup/datum/stream");
+    StompMessage<String> pushed = stringMessage(StompCommand.MESSAGE, headers,
+        mapper.writeValueAsString(datum));
+
+    List<Datum> received = new ArrayList<>();
+    service.subscribeDatum(null, received::add);
+
+    // WHEN
+    CompletableFuture<Message<String>> result = service
+        .executeCommandAsync("/setup/datum/stream", null, null).toCompletableFuture();
+    service.accept(pushed);
+
+    // THEN
+    assertThat("Pushed datum not taken as request reply", result.isDone(), is(false));
+    assertThat("Pushed datum delivered to subscriber",
+        received.stream().map(Datum::getSourceId).collect(Collectors.toList()), contains("/s/1"));
+  }
+
 }
@@ -0,0 +1,676 @@
+/* ==================================================================
+ * StompSetupTestServer.java - 18/10/2026 11:42:08 PM
+ * 
+ * Copyright 2026 SolarNetwork Foundation
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.client.test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.stomp.DefaultStompFrame;
+import io.netty.handler.codec.stomp.StompCommand;
+import io.netty.handler.codec.stomp.StompFrame;
+import io.netty.handler.codec.stomp.StompHeaders;
+import io.netty.handler.codec.stomp.StompSubframeAggregator;
+import io.netty.handler.codec.stomp.StompSubframeDecoder;
+import io.netty.handler.codec.stomp.StompSubframeEncoder;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import net.solarnetwork.codec.JsonUtils;
+import net.solarnetwork.domain.datum.DatumSamples;
+import net.solarnetwork.domain.datum.GeneralDatum;
+import net.solarnetwork.node.setup.stomp.SetupHeader;
+import net.solarnetwork.node.setup.stomp.SetupStatus;
+import net.solarnetwork.node.setup.stomp.SetupTopic;
+import net.solarnetwork.node.setup.stomp.client.domain.StompMessage;
+import net.solarnetwork.node.setup.stomp.client.impl.NettyStompMessage;
+import net.solarnetwork.node.setup.stomp.client.util.StompHeaderCodec;
+import net.solarnetwork.security.SnsAuthorizationBuilder;
+
+/**
+ * A lightweight STOMP setup server, for testing clients against a real network stack.
+ * 
+ * <p>
+ * The server listens on the loopback interface, on an ephemeral port by default. It responds to
+ * {@literal CONNECT} with a {@literal CONNECTED} frame offering {@literal bcrypt} authentication
+ * with the configured {@code salt}, verifies the {@literal /setup/authenticate} request signature
+ * against the configured {@code password}, and accepts {@literal SUBSCRIBE} frames. Other
+ * {@literal SEND} frames are only accepted once authenticated, and are passed to the
+ * {@link TopicHandler} registered for their destination. The response is sent as a
+ * {@literal MESSAGE} frame to the same destination, with the {@literal request-id} header of the
+ * request, after {@code latencyMillis}.
+ * </p>
+ * 
+ * <p>
+ * Authentication failures, and requests made before authenticating, are answered with an
+ * {@literal ERROR} frame and the connection is closed. Requests to destinations without a handler
+ * are answered with a {@link SetupStatus#NotFound} status, and handler exceptions with a
+ * {@link SetupStatus#InternalError} status.
+ * </p>
+ * 
+ * <p>
+ * Heart-beats are not supported, so the {@literal CONNECTED} frame declares none.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.1
+ */
+public class StompSetupTestServer {
+
+  /**
+   * The {@code username} property default value.
+   */
+  public static final String DEFAULT_USERNAME = "test";
+
+  /**
+   * The {@code password} property default value.
+   */
+  public static final String DEFAULT_PASSWORD = "test.password";
+
+  /**
+   * The bcrypt cost used for the default {@code salt}, kept low so connecting is quick.
+   */
+  public static final int DEFAULT_BCRYPT_COST = 4;
+
+  /**
+   * The {@code maxFrameLength} property default value.
+   */
+  public static final int DEFAULT_MAX_FRAME_LENGTH = 1024 * 1024;
+
+  /**
+   * The {@code ioThreads} property default value.
+   */
+  public static final int DEFAULT_IO_THREADS = 1;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final String JSON_UTF8_CONTENT_TYPE = "application/json;charset=utf-8";
+
+  private static final String REQUEST_ID_HEADER = "request-id";
+
+  private static final Logger log = LoggerFactory.getLogger(StompSetupTestServer.class);
+
+  /**
+   * API for handling a request to a setup topic.
+   */
+  @FunctionalInterface
+  public interface TopicHandler {
+
+    /**
+     * Handle a request.
+     * 
+     * <p>
+     * The request is only valid for the duration of this method call.
+     * </p>
+     * 
+     * @param request
+     *          the request {@literal SEND} message
+     * @return the response body, or {@literal null} for none
+     * @throws Exception
+     *           if any error occurs, to respond with a {@link SetupStatus#InternalError} status
+     */
+    String handleRequest(StompMessage<String> request) throws Exception;
+
+  }
+
+  private final Map<String, TopicHandler> handlers = new ConcurrentHashMap<>(8);
+  private final AtomicLong connectionCount = new AtomicLong();
+  private final AtomicLong authenticationCount = new AtomicLong();
+  private final AtomicLong requestCount = new AtomicLong();
+  private final AtomicLong messageIds = new AtomicLong();
+  private final ChannelGroup connections = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+
+  private String username = DEFAULT_USERNAME;
+  private String password = DEFAULT_PASSWORD;
+  private String salt = BCrypt.gensalt(DEFAULT_BCRYPT_COST);
+  private long latencyMillis = 0L;
+  private int maxFrameLength = DEFAULT_MAX_FRAME_LENGTH;
+  private int ioThreads = DEFAULT_IO_THREADS;
+  private volatile boolean autoRead = true;
+
+  private EventLoopGroup bossGroup;
+  private EventLoopGroup workerGroup;
+  private Channel serverChannel;
+  private String secret;
+
+  /**
+   * Constructor.
+   */
+  public StompSetupTestServer() {
+    super();
+  }
+
+  /**
+   * Start the server.
+   * 
+   * @param port
+   *          the loopback port to listen on, or {@literal 0} for an ephemeral port
+   * @return the port the server is listening on
+   * @throws InterruptedException
+   *           if interrupted while binding
+   */
+  public synchronized int start(int port) throws InterruptedException {
+    stop();
+    secret = (password != null ? DigestUtils.sha256Hex(BCrypt.hashpw(password, salt)) : null);
+    bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("STOMP-Test-Server", true));
+    workerGroup = new NioEventLoopGroup(ioThreads,
+        new DefaultThreadFactory("STOMP-Test-Server-IO", true));
+    ServerBootstrap b = new ServerBootstrap();
+    b.group(bossGroup, workerGroup);
+    b.channel(NioServerSocketChannel.class);
+    b.childHandler(new ChannelInitializer<SocketChannel>() {
+
+      @Override
+      protected void initChannel(SocketChannel ch) throws Exception {
+        ch.config().setAutoRead(autoRead);
+        connections.add(ch);
+        ch.pipeline().addLast(new StompSubframeDecoder(),
+            new StompSubframeAggregator(maxFrameLength), new StompSubframeEncoder(),
+            new SessionHandler());
+      }
+
+    });
+    serverChannel = b.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port)).sync()
+        .channel();
+    final int result = getPort();
+    log.info("STOMP setup test server listening on port {}", result);
+    return result;
+  }
+
+  /**
+   * Start the server on an ephemeral port.
+   * 
+   * @return the port the server is listening on
+   * @throws InterruptedException
+   *           if interrupted while binding
+   */
+  public int start() throws InterruptedException {
+    return start(0);
+  }
+
+  /**
+   * Stop the server, closing all connections.
+   */
+  public synchronized void stop() {
+    if (serverChannel != null) {
+      serverChannel.close().syncUninterruptibly();
+      serverChannel = null;
+    }
+    if (workerGroup != null) {
+      workerGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+      workerGroup = null;
+    }
+    if (bossGroup != null) {
+      bossGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+      bossGroup = null;
+    }
+  }
+
+  /**
+   * Get the port the server is listening on.
+   * 
+   * @return the port, or {@literal -1} if not started
+   */
+  public synchronized int getPort() {
+    final Channel ch = this.serverChannel;
+    return (ch != null ? ((InetSocketAddress) ch.localAddress()).getPort() : -1);
+  }
+
+  /**
+   * Get the host the server is listening on.
+   * 
+   * @return the loopback host address
+   */
+  public String getHost() {
+    return InetAddress.getLoopbackAddress().getHostAddress();
+  }
+
+  /**
+   * Register a topic handler.
+   * 
+   * @param destination
+   *          the destination to handle requests to
+   * @param handler
+   *          the handler, or {@literal null} to remove any handler registered for
+   *          {@code destination}
+   */
+  public void setTopicHandler(String destination, TopicHandler handler) {
+    if (handler == null) {
+      handlers.remove(destination);
+    } else {
+      handlers.put(destination, handler);
+    }
+  }
+
+  /**
+   * Create a handler that responds with a fixed-size body.
+   * 
+   * @param length
+   *          the response body length, in bytes
+   * @return the handler
+   */
+  public static TopicHandler payloadHandler(int length) {
+    final char[] data = new char[length];
+    Arrays.fill(data, 'x');
+    final String body = new String(data);
+    return r -> body;
+  }
+
+  /**
+   * Create a handler that responds with a JSON array of datum, for the
+   * {@link SetupTopic#DatumLatest} topic.
+   * 
+   * <p>
+   * The response is generated once, when the handler is created.
+   * </p>
+   * 
+   * @param count
+   *          the number of datum to respond with
+   * @return the handler
+   * @throws JsonProcessingException
+   *           if the datum cannot be encoded
+   */
+  public static TopicHandler datumHandler(int count) throws JsonProcessingException {
+    final Instant now = Instant.now();
+    final List<GeneralDatum> datum = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      DatumSamples s = new DatumSamples();
+      s.putInstantaneousSampleValue("watts", 1000 + i);
+      s.putInstantaneousSampleValue("voltage", 240.1f);
+      s.putAccumulatingSampleValue("wattHours", 123456789L + i);
+      datum.add(new GeneralDatum("/test/meter/" + i, now, s));
+    }
+    final String body = JsonUtils.newDatumObjectMapper().writeValueAsString(datum);
+    return r -> body;
+  }
+
+  private boolean verifyAuthorization(String login, String authorization, String date) {
+    if (secret == null) {
+      return true;
+    }
+    if (login == null || !login.equals(username) || authorization == null || date == null) {
+      return false;
+    }
+    final Instant ts;
+    try {
+      ts = ZonedDateTime.parse(date, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+    } catch (DateTimeParseException e) {
+      return false;
+    }
+    // @formatter:off
+    final String expected = new SnsAuthorizationBuilder(login)
+        .verb(net.solarnetwork.node.setup.stomp.StompCommand.SEND.getValue())
+        .path(SetupTopic.Authenticate.getValue())
+        .date(ts)
+        .build(secret);
+    // @formatter:on
+    return expected.equals(authorization);
+  }
+
+  /**
+   * Per-connection protocol handler.
+   */
+  private final class SessionHandler extends SimpleChannelInboundHandler<StompFrame> {
+
+    private String login;
+    private boolean authenticated;
+    private String subscriptionId;
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+      connectionCount.incrementAndGet();
+      super.channelActive(ctx);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, StompFrame frame) throws Exception {
+      final StompCommand cmd = frame.command();
+      if (cmd == StompCommand.CONNECT || cmd == StompCommand.STOMP) {
+        login = frame.headers().getAsString(StompHeaders.LOGIN);
+        StompFrame reply = new DefaultStompFrame(StompCommand.CONNECTED);
+        reply.headers().set(StompHeaders.VERSION, "1.2");
+        reply.headers().set(StompHeaders.HEART_BEAT, "0,0");
+        reply.headers().set(SetupHeader.AuthHash.getValue(), "bcrypt");
+        reply.headers().set("auth-hash-param-salt", salt);
+        ctx.writeAndFlush(reply);
+      } else if (cmd == StompCommand.SUBSCRIBE) {
+        subscriptionId = frame.headers().getAsString(StompHeaders.ID);
+      } else if (cmd == StompCommand.SEND) {
+        send(ctx, frame);
+      } else if (cmd == StompCommand.DISCONNECT) {
+        ctx.close();
+      }
+    }
+
+    private void send(ChannelHandlerContext ctx, StompFrame frame) {
+      final String dest = header(frame, StompHeaders.DESTINATION);
+      if (SetupTopic.Authenticate.getValue().equals(dest)) {
+        if (verifyAuthorization(login, header(frame, SetupHeader.Authorization.getValue()),
+            header(frame, SetupHeader.Date.getValue()))) {
+          authenticated = true;
+          authenticationCount.incrementAndGet();
+        } else {
+          error(ctx, "Authentication failed.");
+        }
+        return;
+      }
+      if (!authenticated) {
+        error(ctx, "Not authenticated.");
+        return;
+      }
+      requestCount.incrementAndGet();
+      final TopicHandler handler = (dest != null ? handlers.get(dest) : null);
+      SetupStatus status = SetupStatus.Ok;
+      String body = null;
+      if (handler == null) {
+        status = SetupStatus.NotFound;
+      } else {
+        try {
+          body = handler.handleRequest(NettyStompMessage.stringMessage(frame));
+        } catch (Exception e) {
+          status = SetupStatus.InternalError;
+          body = e.getMessage();
+        }
+      }
+      final StompFrame reply = message(ctx, dest, header(frame, REQUEST_ID_HEADER), status, body);
+      final long delay = latencyMillis;
+      if (delay > 0) {
+        ctx.executor().schedule(() -> ctx.writeAndFlush(reply), delay, TimeUnit.MILLISECONDS);
+      } else {
+        ctx.writeAndFlush(reply);
+      }
+    }
+
+    private StompFrame message(ChannelHandlerContext ctx, String dest, String requestId,
+        SetupStatus status, String body) {
+      ByteBuf content = Unpooled.EMPTY_BUFFER;
+      if (body != null) {
+        content = ctx.alloc().buffer(ByteBufUtil.utf8MaxBytes(body));
+        ByteBufUtil.writeUtf8(content, body);
+      }
+      StompFrame reply = new DefaultStompFrame(StompCommand.MESSAGE, content);
+      StompHeaders h = reply.headers();
+      h.set(StompHeaders.DESTINATION, StompHeaderCodec.escape(dest));
+      h.set(StompHeaders.MESSAGE_ID, String.valueOf(messageIds.incrementAndGet()));
+      if (subscriptionId != null) {
+        h.set(StompHeaders.SUBSCRIPTION, StompHeaderCodec.escape(subscriptionId));
+      }
+      if (requestId != null) {
+        h.set(REQUEST_ID_HEADER, StompHeaderCodec.escape(requestId));
+      }
+      h.set(SetupHeader.Status.getValue(), String.valueOf(status.getCode()));
+      if (content.isReadable()) {
+        h.set(StompHeaders.CONTENT_TYPE, JSON_UTF8_CONTENT_TYPE);
+        h.set(StompHeaders.CONTENT_LENGTH, String.valueOf(content.readableBytes()));
+      }
+      return reply;
+    }
+
+    private void error(ChannelHandlerContext ctx, String message) {
+      StompFrame reply = new DefaultStompFrame(StompCommand.ERROR,
+          Unpooled.copiedBuffer(message, UTF8));
+      reply.headers().set(StompHeaders.MESSAGE, StompHeaderCodec.escape(message));
+      ctx.writeAndFlush(reply).addListener(ChannelFutureListener.CLOSE);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+      log.warn("STOMP setup test server connection error: {}", cause.toString());
+      ctx.close();
+    }
+
+  }
+
+  private static String header(StompFrame frame, CharSequence name) {
+    final String value = frame.headers().getAsString(name);
+    return (value != null ? StompHeaderCodec.unescape(value) : null);
+  }
+
+  /**
+   * Get the number of connections accepted.
+   * 
+   * @return the connection count
+   */
+  public long getConnectionCount() {
+    return connectionCount.get();
+  }
+
+  /**
+   * Get the number of successful authentications.
+   * 
+   * @return the authentication count
+   */
+  public long getAuthenticationCount() {
+    return authenticationCount.get();
+  }
+
+  /**
+   * Get the number of authenticated requests received.
+   * 
+   * @return the request count, excluding authentication requests
+   */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  /**
+   * Get the auto-read mode.
+   * 
+   * @return {@literal true} if the server reads from client connections; defaults to
+   *         {@literal true}
+   */
+  public boolean isAutoRead() {
+    return autoRead;
+  }
+
+  /**
+   * Set the auto-read mode.
+   * 
+   * <p>
+   * Turning this off stops the server reading from all client connections, so that data sent by
+   * clients backs up in the network buffers. This can be used to test client backpressure
+   * handling.
+   * </p>
+   * 
+   * @param autoRead
+   *          {@literal true} to read from client connections, {@literal false} to pause reading
+   */
+  public void setAutoRead(boolean autoRead) {
+    this.autoRead = autoRead;
+    for (Channel ch : connections) {
+      ch.config().setAutoRead(autoRead);
+    }
+  }
+
+  /**
+   * Get the username.
+   * 
+   * @return the username clients must log in with; defaults to {@link #DEFAULT_USERNAME}
+   */
+  public String getUsername() {
+    return username;
+  }
+
+  /**
+   * Set the username.
+   * 
+   * @param username
+   *          the username clients must log in with
+   */
+  public void setUsername(String username) {
+    this.username = username;
+  }
+
+  /**
+   * Get the password.
+   * 
+   * @return the password clients must authenticate with, or {@literal null} to accept any
+   *         credentials; defaults to {@link #DEFAULT_PASSWORD}
+   */
+  public String getPassword() {
+    return password;
+  }
+
+  /**
+   * Set the password.
+   * 
+   * <p>
+   * This applies after the server is next started.
+   * </p>
+   * 
+   * @param password
+   *          the password clients must authenticate with, or {@literal null} to accept any
+   *          credentials
+   */
+  public void setPassword(String password) {
+    this.password = password;
+  }
+
+  /**
+   * Get the bcrypt salt.
+   * 
+   * @return the salt offered to clients; defaults to a random salt with a cost of
+   *         {@link #DEFAULT_BCRYPT_COST}
+   */
+  public String getSalt() {
+    return salt;
+  }
+
+  /**
+   * Set the bcrypt salt.
+   * 
+   * <p>
+   * This applies after the server is next started.
+   * </p>
+   * 
+   * @param salt
+   *          the salt to offer to clients
+   * @throws IllegalArgumentException
+   *           if {@code salt} is {@literal null}
+   */
+  public void setSalt(String salt) {
+    if (salt == null) {
+      throw new IllegalArgumentException("The salt argument must not be null.");
+    }
+    this.salt = salt;
+  }
+
+  /**
+   * Get the response latency.
+   * 
+   * @return the delay before sending each response, in milliseconds; defaults to {@literal 0}
+   */
+  public long getLatencyMillis() {
+    return latencyMillis;
+  }
+
+  /**
+   * Set the response latency.
+   * 
+   * @param latencyMillis
+   *          the delay before sending each response, in milliseconds
+   */
+  public void setLatencyMillis(long latencyMillis) {
+    this.latencyMillis = latencyMillis;
+  }
+
+  /**
+   * Get the maximum frame length.
+   * 
+   * @return the maximum number of content bytes allowed in an inbound frame; defaults to
+   *         {@link #DEFAULT_MAX_FRAME_LENGTH}
+   */
+  public int getMaxFrameLength() {
+    return maxFrameLength;
+  }
+
+  /**
+   * Set the maximum frame length.
+   * 
+   * <p>
+   * This applies to connections accepted after the setting is changed.
+   * </p>
+   * 
+   * @param maxFrameLength
+   *          the maximum number of content bytes allowed in an inbound frame
+   */
+  public void setMaxFrameLength(int maxFrameLength) {
+    this.maxFrameLength = maxFrameLength;
+  }
+
+  /**
+   * Get the number of I/O threads.
+   * 
+   * @return the number of threads serving connections; defaults to {@link #DEFAULT_IO_THREADS}
+   */
+  public int getIoThreads() {
+    return ioThreads;
+  }
+
+  /**
+   * Set the number of I/O threads.
+   * 
+   * <p>
+   * This applies after the server is next started.
+   * </p>
+   * 
+   * @param ioThreads
+   *          the number of threads to serve connections with
+   */
+  public void setIoThreads(int ioThreads) {
+    this.ioThreads = ioThreads;
+  }
+
+}